@@ -15,6 +15,7 @@ import java.io.InputStreamReader;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.net.http.HttpClient;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
@@ -122,6 +123,7 @@ import sune.app.mediadown.resource.Resources.InternalResource;
 import sune.app.mediadown.resource.Resources.StringReceiver;
 import sune.app.mediadown.theme.Theme;
 import sune.app.mediadown.update.FileChecker;
+import sune.app.mediadown.update.HashCache;
 import sune.app.mediadown.update.RemoteConfiguration;
 import sune.app.mediadown.update.Requirements;
 import sune.app.mediadown.update.Updater;
@@ -1306,6 +1308,8 @@ public final class MediaDownloader {
 	private static final void initConfiguration() {
 		Path configDir = NIO.localPath(BASE_RESOURCE).resolve("config");
 		Ignore.callVoid(() -> NIO.createDir(configDir), MediaDownloader::error);
+		// Reuse the hashes of unchanged files from the previous runs
+		Ignore.callVoid(() -> HashCache.load(configDir.resolve("hashes.cache")));
 		
 		Path configPath = configDir.resolve("application.ssdf");
 		SSDCollection data = NIO.exists(configPath) ? SSDF.read(configPath.toFile()) : SSDCollection.empty();
@@ -1320,6 +1324,9 @@ public final class MediaDownloader {
 		// Set configuration-dependant values early
 		Web.defaultConnectTimeout(Duration.ofMillis(configuration.requestConnectTimeout()));
 		Web.defaultReadTimeout(Duration.ofMillis(configuration.requestReadTimeout()));
+		Web.maxConnectionsPerHost(configuration.requestMaxConnectionsPerHost());
+		Web.defaultHttpVersion(configuration.requestUseHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1);
+		Threads.useVirtualThreads(configuration.useVirtualThreads());
 		
 		if(applicationUpdated) {
 			UpdateTriggers.OfApplication.init(configuration.version(), VERSION);
@@ -2986,6 +2993,20 @@ public final class MediaDownloader {
 		@Override public boolean checkMessagesOnStartup() { return accessor().checkMessagesOnStartup(); }
 		/** @since 00.02.09 */
 		@Override public String reportEmail() { return accessor().reportEmail(); }
+		/** @since 00.02.09 */
+		@Override public boolean resumableDownloads() { return accessor().resumableDownloads(); }
+		/** @since 00.02.09 */
+		@Override public int downloadBufferSize() { return accessor().downloadBufferSize(); }
+		/** @since 00.02.09 */
+		@Override public int downloadRateLimit() { return accessor().downloadRateLimit(); }
+		/** @since 00.02.09 */
+		@Override public int downloadHostRateLimit() { return accessor().downloadHostRateLimit(); }
+		/** @since 00.02.09 */
+		@Override public int requestMaxConnectionsPerHost() { return accessor().requestMaxConnectionsPerHost(); }
+		/** @since 00.02.09 */
+		@Override public boolean requestUseHttp2() { return accessor().requestUseHttp2(); }
+		/** @since 00.02.09 */
+		@Override public boolean useVirtualThreads() { return accessor().useVirtualThreads(); }
 		@Override public SSDCollection data() { return accessor().data(); }
 		/** @since 00.02.07 */
 		@Override public boolean reload() { return accessor().reload(); }
@@ -8,6 +8,7 @@ import java.nio.channels.FileChannel;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CoderResult;
 import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
@@ -22,29 +23,98 @@ import java.util.NavigableMap;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.zip.CRC32;
 
 import sune.app.mediadown.Shared;
 import sune.app.mediadown.util.NIO;
 
-/** @since 00.02.09 */
+/**
+ * Credentials store backed by an append-only log of records. Each update appends
+ * a new record, or a tombstone for a removal, and only the in-memory index is updated.
+ * Stale records are dropped by compaction, that rewrites the live records to a temporary
+ * file and atomically replaces the store with it.
+ * @since 00.02.09
+ */
 public class FileCredentialsStore implements CredentialsStore {
 	
-	private static final int VERSION = 1;
+	/* Implementation note:
+	 * Version 1 stored the records contiguously and shifted the rest of the file on every
+	 * update. Version 2 consists of records in the form of [length][crc32][payload], where
+	 * the payload is [kind][path][type][data length][data] for a put record, and [kind][path]
+	 * for a tombstone. A torn record at the end of the file, e.g. after a crash, is detected
+	 * by the checksum and discarded.
+	 */
+	
+	private static final int VERSION = 2;
+	/** @since 00.02.09 */
+	private static final int VERSION_LEGACY = 1;
 	private static final OpenOption[] OPEN_OPTIONS = {
 		StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE
 	};
+	/** @since 00.02.09 */
+	private static final OpenOption[] OPEN_OPTIONS_COMPACT = {
+		StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING
+	};
+	
+	/** @since 00.02.09 */
+	private static final byte RECORD_PUT = 1;
+	/** @since 00.02.09 */
+	private static final byte RECORD_REMOVE = 0;
+	/** @since 00.02.09 */
+	private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+	/** @since 00.02.09 */
+	private static final int HEADER_SIZE = Integer.BYTES;
+	
+	// Compact when stale records take at least this many bytes and more than the live ones
+	/** @since 00.02.09 */
+	private static final long COMPACT_MIN_STALE_SIZE = 64L * 1024L;
 	
 	private FileChannel channel;
-	private Table table;
+	/** @since 00.02.09 */
+	private Path path;
+	/** @since 00.02.09 */
+	private final Map<String, Row> index = new HashMap<>();
+	/** @since 00.02.09 */
+	private long liveSize;
+	/** @since 00.02.09 */
+	private long staleSize;
+	/** @since 00.02.09 */
+	private long end;
 	
 	protected FileCredentialsStore() {
 	}
 	
+	/** @since 00.02.09 */
+	private static final Path tempPath(Path path) {
+		return path.resolveSibling(path.getFileName().toString() + ".tmp");
+	}
+	
+	/** @since 00.02.09 */
+	private static final ByteBuffer header() {
+		ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE);
+		buf.putInt(VERSION);
+		return buf.flip();
+	}
+	
+	/** @since 00.02.09 */
+	private static final int checksum(ByteBuffer payload) {
+		CRC32 crc = new CRC32();
+		crc.update(payload.duplicate());
+		return (int) crc.getValue();
+	}
+	
+	/** @since 00.02.09 */
+	private static final ByteBuffer record(ByteBuffer payload) {
+		ByteBuffer buf = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.remaining());
+		buf.putInt(payload.remaining());
+		buf.putInt(checksum(payload));
+		buf.put(payload);
+		return buf.flip();
+	}
+	
 	protected final void writeHeader() throws IOException {
-		ByteBuffer buf = ByteBuffer.allocate(Integer.BYTES);
-		writeInt(buf, VERSION);
-		write(0L, buf.flip());
-		channel.position(Integer.BYTES);
+		write(0L, header());
+		channel.position(HEADER_SIZE);
 	}
 	
 	protected final void checkHeader() throws IOException {
@@ -57,8 +127,14 @@ public class FileCredentialsStore implements CredentialsStore {
 		int version = readInt(buf);
 		channel.position(Integer.BYTES);
 		
-		// Currently, this implementation of store does neither support any other version
-		// than the current one, nor does it implement any compatibility procedures.
+		// The legacy version is converted to the current one when opened
+		if(version == VERSION_LEGACY) {
+			migrate();
+			return;
+		}
+		
+		// Currently, this implementation of store does not support any other version
+		// than the current one and the legacy one.
 		if(version != VERSION) {
 			throw new IllegalStateException("Unsupported version " + version + ", only " + VERSION + " is supported");
 		}
@@ -67,21 +143,188 @@ public class FileCredentialsStore implements CredentialsStore {
 	protected final void open(Path path) throws IOException {
 		Objects.requireNonNull(path);
 		
+		this.path = path;
+		// Remove a leftover of an interrupted compaction, the store itself is still intact
+		Files.deleteIfExists(tempPath(path));
+		
 		channel = FileChannel.open(path, OPEN_OPTIONS);
 		checkHeader();
+		readIndex();
+	}
+	
+	/** @since 00.02.09 */
+	private final void readIndex() throws IOException {
+		index.clear();
+		liveSize = 0L;
+		staleSize = 0L;
+		
+		long size = channel.size();
+		long pos = HEADER_SIZE;
+		
+		while(pos + RECORD_HEADER_SIZE <= size) {
+			ByteBuffer header = read(pos, RECORD_HEADER_SIZE);
+			int length = header.getInt();
+			int checksum = header.getInt();
+			
+			if(length <= 0 || pos + RECORD_HEADER_SIZE + length > size) {
+				break; // Torn or invalid record
+			}
+			
+			ByteBuffer payload = read(pos + RECORD_HEADER_SIZE, length);
+			
+			try {
+				if(checksum(payload) != checksum) {
+					break; // Torn or invalid record
+				}
+				
+				byte kind = payload.get();
+				String recordPath = readString(payload);
+				long recordSize = RECORD_HEADER_SIZE + length;
+				Row old;
+				
+				if(kind == RECORD_PUT) {
+					old = index.put(recordPath, new Row(pos, recordSize));
+					liveSize += recordSize;
+				} else {
+					old = index.remove(recordPath);
+					staleSize += recordSize;
+				}
+				
+				if(old != null) {
+					liveSize -= old.size();
+					staleSize += old.size();
+				}
+				
+				pos += recordSize;
+			} finally {
+				CredentialsUtils.dispose(payload);
+			}
+		}
+		
+		// Discard anything after the last valid record, so that new records are not appended
+		// after garbage.
+		if(pos < size) {
+			channel.truncate(pos);
+		}
+		
+		end = pos;
+		channel.position(end);
+	}
+	
+	/** @since 00.02.09 */
+	private final void append(ByteBuffer payload) throws IOException {
+		ByteBuffer buf = null;
 		
-		long pos = channel.position();
 		try {
-			Table t = Table.from(channel);
+			buf = record(payload);
+			write(end, buf);
+			// Make sure the record is persisted before it is reported as written
+			channel.force(false);
+		} finally {
+			if(buf != null) {
+				CredentialsUtils.dispose(buf);
+				buf = null;
+			}
+		}
+	}
+	
+	/** @since 00.02.09 */
+	private final boolean shouldCompact() {
+		return staleSize >= COMPACT_MIN_STALE_SIZE && staleSize > liveSize;
+	}
+	
+	/** @since 00.02.09 */
+	private final void replaceWith(Path temp) throws IOException {
+		channel.close();
+		NIO.moveForce(temp, path);
+		channel = FileChannel.open(path, OPEN_OPTIONS);
+		readIndex();
+	}
+	
+	/**
+	 * Rewrites the store so that it contains only the live records. The records are first
+	 * written to a temporary file that then atomically replaces the store, therefore
+	 * the store is not damaged, if the process is interrupted.
+	 * @since 00.02.09
+	 */
+	protected final void compact() throws IOException {
+		Path temp = tempPath(path);
+		
+		try(FileChannel output = FileChannel.open(temp, OPEN_OPTIONS_COMPACT)) {
+			NIO.write(output, 0L, header());
+			output.position(HEADER_SIZE);
 			
-			if(t == null) {
-				throw new IllegalStateException("Unable to read the table");
+			for(Row row : index.values()) {
+				NIO.transferTo(channel, row.offset(), row.size(), output);
 			}
 			
-			table = t;
+			output.force(true);
+		} catch(IOException ex) {
+			Files.deleteIfExists(temp);
+			throw ex;
+		}
+		
+		replaceWith(temp);
+	}
+	
+	/** @since 00.02.09 */
+	private final void migrate() throws IOException {
+		Table table = Table.from(channel);
+		
+		if(table == null) {
+			throw new IllegalStateException("Unable to read the table");
+		}
+		
+		Path temp = tempPath(path);
+		
+		try(FileChannel output = FileChannel.open(temp, OPEN_OPTIONS_COMPACT)) {
+			NIO.write(output, 0L, header());
+			long pos = HEADER_SIZE;
+			
+			for(String recordPath : table.paths()) {
+				Table.Row row = table.get(recordPath);
+				ByteBuffer buf = null;
+				ByteBuffer payload = null;
+				ByteBuffer record = null;
+				
+				try {
+					buf = read(row.offset(), row.size());
+					
+					if(!recordPath.equals(readString(buf))) {
+						continue; // Invalid item, ignore it
+					}
+					
+					String type = readString(buf);
+					int length = readInt(buf);
+					byte[] bytesPath = recordPath.getBytes(Shared.CHARSET);
+					byte[] bytesType = type.getBytes(Shared.CHARSET);
+					int size = 1 + bytesPath.length + bytesType.length + length + 3 * Integer.BYTES;
+					payload = ByteBuffer.allocate(size);
+					payload.put(RECORD_PUT);
+					payload.putInt(bytesPath.length).put(bytesPath);
+					payload.putInt(bytesType.length).put(bytesType);
+					payload.putInt(length);
+					// The data are copied as they are, i.e. possibly still encrypted
+					payload.put(buf.limit(buf.position() + length));
+					record = record(payload.flip());
+					NIO.write(output, pos, record);
+					pos += record.capacity();
+				} finally {
+					if(buf != null) CredentialsUtils.dispose(buf);
+					if(payload != null) CredentialsUtils.dispose(payload);
+					if(record != null) CredentialsUtils.dispose(record);
+				}
+			}
+			
+			output.force(true);
+		} catch(IOException ex) {
+			Files.deleteIfExists(temp);
+			throw ex;
 		} finally {
-			channel.position(pos);
+			table.clear();
 		}
+		
+		replaceWith(temp);
 	}
 	
 	protected final ByteBuffer read(long offset, long size) throws IOException {
@@ -92,14 +335,6 @@ public class FileCredentialsStore implements CredentialsStore {
 		NIO.write(channel, offset, buf);
 	}
 	
-	protected final void truncate(long offset, long size) throws IOException {
-		NIO.truncate(channel, offset, size);
-	}
-	
-	protected final void replace(long offset, long size, ByteBuffer buf) throws IOException {
-		NIO.replace(channel, offset, size, buf);
-	}
-	
 	protected final int readInt(ByteBuffer buf) {
 		return buf.getInt();
 	}
@@ -108,12 +343,13 @@ public class FileCredentialsStore implements CredentialsStore {
 	//       of the string and the string's contents.
 	protected final String readString(ByteBuffer buf) {
 		int length = buf.getInt();
+		int limit = buf.limit();
 		buf.limit(buf.position() + length);
 		
 		try {
 			return Shared.CHARSET.decode(buf).toString();
 		} finally {
-			buf.limit(buf.capacity());
+			buf.limit(limit);
 		}
 	}
 	
@@ -121,9 +357,9 @@ public class FileCredentialsStore implements CredentialsStore {
 		buf.putInt(value);
 	}
 	
-	protected final void writeString(ByteBuffer buf, String string) {
-		buf.putInt(string.length());
-		buf.put(string.getBytes(Shared.CHARSET));
+	protected final void writeString(ByteBuffer buf, byte[] bytes) {
+		buf.putInt(bytes.length);
+		buf.put(bytes);
 	}
 	
 	protected final ByteBuffer serialize(String path, Credentials credentials) {
@@ -139,10 +375,13 @@ public class FileCredentialsStore implements CredentialsStore {
 			
 			data = modified;
 			
-			int size = path.length() + type.length() + data.length + 3 * Integer.BYTES;
+			byte[] bytesPath = path.getBytes(Shared.CHARSET);
+			byte[] bytesType = type.getBytes(Shared.CHARSET);
+			int size = 1 + bytesPath.length + bytesType.length + data.length + 3 * Integer.BYTES;
 			ByteBuffer buf = ByteBuffer.allocate(size);
-			writeString(buf, path);
-			writeString(buf, type);
+			buf.put(RECORD_PUT);
+			writeString(buf, bytesPath);
+			writeString(buf, bytesType);
 			writeInt(buf, data.length);
 			buf.put(data);
 			return buf.flip();
@@ -154,6 +393,15 @@ public class FileCredentialsStore implements CredentialsStore {
 		}
 	}
 	
+	/** @since 00.02.09 */
+	protected final ByteBuffer serializeRemoval(String path) {
+		byte[] bytesPath = path.getBytes(Shared.CHARSET);
+		ByteBuffer buf = ByteBuffer.allocate(1 + Integer.BYTES + bytesPath.length);
+		buf.put(RECORD_REMOVE);
+		writeString(buf, bytesPath);
+		return buf.flip();
+	}
+	
 	@SuppressWarnings("unchecked")
 	protected final Class<? extends Credentials> clazz(String type) throws IOException {
 		try {
@@ -214,14 +462,15 @@ public class FileCredentialsStore implements CredentialsStore {
 	public Credentials get(String path) throws IOException {
 		Objects.requireNonNull(path);
 		
-		Table.Row row;
-		if((row = table.get(path)) == null) {
+		Row row;
+		if((row = index.get(path)) == null) {
 			return null;
 		}
 		
 		ByteBuffer buf = null;
 		try {
-			buf = read(row.offset(), row.size());
+			buf = read(row.offset() + RECORD_HEADER_SIZE, row.size() - RECORD_HEADER_SIZE);
+			buf.get(); // Skip the kind, always a put record
 			
 			// Check that the path matches
 			if(!path.equals(readString(buf))) {
@@ -242,7 +491,7 @@ public class FileCredentialsStore implements CredentialsStore {
 	@Override
 	public boolean has(String path) {
 		Objects.requireNonNull(path);
-		return table.has(path);
+		return index.containsKey(path);
 	}
 	
 	@Override
@@ -253,15 +502,16 @@ public class FileCredentialsStore implements CredentialsStore {
 		ByteBuffer buf = null;
 		try {
 			buf = serialize(path, credentials);
-			int newSize = buf.remaining();
+			long size = RECORD_HEADER_SIZE + buf.remaining();
+			append(buf);
 			
-			Table.Row row;
-			if((row = table.get(path)) != null) {
-				table.set(path, newSize);
-				replace(row.offset(), row.size(), buf);
-			} else {
-				row = table.set(path, newSize);
-				write(row.offset(), buf);
+			Row old = index.put(path, new Row(end, size));
+			liveSize += size;
+			end += size;
+			
+			if(old != null) {
+				liveSize -= old.size();
+				staleSize += old.size();
 			}
 		} finally {
 			if(buf != null) {
@@ -269,31 +519,68 @@ public class FileCredentialsStore implements CredentialsStore {
 				buf = null;
 			}
 		}
+		
+		if(shouldCompact()) {
+			compact();
+		}
 	}
 	
 	@Override
 	public void remove(String path) throws IOException {
 		Objects.requireNonNull(path);
 		
-		Table.Row row;
-		if((row = table.remove(path)) == null) {
+		if(!index.containsKey(path)) {
 			return;
 		}
 		
-		truncate(row.offset(), row.size());
+		ByteBuffer buf = serializeRemoval(path);
+		long size = RECORD_HEADER_SIZE + buf.remaining();
+		append(buf);
+		
+		Row old = index.remove(path);
+		liveSize -= old.size();
+		staleSize += old.size() + size;
+		end += size;
+		
+		if(shouldCompact()) {
+			compact();
+		}
 	}
 	
 	@Override
 	public Set<String> paths() {
-		return Collections.unmodifiableSet(table.paths());
+		return Collections.unmodifiableSet(index.keySet());
 	}
 	
 	@Override
 	public void close() throws IOException {
-		table.clear();
-		channel.close();
+		try {
+			// Do not leave the removed or replaced credentials in the file
+			if(staleSize > 0L) {
+				compact();
+			}
+		} finally {
+			index.clear();
+			channel.close();
+		}
+	}
+	
+	/** @since 00.02.09 */
+	private static final class Row {
+		
+		private final long offset;
+		private final long size;
+		
+		public Row(long offset, long size) {
+			this.offset = offset;
+			this.size = size;
+		}
+		
+		public long offset() { return offset; }
+		public long size() { return size; }
 	}
 	
+	// Reader of the legacy version of the store, used only for the migration
 	protected static final class Table {
 		
 		private final TreeMap<Long, MapEntry> map = new TreeMap<>();
@@ -1,5 +1,6 @@
 package sune.app.mediadown.concurrent;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /** @since 00.02.08 */
@@ -50,6 +51,31 @@ public final class CounterLock {
 		return true;
 	}
 	
+	/**
+	 * Waits at most the given number of milliseconds for the counter to reach the minimum
+	 * value. Returns {@code true}, if the minimum value was reached, otherwise {@code false}.
+	 * @since 00.02.09
+	 */
+	public final boolean await(long timeout) {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		
+		synchronized(lock) {
+			for(long remaining; counter.get() > minValue;) {
+				if((remaining = deadline - System.nanoTime()) <= 0L) {
+					return false;
+				}
+				
+				try {
+					TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+				} catch(InterruptedException ex) {
+					return false;
+				}
+			}
+		}
+		
+		return true;
+	}
+	
 	public final void free() {
 		counter.set(0);
 		
@@ -0,0 +1,333 @@
+package sune.app.mediadown.concurrent;
+
+import java.time.Duration;
+import java.util.AbstractQueue;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import sune.app.mediadown.util.Utils;
+
+/**
+ * A queue task executor that runs the submitted tasks in the order of their priority,
+ * rather than in the order of their submission.
+ * <br><br>
+ * Each task is ordered by the time it should be started at, which is computed once,
+ * when the task is submitted. A task of the normal priority should be started at the time
+ * of its submission, every level of priority above (below) the normal one moves the time
+ * earlier (later) by the aging quantum. Therefore a task waits for tasks of higher priority
+ * at most the aging quantum times the difference of the priorities, i.e. no task starves.
+ * A task with a deadline should be started no later than at the deadline.
+ * <br><br>
+ * The queue is lock-free, both the submission and the dispatch of the tasks never block.
+ * @since 00.02.09
+ */
+public class PriorityQueueTaskExecutor<V> extends PositionAwareQueueTaskExecutor<V> {
+	
+	public static final int PRIORITY_LOWEST  = -100;
+	public static final int PRIORITY_NORMAL  = 0;
+	public static final int PRIORITY_HIGHEST = 100;
+	
+	private static final Duration DEFAULT_AGING_QUANTUM = Duration.ofMinutes(1L);
+	
+	protected final long agingQuantum;
+	protected final AtomicInteger positionUpdates = new AtomicInteger();
+	
+	public PriorityQueueTaskExecutor(int maxTaskCount) {
+		this(maxTaskCount, DEFAULT_AGING_QUANTUM);
+	}
+	
+	public PriorityQueueTaskExecutor(int maxTaskCount, Duration agingQuantum) {
+		super(maxTaskCount);
+		this.agingQuantum = checkAgingQuantum(agingQuantum);
+	}
+	
+	protected static final long checkAgingQuantum(Duration agingQuantum) {
+		if(agingQuantum == null || agingQuantum.isNegative() || agingQuantum.isZero()) {
+			throw new IllegalArgumentException("Aging quantum must be > 0");
+		}
+		
+		return agingQuantum.toNanos();
+	}
+	
+	protected static final int clampPriority(int priority) {
+		return Math.max(PRIORITY_LOWEST, Math.min(PRIORITY_HIGHEST, priority));
+	}
+	
+	@Override
+	protected Queue<InternalQueueTask> createQueue() {
+		return new PriorityTaskQueue();
+	}
+	
+	/** Recomputes the queue positions until no more updates were requested meanwhile. */
+	protected void doUpdateQueuePositions() {
+		for(int requests = positionUpdates.get();; requests = positionUpdates.get()) {
+			int queuePosition = 0;
+			
+			for(InternalQueueTask t : submittedTasks) {
+				if(t.isPaused() || t.isCancelled()) {
+					continue; // Does not occupy a position in the queue
+				}
+				
+				PriorityInternalQueueTask task = Utils.cast(t);
+				task.queuePosition(queuePosition++);
+			}
+			
+			if(positionUpdates.compareAndSet(requests, 0)) {
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * Requests an update of the queue positions of all the submitted tasks. The update
+	 * iterates the whole queue, therefore it is done asynchronously, so that neither
+	 * the submission nor the dispatch has to wait for it, and the requests that arrive
+	 * while it is running are coalesced into a single repetition.
+	 */
+	protected void updateQueuePositions() {
+		if(positionUpdates.getAndIncrement() != 0) {
+			return; // The running update will repeat itself
+		}
+		
+		try {
+			Threads.execute(this::doUpdateQueuePositions);
+		} catch(RejectedExecutionException ex) {
+			positionUpdates.set(0); // Shutting down, nothing to update
+		}
+	}
+	
+	@Override
+	protected void notifySubmittedTasks(BiConsumer<PositionAwareInternalQueueTask, Integer> action, int position) {
+		// The positions do not follow the order of submission, compute them from the queue
+		updateQueuePositions();
+	}
+	
+	@Override
+	protected InternalQueueTask createTask(QueueTask<V> task) {
+		return new PriorityInternalQueueTask(task, taskNormalState(), PRIORITY_NORMAL, null);
+	}
+	
+	@Override
+	protected void resumeDelayedTask(InternalQueueTask task) {
+		PriorityInternalQueueTask castedTask = Utils.cast(task);
+		castedTask.resubmitted(); // Not in the queue, safe to change the key
+		
+		super.resumeDelayedTask(task);
+		updateQueuePositions();
+	}
+	
+	/** Changes the order of the given task, while maintaining the queue. */
+	protected void reorder(PriorityInternalQueueTask task, Runnable change) {
+		synchronized(task) {
+			boolean queued = submittedTasks.remove(task);
+			change.run();
+			
+			if(!queued) {
+				return; // Already dispatched, nothing else to do
+			}
+			
+			submittedTasks.add(task);
+			// The loop may have found the queue empty in the meantime
+			mtxSubmitted.unlock();
+		}
+		
+		updateQueuePositions();
+	}
+	
+	/** @return The lowest key among the submitted tasks, or the given value, if there are none. */
+	protected long firstKey(long defaultValue) {
+		InternalQueueTask first;
+		if((first = submittedTasks.peek()) == null) {
+			return defaultValue;
+		}
+		
+		PriorityInternalQueueTask castedTask = Utils.cast(first);
+		return castedTask.key;
+	}
+	
+	/**
+	 * Submits the given task with the given priority and deadline.
+	 * @param task The task
+	 * @param priority The priority, between {@link #PRIORITY_LOWEST} and {@link #PRIORITY_HIGHEST}
+	 * @param deadline The time from now the task should be started in, or {@code null}, if none
+	 * @return The result of the task, or {@code null}, if the executor is not running
+	 */
+	public PriorityQueueTaskResult<V> submit(QueueTask<V> task, int priority, Duration deadline) {
+		if(!isStarted()) {
+			start();
+		}
+		
+		if(!isRunning()) {
+			return null;
+		}
+		
+		PriorityInternalQueueTask internalTask = new PriorityInternalQueueTask(
+			task, taskNormalState(), priority, deadline
+		);
+		
+		submittedTasks.add(internalTask);
+		mtxSubmitted.unlock();
+		updateQueuePositions();
+		
+		return internalTask;
+	}
+	
+	@Override
+	public PriorityQueueTaskResult<V> submit(QueueTask<V> task) {
+		return submit(task, PRIORITY_NORMAL, null);
+	}
+	
+	/** Lock-free queue of the submitted tasks, ordered by their keys. */
+	protected final class PriorityTaskQueue extends AbstractQueue<InternalQueueTask> {
+		
+		private final ConcurrentSkipListSet<InternalQueueTask> tasks = new ConcurrentSkipListSet<>(
+			Comparator.comparingLong((InternalQueueTask t) -> ((PriorityInternalQueueTask) t).key)
+				.thenComparingInt((t) -> ((PriorityInternalQueueTask) t).position())
+		);
+		
+		protected PriorityTaskQueue() {
+		}
+		
+		@Override
+		public boolean offer(InternalQueueTask task) {
+			return tasks.add(task);
+		}
+		
+		@Override
+		public InternalQueueTask poll() {
+			return tasks.pollFirst();
+		}
+		
+		@Override
+		public InternalQueueTask peek() {
+			Iterator<InternalQueueTask> it = tasks.iterator();
+			return it.hasNext() ? it.next() : null;
+		}
+		
+		@Override
+		public boolean remove(Object task) {
+			return tasks.remove(task);
+		}
+		
+		@Override
+		public void clear() {
+			tasks.clear();
+		}
+		
+		@Override
+		public boolean isEmpty() {
+			return tasks.isEmpty();
+		}
+		
+		@Override
+		public Iterator<InternalQueueTask> iterator() {
+			return tasks.iterator();
+		}
+		
+		/** Note that this method is not a constant-time operation. */
+		@Override
+		public int size() {
+			return tasks.size();
+		}
+	}
+	
+	protected class PriorityInternalQueueTask extends PositionAwareInternalQueueTask
+			implements PriorityQueueTaskResult<V> {
+		
+		/** Time of the deadline as in {@link System#nanoTime()}, or {@code Long.MAX_VALUE}, if none. */
+		protected final long deadline;
+		protected volatile long submitted;
+		protected volatile int priority;
+		/** The time the task should be started at, must not change while the task is queued. */
+		protected volatile long key;
+		protected volatile int queuePosition;
+		
+		public PriorityInternalQueueTask(QueueTask<V> task, PositionAwareQueueTaskState state, int priority,
+				Duration deadline) {
+			super(task, state);
+			long now = System.nanoTime();
+			this.deadline = deadline != null ? now + Math.max(0L, deadline.toNanos()) : Long.MAX_VALUE;
+			this.submitted = now;
+			this.priority = clampPriority(priority);
+			this.key = computeKey();
+			this.queuePosition = state.queuePosition();
+		}
+		
+		protected long computeKey() {
+			return Math.min(submitted - priority * agingQuantum, deadline);
+		}
+		
+		protected void resubmitted() {
+			submitted = System.nanoTime();
+			key = computeKey();
+		}
+		
+		@Override
+		protected void queuePosition(int queuePosition) {
+			this.queuePosition = queuePosition;
+			super.queuePosition(queuePosition);
+		}
+		
+		@Override
+		public void priority(int priority) {
+			int clamped = clampPriority(priority);
+			
+			reorder(this, () -> {
+				this.priority = clamped;
+				key = computeKey();
+			});
+		}
+		
+		@Override
+		public void moveToFront() {
+			reorder(this, () -> {
+				priority = PRIORITY_HIGHEST;
+				// Before all the other tasks, regardless of their age
+				key = Math.min(computeKey(), firstKey(Long.MAX_VALUE) - 1L);
+			});
+		}
+		
+		@Override
+		public int priority() {
+			return priority;
+		}
+		
+		@Override
+		public long deadline(TimeUnit unit) {
+			if(deadline == Long.MAX_VALUE) {
+				return Long.MAX_VALUE;
+			}
+			
+			return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+		
+		@Override
+		public int queuePosition() {
+			return queuePosition;
+		}
+	}
+	
+	public static interface PriorityQueueTaskResult<V> extends PositionAwareQueueTaskResult<V> {
+		
+		/**
+		 * Changes the priority of the task. Has no effect, if the task is already running.
+		 * @param priority The new priority
+		 */
+		void priority(int priority);
+		/**
+		 * Moves the task before all the other submitted tasks. Has no effect, if the task
+		 * is already running.
+		 */
+		void moveToFront();
+		
+		int priority();
+		/** @return The time remaining to the deadline, or {@code Long.MAX_VALUE}, if there is no deadline. */
+		long deadline(TimeUnit unit);
+	}
+}
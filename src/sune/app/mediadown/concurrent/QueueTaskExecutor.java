@@ -20,7 +20,7 @@ public class QueueTaskExecutor<V> {
 	protected static final int STATE_STOPPED  = 1 << 3;
 	
 	protected final int maxTaskCount;
-	protected final Queue<InternalQueueTask> submittedTasks = new ConcurrentLinkedQueue<>();
+	protected final Queue<InternalQueueTask> submittedTasks;
 	protected final Queue<InternalQueueTask> runningTasks = new ConcurrentLinkedQueue<>();
 	protected final StateMutex mtxSubmitted = new StateMutex();
 	protected final InternalState state = new InternalState(STATE_INITIAL);
@@ -32,6 +32,7 @@ public class QueueTaskExecutor<V> {
 	public QueueTaskExecutor(int maxTaskCount) {
 		this.maxTaskCount = checkMaxTaskCount(maxTaskCount);
 		this.lockTasks = new CounterLock(0, maxTaskCount - 1);
+		this.submittedTasks = createQueue();
 	}
 	
 	protected static final int checkMaxTaskCount(int maxTaskCount) {
@@ -42,8 +43,17 @@ public class QueueTaskExecutor<V> {
 		return maxTaskCount;
 	}
 	
+	/**
+	 * Creates the queue of submitted tasks. Called from the constructor, therefore
+	 * it must not depend on the state of a subclass.
+	 * @since 00.02.09
+	 */
+	protected Queue<InternalQueueTask> createQueue() {
+		return new ConcurrentLinkedQueue<>();
+	}
+	
 	protected ExecutorService createExecutor() {
-		return Threads.Pools.newFixed(maxTaskCount);
+		return Threads.Pools.newFixedIO(maxTaskCount);
 	}
 	
 	protected ExecutorService executor() {
@@ -133,6 +143,9 @@ public class QueueTaskExecutor<V> {
 	}
 	
 	protected void start() {
+		// Must be set before the loop is started, otherwise the loop may exit immediately
+		state.set(STATE_STARTED | STATE_RUNNING);
+		
 		Thread t;
 		if((t = thread) == null) {
 			synchronized(this) {
@@ -143,8 +156,6 @@ public class QueueTaskExecutor<V> {
 				}
 			}
 		}
-		
-		state.set(STATE_STARTED | STATE_RUNNING);
 	}
 	
 	protected void stop(boolean cancel) throws Exception {
@@ -0,0 +1,83 @@
+package sune.app.mediadown.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token bucket limiting the number of units (usually bytes) per second. The bucket
+ * holds at most one second worth of tokens. Waiting threads acquire the tokens in
+ * the order of their arrival and in small portions, so that all of them get a fair
+ * share of the rate. The rate may be changed at any time.
+ * @since 00.02.09
+ */
+public final class RateLimiter {
+	
+	private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1L);
+	/** Portions per second, the larger the value, the more fair the sharing is. */
+	private static final long PORTIONS_PER_SECOND = 50L;
+	private static final long MIN_PORTION = 1024L;
+	
+	private final ReentrantLock lock = new ReentrantLock(true);
+	private volatile long rate;
+	private long tokens;
+	private long lastRefill;
+	
+	public RateLimiter() {
+		this(0L);
+	}
+	
+	public RateLimiter(long rate) {
+		this.rate = rate;
+		this.lastRefill = System.nanoTime();
+	}
+	
+	private final void refill(long rate) {
+		long now = System.nanoTime();
+		long elapsed = now - lastRefill;
+		lastRefill = now;
+		
+		// Avoid overflow for long idle periods, the bucket is full anyway
+		if(elapsed >= NANOS_PER_SECOND) {
+			tokens = rate;
+			return;
+		}
+		
+		tokens = Math.min(rate, tokens + elapsed * rate / NANOS_PER_SECOND);
+	}
+	
+	/**
+	 * Acquires the given number of tokens, waiting until they are available. Returns
+	 * immediately, if the rate is not limited.
+	 */
+	public void acquire(long count) throws InterruptedException {
+		for(long remaining = count, rate; remaining > 0L && (rate = this.rate) > 0L;) {
+			long portion = Math.min(remaining, Math.max(rate / PORTIONS_PER_SECOND, MIN_PORTION));
+			
+			lock.lockInterruptibly();
+			
+			try {
+				refill(rate);
+				tokens -= portion;
+				
+				// The waiting is done while holding the lock, so that the other threads
+				// are served in the order of their arrival.
+				if(tokens < 0L) {
+					TimeUnit.NANOSECONDS.sleep(-tokens * NANOS_PER_SECOND / rate);
+				}
+			} finally {
+				lock.unlock();
+			}
+			
+			remaining -= portion;
+		}
+	}
+	
+	/** Sets the rate in tokens per second, a non-positive value means no limit. */
+	public void rate(long rate) {
+		this.rate = rate;
+	}
+	
+	public long rate() {
+		return rate;
+	}
+}
@@ -1,9 +1,11 @@
 package sune.app.mediadown.concurrent;
 
+import java.lang.reflect.Method;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -14,6 +16,10 @@ public final class Threads {
 	private static final AtomicBoolean running = new AtomicBoolean(true);
 	
 	private static final ThreadFactory threadFactory = Executors.defaultThreadFactory();
+	/** @since 00.02.09 */
+	private static final VarLoader<ThreadFactory> virtualThreadFactory = VarLoader.of(Threads::newVirtualThreadFactory);
+	/** @since 00.02.09 */
+	private static volatile boolean useVirtualThreads;
 	
 	private static final Queue<Thread> threads = new ConcurrentLinkedQueue<>();
 	private static final Queue<ExecutorService> pools = new ConcurrentLinkedQueue<>();
@@ -24,6 +30,21 @@ public final class Threads {
 	private Threads() {
 	}
 	
+	/**
+	 * Obtains the factory of virtual threads, if supported by the runtime. Since the application
+	 * targets an older version of Java, the factory must be obtained reflectively.
+	 * @since 00.02.09
+	 */
+	private static final ThreadFactory newVirtualThreadFactory() {
+		try {
+			Method ofVirtual = Thread.class.getMethod("ofVirtual");
+			Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+			return (ThreadFactory) factory.invoke(ofVirtual.invoke(null));
+		} catch(ReflectiveOperationException | ClassCastException ex) {
+			return null; // Not supported
+		}
+	}
+	
 	private static final Thread addThread(Thread thread) {
 		if(!isRunning()) {
 			return null;
@@ -68,6 +89,34 @@ public final class Threads {
 		return Runtime.getRuntime().availableProcessors();
 	}
 	
+	/** @since 00.02.09 */
+	public static final boolean isVirtualThreadsSupported() {
+		return virtualThreadFactory.value() != null;
+	}
+	
+	/**
+	 * Sets whether the threads for blocking I/O tasks should be virtual threads. Has effect
+	 * only when the runtime supports virtual threads, otherwise platform threads are used.
+	 * @since 00.02.09
+	 */
+	public static final void useVirtualThreads(boolean value) {
+		useVirtualThreads = value;
+	}
+	
+	/** @since 00.02.09 */
+	public static final boolean useVirtualThreads() {
+		return useVirtualThreads && isVirtualThreadsSupported();
+	}
+	
+	/**
+	 * Returns the thread factory for blocking I/O tasks, i.e. the factory of virtual threads,
+	 * if enabled and supported, otherwise the factory of platform threads.
+	 * @since 00.02.09
+	 */
+	public static final ThreadFactory ioThreadFactory() {
+		return useVirtualThreads() ? virtualThreadFactory.value() : threadFactory;
+	}
+	
 	public static final Thread newThread(Runnable runnable) {
 		return addThread(threadFactory.newThread(runnable));
 	}
@@ -103,6 +152,23 @@ public final class Threads {
 			return addPool(Executors.newFixedThreadPool(Math.max(1, numOfThreads), threadFactory));
 		}
 		
+		/**
+		 * Creates a new fixed thread pool for blocking I/O tasks, the threads are virtual,
+		 * if enabled. The number of threads still limits the number of concurrent tasks.
+		 * @since 00.02.09
+		 */
+		public static final ExecutorService newFixedIO(int numOfThreads) {
+			return addPool(Executors.newFixedThreadPool(Math.max(1, numOfThreads), ioThreadFactory()));
+		}
+		
+		/** @since 00.02.09 */
+		public static final ScheduledExecutorService newScheduled(int numOfThreads) {
+			ScheduledExecutorService executor = Executors.newScheduledThreadPool(
+				Math.max(1, numOfThreads), threadFactory
+			);
+			return addPool(executor) != null ? executor : null;
+		}
+		
 		public static final ExecutorService newWorkStealing() {
 			return newWorkStealing(maxNumberOfThreads());
 		}
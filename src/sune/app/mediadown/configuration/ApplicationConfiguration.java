@@ -69,6 +69,20 @@ public class ApplicationConfiguration extends Configuration implements Applicati
 	private boolean checkMessagesOnStartup;
 	/** @since 00.02.09 */
 	private String reportEmail;
+	/** @since 00.02.09 */
+	private boolean resumableDownloads;
+	/** @since 00.02.09 */
+	private int downloadBufferSize;
+	/** @since 00.02.09 */
+	private int downloadRateLimit;
+	/** @since 00.02.09 */
+	private int downloadHostRateLimit;
+	/** @since 00.02.09 */
+	private int requestMaxConnectionsPerHost;
+	/** @since 00.02.09 */
+	private boolean requestUseHttp2;
+	/** @since 00.02.09 */
+	private boolean useVirtualThreads;
 	
 	private ApplicationConfiguration(Path path, String name, SSDCollection data, Map<String, ConfigurationProperty<?>> properties) {
 		super(name, data, properties);
@@ -148,6 +162,34 @@ public class ApplicationConfiguration extends Configuration implements Applicati
 			.inGroup(GROUP_DOWNLOAD)
 			.withDefaultValue(Web.defaultReadTimeout().toMillis())
 			.withOrder(50));
+		builder.addProperty(ConfigurationProperty.ofBoolean(PROPERTY_RESUMABLE_DOWNLOADS)
+			.inGroup(GROUP_DOWNLOAD)
+			.withDefaultValue(true)
+			.withOrder(60));
+		builder.addProperty(ConfigurationProperty.ofInteger(PROPERTY_DOWNLOAD_BUFFER_SIZE)
+			.inGroup(GROUP_DOWNLOAD)
+			.withDefaultValue(256)
+			.withOrder(70));
+		builder.addProperty(ConfigurationProperty.ofInteger(PROPERTY_DOWNLOAD_RATE_LIMIT)
+			.inGroup(GROUP_DOWNLOAD)
+			.withDefaultValue(0)
+			.withOrder(80));
+		builder.addProperty(ConfigurationProperty.ofInteger(PROPERTY_DOWNLOAD_HOST_RATE_LIMIT)
+			.inGroup(GROUP_DOWNLOAD)
+			.withDefaultValue(0)
+			.withOrder(90));
+		builder.addProperty(ConfigurationProperty.ofInteger(PROPERTY_REQUEST_MAX_CONNECTIONS_PER_HOST)
+			.inGroup(GROUP_DOWNLOAD)
+			.withDefaultValue(0)
+			.withOrder(100));
+		builder.addProperty(ConfigurationProperty.ofBoolean(PROPERTY_REQUEST_USE_HTTP2)
+			.inGroup(GROUP_DOWNLOAD)
+			.withDefaultValue(true)
+			.withOrder(110));
+		builder.addProperty(ConfigurationProperty.ofBoolean(PROPERTY_USE_VIRTUAL_THREADS)
+			.inGroup(GROUP_DOWNLOAD)
+			.withDefaultValue(false)
+			.withOrder(120));
 		
 		// ----- Conversion
 		builder.addProperty(ConfigurationProperty.ofInteger(PROPERTY_PARALLEL_CONVERSIONS)
@@ -247,6 +289,13 @@ public class ApplicationConfiguration extends Configuration implements Applicati
 		conversionProvider = Conversions.Providers.ofName(stringValue(PROPERTY_CONVERSION_PROVIDER));
 		checkMessagesOnStartup = booleanValue(PROPERTY_CHECK_MESSAGES_ON_STARTUP);
 		reportEmail = stringValue(PROPERTY_REPORT_EMAIL);
+		resumableDownloads = booleanValue(PROPERTY_RESUMABLE_DOWNLOADS);
+		downloadBufferSize = intValue(PROPERTY_DOWNLOAD_BUFFER_SIZE);
+		downloadRateLimit = intValue(PROPERTY_DOWNLOAD_RATE_LIMIT);
+		downloadHostRateLimit = intValue(PROPERTY_DOWNLOAD_HOST_RATE_LIMIT);
+		requestMaxConnectionsPerHost = intValue(PROPERTY_REQUEST_MAX_CONNECTIONS_PER_HOST);
+		requestUseHttp2 = booleanValue(PROPERTY_REQUEST_USE_HTTP2);
+		useVirtualThreads = booleanValue(PROPERTY_USE_VIRTUAL_THREADS);
 	}
 	
 	/** @since 00.02.07 */
@@ -384,6 +433,48 @@ public class ApplicationConfiguration extends Configuration implements Applicati
 		return reportEmail;
 	}
 	
+	/** @since 00.02.09 */
+	@Override
+	public boolean resumableDownloads() {
+		return resumableDownloads;
+	}
+	
+	/** @since 00.02.09 */
+	@Override
+	public int downloadBufferSize() {
+		return downloadBufferSize;
+	}
+	
+	/** @since 00.02.09 */
+	@Override
+	public int downloadRateLimit() {
+		return downloadRateLimit;
+	}
+	
+	/** @since 00.02.09 */
+	@Override
+	public int downloadHostRateLimit() {
+		return downloadHostRateLimit;
+	}
+	
+	/** @since 00.02.09 */
+	@Override
+	public int requestMaxConnectionsPerHost() {
+		return requestMaxConnectionsPerHost;
+	}
+	
+	/** @since 00.02.09 */
+	@Override
+	public boolean requestUseHttp2() {
+		return requestUseHttp2;
+	}
+	
+	/** @since 00.02.09 */
+	@Override
+	public boolean useVirtualThreads() {
+		return useVirtualThreads;
+	}
+	
 	public static final class Builder extends Configuration.Builder implements ApplicationConfigurationAccessor {
 		
 		private final Path path;
@@ -528,6 +619,48 @@ public class ApplicationConfiguration extends Configuration implements Applicati
 			return accessor().stringValue(PROPERTY_REPORT_EMAIL);
 		}
 		
+		/** @since 00.02.09 */
+		@Override
+		public boolean resumableDownloads() {
+			return accessor().booleanValue(PROPERTY_RESUMABLE_DOWNLOADS);
+		}
+		
+		/** @since 00.02.09 */
+		@Override
+		public int downloadBufferSize() {
+			return accessor().intValue(PROPERTY_DOWNLOAD_BUFFER_SIZE);
+		}
+		
+		/** @since 00.02.09 */
+		@Override
+		public int downloadRateLimit() {
+			return accessor().intValue(PROPERTY_DOWNLOAD_RATE_LIMIT);
+		}
+		
+		/** @since 00.02.09 */
+		@Override
+		public int downloadHostRateLimit() {
+			return accessor().intValue(PROPERTY_DOWNLOAD_HOST_RATE_LIMIT);
+		}
+		
+		/** @since 00.02.09 */
+		@Override
+		public int requestMaxConnectionsPerHost() {
+			return accessor().intValue(PROPERTY_REQUEST_MAX_CONNECTIONS_PER_HOST);
+		}
+		
+		/** @since 00.02.09 */
+		@Override
+		public boolean requestUseHttp2() {
+			return accessor().booleanValue(PROPERTY_REQUEST_USE_HTTP2);
+		}
+		
+		/** @since 00.02.09 */
+		@Override
+		public boolean useVirtualThreads() {
+			return accessor().booleanValue(PROPERTY_USE_VIRTUAL_THREADS);
+		}
+		
 		@Override
 		public SSDCollection data() {
 			return accessor().data();
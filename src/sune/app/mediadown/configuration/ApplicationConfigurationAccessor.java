@@ -66,6 +66,20 @@ public interface ApplicationConfigurationAccessor extends ConfigurationLocatable
 	public static final String PROPERTY_CHECK_MESSAGES_ON_STARTUP = "checkMessagesOnStartup";
 	/** @since 00.02.09 */
 	public static final String PROPERTY_REPORT_EMAIL = "report.email";
+	/** @since 00.02.09 */
+	public static final String PROPERTY_RESUMABLE_DOWNLOADS = "resumableDownloads";
+	/** @since 00.02.09 */
+	public static final String PROPERTY_DOWNLOAD_BUFFER_SIZE = "downloadBufferSize";
+	/** @since 00.02.09 */
+	public static final String PROPERTY_DOWNLOAD_RATE_LIMIT = "downloadRateLimit";
+	/** @since 00.02.09 */
+	public static final String PROPERTY_DOWNLOAD_HOST_RATE_LIMIT = "downloadHostRateLimit";
+	/** @since 00.02.09 */
+	public static final String PROPERTY_REQUEST_MAX_CONNECTIONS_PER_HOST = "requestMaxConnectionsPerHost";
+	/** @since 00.02.09 */
+	public static final String PROPERTY_REQUEST_USE_HTTP2 = "requestUseHttp2";
+	/** @since 00.02.09 */
+	public static final String PROPERTY_USE_VIRTUAL_THREADS = "useVirtualThreads";
 	
 	Version version();
 	Language language();
@@ -101,6 +115,20 @@ public interface ApplicationConfigurationAccessor extends ConfigurationLocatable
 	boolean checkMessagesOnStartup();
 	/** @since 00.02.09 */
 	String reportEmail();
+	/** @since 00.02.09 */
+	boolean resumableDownloads();
+	/** @since 00.02.09 */
+	int downloadBufferSize();
+	/** @since 00.02.09 */
+	int downloadRateLimit();
+	/** @since 00.02.09 */
+	int downloadHostRateLimit();
+	/** @since 00.02.09 */
+	int requestMaxConnectionsPerHost();
+	/** @since 00.02.09 */
+	boolean requestUseHttp2();
+	/** @since 00.02.09 */
+	boolean useVirtualThreads();
 	
 	SSDCollection data();
 	
@@ -0,0 +1,330 @@
+package sune.app.mediadown.conversion;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+import sune.app.mediadown.concurrent.VarLoader;
+
+/**
+ * Admits conversions, and other work done by a conversion program, against budgets
+ * of CPU and disk, rather than just counting them. A conversion that only copies
+ * the streams, e.g. a merge, is bound by the disk, whereas a conversion that encodes
+ * the streams is bound by the CPU. Therefore an encoding can run alongside a merge,
+ * but too many merges at once do not compete for the same disk.
+ * <br><br>
+ * Each piece of work holds a {@link Lease} while it runs. Waiting leases are admitted
+ * in the order of their priority and then in the order of their creation. A waiting
+ * lease reserves the resources it needs, so that it is not starved by leases of lower
+ * priority, but leases that need other resources can still be admitted. If a lease
+ * cannot be admitted, running leases of lower priority are suspended to make room
+ * for it, if they can be suspended, and they are resumed as soon as there is room again.
+ * @since 00.02.09
+ */
+public final class ConversionScheduler {
+	
+	public static final int PRIORITY_NORMAL = 0;
+	
+	private static final VarLoader<ConversionScheduler> instance = VarLoader.of(ConversionScheduler::new);
+	
+	/** Number of I/O-bound leases that a single disk handles without seeking back and forth. */
+	private static final int DEFAULT_DISK_CAPACITY = 2;
+	
+	private static final Comparator<Lease> ORDER = Comparator
+		.comparingInt((Lease l) -> -l.priority)
+		.thenComparingLong((l) -> l.sequence);
+	private static final Comparator<Lease> ORDER_VICTIMS = Comparator
+		.comparingInt((Lease l) -> l.priority)
+		.thenComparingLong((l) -> -l.sequence);
+	
+	private final int capacityCpu;
+	private final int capacityDisk;
+	private final List<Lease> waiting = new ArrayList<>();
+	private final List<Lease> running = new ArrayList<>();
+	private int usedCpu;
+	private int usedDisk;
+	private long nextSequence;
+	
+	private ConversionScheduler() {
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_DISK_CAPACITY);
+	}
+	
+	/**
+	 * Creates a new scheduler with the given budgets.
+	 * @param capacityCpu The number of CPU cores
+	 * @param capacityDisk The number of I/O-bound leases that may run at once
+	 */
+	public ConversionScheduler(int capacityCpu, int capacityDisk) {
+		if(capacityCpu <= 0 || capacityDisk <= 0) {
+			throw new IllegalArgumentException("Capacity must be > 0");
+		}
+		
+		this.capacityCpu = capacityCpu;
+		this.capacityDisk = capacityDisk;
+	}
+	
+	public static final ConversionScheduler instance() {
+		return instance.value();
+	}
+	
+	private final int cpuOf(Workload workload) {
+		// An encoding uses multiple threads, let at most two of them share the CPU
+		return workload == Workload.CPU_BOUND ? Math.max(1, capacityCpu / 2) : 0;
+	}
+	
+	private final int diskOf(Workload workload) {
+		return workload == Workload.IO_BOUND ? 1 : 0;
+	}
+	
+	private final void enqueue(Lease lease) {
+		int index = 0;
+		for(int l = waiting.size(); index < l && ORDER.compare(waiting.get(index), lease) <= 0; ++index);
+		waiting.add(index, lease);
+	}
+	
+	private final void grant(Lease lease) {
+		usedCpu += lease.cpu;
+		usedDisk += lease.disk;
+		running.add(lease);
+		lease.granted = true;
+		
+		if(lease.suspended) {
+			lease.suspended = false;
+			
+			try {
+				lease.preemptible.resume();
+			} catch(Exception ex) {
+				// Ignore, the owner will notice the error itself
+			}
+		}
+	}
+	
+	private final void suspend(Lease lease) {
+		running.remove(lease);
+		usedCpu -= lease.cpu;
+		usedDisk -= lease.disk;
+		lease.granted = false;
+		lease.suspended = true;
+		
+		try {
+			lease.preemptible.suspend();
+		} catch(Exception ex) {
+			// Ignore, the owner will notice the error itself
+		}
+		
+		enqueue(lease);
+	}
+	
+	/** Suspends running leases of lower priority, if that allows the given lease to be admitted. */
+	private final boolean preempt(Lease lease, int freeCpu, int freeDisk) {
+		boolean needCpu = lease.cpu > freeCpu;
+		boolean needDisk = lease.disk > freeDisk;
+		List<Lease> victims = new ArrayList<>();
+		
+		for(Lease other : running) {
+			if(other.preemptible != null
+					&& other.priority < lease.priority
+					&& (needCpu && other.cpu > 0 || needDisk && other.disk > 0)) {
+				victims.add(other);
+			}
+		}
+		
+		victims.sort(ORDER_VICTIMS);
+		int count = 0;
+		
+		for(Lease victim : victims) {
+			if(lease.cpu <= freeCpu && lease.disk <= freeDisk) {
+				break;
+			}
+			
+			freeCpu += victim.cpu;
+			freeDisk += victim.disk;
+			++count;
+		}
+		
+		if(lease.cpu > freeCpu || lease.disk > freeDisk) {
+			return false; // Suspending the leases would not help
+		}
+		
+		for(int i = 0; i < count; ++i) {
+			suspend(victims.get(i));
+		}
+		
+		return true;
+	}
+	
+	private final void dispatch() {
+		boolean changed = false;
+		
+		for(boolean repeat = true; repeat;) {
+			repeat = false;
+			int freeCpu = capacityCpu - usedCpu;
+			int freeDisk = capacityDisk - usedDisk;
+			
+			for(Iterator<Lease> it = waiting.iterator(); it.hasNext();) {
+				Lease lease = it.next();
+				
+				if(lease.cpu <= freeCpu && lease.disk <= freeDisk) {
+					it.remove();
+					grant(lease);
+					freeCpu -= lease.cpu;
+					freeDisk -= lease.disk;
+					changed = true;
+					continue;
+				}
+				
+				if(preempt(lease, freeCpu, freeDisk)) {
+					// The waiting leases were changed, start over
+					repeat = changed = true;
+					break;
+				}
+				
+				// Reserve the resources, so that the lease is not starved by the following ones
+				freeCpu = Math.max(0, freeCpu - lease.cpu);
+				freeDisk = Math.max(0, freeDisk - lease.disk);
+			}
+		}
+		
+		if(changed) {
+			notifyAll();
+		}
+	}
+	
+	/**
+	 * Creates a new lease for the given workload. The lease must be closed when the work
+	 * is done, or when it is no longer needed.
+	 * @param workload The kind of the work
+	 * @param priority The priority, higher values are admitted first
+	 * @param preemptible The way to suspend and resume the work, or {@code null},
+	 * if the work cannot be suspended
+	 * @return The lease
+	 */
+	public Lease lease(Workload workload, int priority, Preemptible preemptible) {
+		Objects.requireNonNull(workload);
+		Lease lease = new Lease(cpuOf(workload), diskOf(workload), priority, preemptible);
+		
+		synchronized(this) {
+			lease.sequence = nextSequence++;
+			enqueue(lease);
+			dispatch();
+		}
+		
+		return lease;
+	}
+	
+	public enum Workload {
+		
+		/** The work mostly reads and writes the data, e.g. copies the streams. */
+		IO_BOUND,
+		/** The work mostly computes, e.g. encodes the streams. */
+		CPU_BOUND;
+	}
+	
+	public static interface Preemptible {
+		
+		void suspend() throws Exception;
+		void resume() throws Exception;
+	}
+	
+	/**
+	 * Work whose lease follows the priority of the queued task it is run by, so that a task
+	 * moved to the front of its queue is also admitted first and may preempt other work.
+	 */
+	public static interface Prioritizable {
+		
+		/** @param priority The new priority, higher values are admitted first */
+		void priority(int priority);
+	}
+	
+	public final class Lease implements AutoCloseable {
+		
+		private final int cpu;
+		private final int disk;
+		private final Preemptible preemptible;
+		private int priority;
+		private long sequence;
+		private boolean granted;
+		private boolean suspended;
+		private boolean closed;
+		
+		private Lease(int cpu, int disk, int priority, Preemptible preemptible) {
+			this.cpu = cpu;
+			this.disk = disk;
+			this.priority = priority;
+			this.preemptible = preemptible;
+		}
+		
+		/**
+		 * Waits until the lease is admitted. A lease that was suspended is not admitted
+		 * until it is resumed by the scheduler.
+		 * @return {@code true}, if the lease was admitted, or {@code false}, if it was closed.
+		 * @throws InterruptedException If interrupted while waiting
+		 */
+		public boolean await() throws InterruptedException {
+			synchronized(ConversionScheduler.this) {
+				while(!granted && !closed) {
+					ConversionScheduler.this.wait();
+				}
+				
+				return !closed;
+			}
+		}
+		
+		/**
+		 * Changes the priority of the lease, e.g. when the user moves the work
+		 * to the front of the queue.
+		 * @param priority The new priority
+		 */
+		public void priority(int priority) {
+			synchronized(ConversionScheduler.this) {
+				if(closed || this.priority == priority) {
+					return;
+				}
+				
+				this.priority = priority;
+				
+				if(waiting.remove(this)) {
+					enqueue(this);
+				}
+				
+				dispatch();
+			}
+		}
+		
+		@Override
+		public void close() {
+			synchronized(ConversionScheduler.this) {
+				if(closed) {
+					return;
+				}
+				
+				closed = true;
+				
+				if(running.remove(this)) {
+					usedCpu -= cpu;
+					usedDisk -= disk;
+				} else {
+					waiting.remove(this);
+				}
+				
+				dispatch();
+				// Wake up the owner, if it still waits
+				ConversionScheduler.this.notifyAll();
+			}
+		}
+		
+		public int priority() {
+			synchronized(ConversionScheduler.this) {
+				return priority;
+			}
+		}
+		
+		public boolean isSuspended() {
+			synchronized(ConversionScheduler.this) {
+				return suspended;
+			}
+		}
+	}
+}
@@ -1,17 +1,26 @@
 package sune.app.mediadown.download;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 
 import sune.app.mediadown.MediaDownloader;
+import sune.app.mediadown.TaskStates;
 import sune.app.mediadown.concurrent.CounterLock;
+import sune.app.mediadown.concurrent.SyncObject;
 import sune.app.mediadown.concurrent.Threads;
 import sune.app.mediadown.event.DownloadEvent;
 import sune.app.mediadown.event.Event;
@@ -19,6 +28,7 @@ import sune.app.mediadown.event.EventRegistry;
 import sune.app.mediadown.event.Listener;
 import sune.app.mediadown.event.tracker.DownloadTracker;
 import sune.app.mediadown.event.tracker.TrackerManager;
+import sune.app.mediadown.exception.RejectedResponseException;
 import sune.app.mediadown.media.MediaConstants;
 import sune.app.mediadown.net.Web;
 import sune.app.mediadown.net.Web.Request;
@@ -31,6 +41,10 @@ import sune.app.mediadown.util.Utils.Ignore;
 public class AcceleratedFileDownloader implements InternalDownloader {
 	
 	private static final Range<Long> RANGE_UNSET = new Range<>(-1L, -1L);
+	/** @since 00.02.09 */
+	private static final long MIN_STEAL_SIZE = 1L << 20; // 1 MiB
+	/** @since 00.02.09 */
+	private static final long SAMPLE_INTERVAL_MS = 1000L;
 	
 	private final TrackerManager trackerManager;
 	private final int count;
@@ -38,6 +52,10 @@ public class AcceleratedFileDownloader implements InternalDownloader {
 	private final EventRegistry<DownloadEvent> eventRegistry;
 	
 	private final AtomicBoolean flagBegin = new AtomicBoolean();
+	/** @since 00.02.09 */
+	private final AtomicBoolean flagEnd = new AtomicBoolean();
+	/** @since 00.02.09 */
+	private final SyncObject lockPause = new SyncObject();
 	
 	/** @since 00.02.09 */
 	private final AtomicLong bytes = new AtomicLong();
@@ -50,8 +68,16 @@ public class AcceleratedFileDownloader implements InternalDownloader {
 	
 	private volatile Response response;
 	private volatile long totalBytes;
+	/** @since 00.02.09 */
+	private volatile boolean paused;
+	/** @since 00.02.09 */
+	private volatile boolean stopped;
+	/** @since 00.02.09 */
+	private volatile InputStreamFactory responseStreamFactory;
 	
 	private Exception exception;
+	/** @since 00.02.09 */
+	private volatile ChunkScheduler scheduler;
 	
 	public AcceleratedFileDownloader(TrackerManager manager) {
 		this(manager, acceleratedDownloaderCount());
@@ -60,7 +86,7 @@ public class AcceleratedFileDownloader implements InternalDownloader {
 	public AcceleratedFileDownloader(TrackerManager manager, int count) {
 		this.trackerManager = Objects.requireNonNull(manager);
 		this.count          = checkCount(count);
-		this.downloaders    = new ArrayList<>(this.count);
+		this.downloaders    = new CopyOnWriteArrayList<>();
 		this.eventRegistry  = new EventRegistry<>();
 	}
 	
@@ -148,11 +174,29 @@ public class AcceleratedFileDownloader implements InternalDownloader {
 		if(!checkState((d) -> d.isDone() || d.isStopped()))
 			return;
 		
+		// A finished chunk does not mean that the whole file is finished, since a new
+		// downloader may be just about to start downloading a stolen chunk.
+		if(!stopped && !isFinished())
+			return;
+		
+		// Only the first end notification is propagated
+		if(!flagEnd.compareAndSet(false, true))
+			return;
+		
 		// Notify the event registry
 		eventRegistry.call(DownloadEvent.END, this);
 	}
 	
 	private final void onError(DownloadContext context) {
+		// Throttled chunks are downloaded again later, see downloadChunk
+		if(context instanceof ChunkFileDownloader
+				&& ((ChunkFileDownloader) context).isThrottled()) {
+			return;
+		}
+		
+		// Do not start downloading any other chunk
+		stopped = true;
+		lockPause.unlock();
 		// Stop the downloaders
 		Ignore.callVoid(() -> doAction(InternalDownloader::stop));
 		// Remember the exception
@@ -165,6 +209,248 @@ public class AcceleratedFileDownloader implements InternalDownloader {
 		return new FileDownloader(trackerManager);
 	}
 	
+	/** @since 00.02.09 */
+	private final InternalDownloader addDownloader(InternalDownloader downloader) {
+		downloader.addEventListener(DownloadEvent.BEGIN,  this::onBegin);
+		downloader.addEventListener(DownloadEvent.UPDATE, this::onUpdate);
+		downloader.addEventListener(DownloadEvent.END,    this::onEnd);
+		downloader.addEventListener(DownloadEvent.ERROR,  this::onError);
+		
+		InputStreamFactory factory;
+		if((factory = responseStreamFactory) != null) {
+			downloader.setResponseStreamFactory(factory);
+		}
+		
+		downloaders.add(downloader);
+		return downloader;
+	}
+	
+	/** @since 00.02.09 */
+	private final void addResult(InternalDownloader downloader, long downloadedBytes) {
+		long writtenBytes = downloader.writtenBytes();
+		maybeSetResponse(downloader.response());
+		
+		if(downloadedBytes > 0L) {
+			bytes.getAndAdd(downloadedBytes);
+		}
+		
+		if(writtenBytes > 0L) {
+			written.getAndAdd(writtenBytes);
+		}
+	}
+	
+	/** @since 00.02.09 */
+	private final void downloadChunks(int numOfThreads, Range<Long> rangeRequest, Range<Long> rangeOutput,
+			long size, DownloadJournal journal) throws Exception {
+		ChunkScheduler scheduler = new ChunkScheduler(rangeRequest, rangeOutput);
+		List<Range<Long>> ranges = List.of(rangeOutput);
+		
+		// Skip the ranges that were already downloaded in some previous run
+		if(journal != null) {
+			ranges = journal.missing(rangeOutput.from(), rangeOutput.to());
+		}
+		
+		long remaining = ranges.stream().mapToLong((r) -> r.to() - r.from()).sum();
+		long step = Math.max(1L, (remaining + numOfThreads - 1L) / numOfThreads);
+		
+		for(Range<Long> range : ranges) {
+			long from = scheduler.requestOffset(range.from());
+			long to = scheduler.requestOffset(range.to());
+			
+			for(long reqFrom = from, reqTo; reqFrom < to; reqFrom = reqTo) {
+				reqTo = Math.min(reqFrom + step, to);
+				scheduler.add(reqFrom, reqTo);
+			}
+		}
+		
+		this.scheduler = scheduler;
+		
+		if(remaining <= 0L) {
+			// Everything is already downloaded, just notify the listeners
+			onBegin(this);
+			onEnd(this);
+			return;
+		}
+		
+		CounterLock lock = new CounterLock(0);
+		ExecutorService executor = Threads.Pools.newFixedIO(numOfThreads);
+		DownloadTracker tracker = new DownloadTracker(size - remaining, size);
+		DownloadConfiguration configuration = this.configuration;
+		ConnectionController controller = new ConnectionController(numOfThreads, size - remaining);
+		
+		Runnable worker = () -> {
+			boolean retired = false;
+			
+			try {
+				// Download the queued chunks first and then keep stealing the unfinished
+				// tails of other chunks until there is nothing worth stealing. Do not retire
+				// while there are queued chunks, they could be left with no worker at all.
+				for(Chunk chunk;
+						!(retired = !scheduler.hasQueued() && controller.tryRetire())
+							&& (chunk = nextChunk(scheduler)) != null;) {
+					if(downloadChunk(chunk, size, tracker, journal, configuration)) {
+						controller.resetThrottled();
+					} else {
+						// The server asked to slow down, the chunk was queued again
+						controller.throttled();
+					}
+				}
+			} catch(Exception ex) {
+				exception = ex;
+				onError(this);
+			} finally {
+				if(!retired) {
+					controller.retired();
+				}
+				
+				lock.decrement();
+			}
+		};
+		
+		// Wait for all the downloaders to finish downloading, meanwhile adjust the number
+		// of connections according to the measured throughput.
+		for(boolean done = false; !done;) {
+			for(int i = controller.connectionsToAdd(scheduler.hasWork(MIN_STEAL_SIZE)); i > 0; --i) {
+				lock.increment();
+				executor.submit(worker);
+			}
+			
+			if(lock.await(SAMPLE_INTERVAL_MS)) {
+				// All the workers exited, start new ones if some chunks were left in the queue
+				done = stopped || exception != null || !scheduler.hasQueued();
+			} else {
+				controller.sample(tracker.current(), paused);
+			}
+		}
+		
+		lock.await();
+		
+		// Gracefully shutdown the executor and wait, even though at this point all threads should exited
+		executor.shutdown();
+		Ignore.call(() -> executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS));
+		
+		// Never report an incomplete file as successfully downloaded
+		if(!stopped && exception == null && !scheduler.isFinished()) {
+			exception = new IOException("Download ended with unfinished chunks");
+			onError(this);
+		}
+	}
+	
+	/** @since 00.02.09 */
+	private final void closeJournal(DownloadJournal journal, boolean ownsJournal) throws IOException {
+		if(journal == null) {
+			return;
+		}
+		
+		// The downloaded data must be persisted before the journal
+		journal.syncNow(destination.channel());
+		
+		if(!ownsJournal) {
+			return; // Managed by the caller
+		}
+		
+		if(!stopped && exception == null && isFinished()) {
+			journal.delete(); // The file is complete, nothing to resume
+		} else {
+			journal.close();
+		}
+	}
+	
+	/** @since 00.02.09 */
+	private final boolean isResumable(Destination destination) {
+		// The already downloaded data would be lost when the file is truncated
+		if(destination instanceof Destination.OfPath
+				&& List.of(((Destination.OfPath) destination).options())
+				       .contains(StandardOpenOption.TRUNCATE_EXISTING)) {
+			return false;
+		}
+		
+		return destination.path() != null
+					&& MediaDownloader.configuration().resumableDownloads();
+	}
+	
+	/** @since 00.02.09 */
+	private static final String validator(Request request, Path output) {
+		if(!DownloadJournal.exists(output)) {
+			return null; // Taken from the first response, nothing to compare it with yet
+		}
+		
+		// Without a validator a changed remote file of the same size cannot be detected
+		return Ignore.call(() -> DownloadJournal.validator(Web.peek(request)));
+	}
+	
+	/** @since 00.02.09 */
+	private final boolean isFinished() {
+		ChunkScheduler scheduler;
+		return (scheduler = this.scheduler) == null || scheduler.isFinished();
+	}
+	
+	/** @since 00.02.09 */
+	private final Chunk nextChunk(ChunkScheduler scheduler) {
+		// Do not start any new downloader while paused
+		while(paused && !stopped) {
+			lockPause.await();
+		}
+		
+		if(stopped) {
+			return null;
+		}
+		
+		Chunk chunk;
+		if((chunk = scheduler.poll()) != null) {
+			return chunk;
+		}
+		
+		return scheduler.steal(MIN_STEAL_SIZE);
+	}
+	
+	/**
+	 * Downloads the given chunk and returns {@code false}, if the server refused to serve
+	 * the request because of too many requests. In such case the chunk is queued again.
+	 * @since 00.02.09
+	 */
+	private final boolean downloadChunk(Chunk chunk, long size, DownloadTracker tracker, DownloadJournal journal,
+			DownloadConfiguration configuration) throws Exception {
+		if(chunk.remaining() <= 0L) {
+			return true; // Nothing to download
+		}
+		
+		ChunkFileDownloader downloader = new ChunkFileDownloader(trackerManager, chunk);
+		addDownloader(downloader);
+		downloader.setTracker(tracker);
+		
+		Predicate<Response> filter = configuration.responseFilter();
+		DownloadConfiguration downloadConfiguration = DownloadConfiguration.builder()
+			.rangeOutput(chunk.rangeOutput())
+			.rangeRequest(chunk.rangeRequest())
+			.totalBytes(size)
+			.responseFilter((r) -> !isThrottled(r) && (filter == null || filter.test(r)))
+			.journal(journal)
+			.build();
+		
+		try {
+			long downloadedBytes = downloader.start(request, destination, downloadConfiguration);
+			addResult(downloader, downloadedBytes);
+		} catch(RejectedResponseException ex) {
+			if(!downloader.isThrottled()) {
+				throw ex; // Propagate
+			}
+			
+			chunk.scheduler.requeue(chunk);
+			return false;
+		}
+		
+		return true;
+	}
+	
+	/** @since 00.02.09 */
+	private static final boolean isThrottled(Response response) {
+		int statusCode;
+		return response != null
+					&& ((statusCode = response.statusCode()) == 429 // Too Many Requests
+							|| statusCode == 503); // Service Unavailable
+	}
+	
 	private final void maybeSetResponse(Response responseToSet) {
 		// Only set the response once
 		if(response == null) {
@@ -178,8 +464,15 @@ public class AcceleratedFileDownloader implements InternalDownloader {
 	
 	@Override
 	public long start(Request request, Destination destination, DownloadConfiguration configuration) throws Exception {
+		this.request = request;
+		this.destination = destination;
 		this.configuration = configuration;
 		flagBegin.set(false);
+		flagEnd.set(false);
+		paused = false;
+		stopped = false;
+		scheduler = null;
+		downloaders.clear();
 		bytes.set(0L);
 		written.set(0L);
 		
@@ -203,101 +496,33 @@ public class AcceleratedFileDownloader implements InternalDownloader {
 			rangeOutput = checkRange(rangeOutput, rangeRequest);
 		}
 		
-		for(int i = 0; i < numOfThreads; ++i) {
-			InternalDownloader downloader = createDownloader();
-			
-			downloader.addEventListener(DownloadEvent.BEGIN,  this::onBegin);
-			downloader.addEventListener(DownloadEvent.UPDATE, this::onUpdate);
-			downloader.addEventListener(DownloadEvent.END,    this::onEnd);
-			downloader.addEventListener(DownloadEvent.ERROR,  this::onError);
-			
-			downloaders.add(downloader);
-		}
-		
 		long size = rangeRequest == RANGE_UNSET
 			? MediaConstants.UNKNOWN_SIZE // Ensure unknown size when unset
 			: rangeRequest.to() - rangeRequest.from();
 		
-		if(numOfThreads == 1) {
-			InternalDownloader downloader = downloaders.get(0);
+		// The journal is only usable when the size of the file is known
+		DownloadJournal journal = totalBytes > 0L ? configuration.journal() : null;
+		boolean ownsJournal = false;
+		
+		// Remember the downloaded ranges, so that an interrupted download can be resumed
+		if(journal == null && totalBytes > 0L && isResumable(destination)) {
+			Path output = destination.path();
+			journal = DownloadJournal.open(output, totalBytes, validator(request, output));
+			ownsJournal = true;
+		}
+		
+		if(numOfThreads == 1 && journal == null) {
+			InternalDownloader downloader = addDownloader(createDownloader());
 			DownloadConfiguration downloadConfiguration
 				= DownloadConfiguration.ofRanges(rangeOutput, rangeRequest, size);
 			long downloadedBytes = downloader.start(request, destination, downloadConfiguration);
-			long writtenBytes = downloader.writtenBytes();
-			maybeSetResponse(downloader.response());
-			
-			if(downloadedBytes > 0L) {
-				bytes.getAndAdd(downloadedBytes);
-			}
-			
-			if(writtenBytes > 0L) {
-				written.getAndAdd(writtenBytes);
-			}
+			addResult(downloader, downloadedBytes);
 		} else {
-			CounterLock lock = new CounterLock(numOfThreads);
-			ExecutorService executor = Threads.Pools.newFixed(numOfThreads);
-			DownloadTracker tracker = new DownloadTracker(size);
-			long step = (size + numOfThreads - 1L) / numOfThreads;
-			
-			long reqFrom = rangeRequest.from();
-			long reqTo   = reqFrom + step;
-			long outFrom = rangeOutput.from();
-			long outTo   = outFrom + step;
-			
-			for(int i = 0; i < numOfThreads; ++i) {
-				InternalDownloader downloader = downloaders.get(i);
-				downloader.setTracker(tracker);
-				
-				Range<Long> rangeReq = new Range<>(reqFrom, reqTo);
-				Range<Long> rangeOut = new Range<>(outFrom, outTo);
-				executor.submit(() -> {
-					try {
-						DownloadConfiguration downloadConfiguration
-							= DownloadConfiguration.ofRanges(rangeOut, rangeReq, size);
-						long downloadedBytes = downloader.start(request, destination, downloadConfiguration);
-						long writtenBytes = downloader.writtenBytes();
-						maybeSetResponse(downloader.response());
-						
-						if(downloadedBytes > 0L) {
-							bytes.getAndAdd(downloadedBytes);
-						}
-						
-						if(writtenBytes > 0L) {
-							written.getAndAdd(writtenBytes);
-						}
-					} catch(Exception ex) {
-						exception = ex;
-						onError(this);
-					} finally {
-						lock.decrement();
-					}
-				});
-				
-				reqFrom  = reqTo;
-				reqTo   += step;
-				outFrom  = outTo;
-				outTo   += step;
-				
-				// Correct the end if it was exceeded
-				if(reqTo > rangeRequest.to()) {
-					reqTo = rangeRequest.to();
-					
-					long lenReq = reqTo - reqFrom;
-					long lenOut = outTo - outFrom;
-					
-					// Correct the lengths if they are not equal
-					if(lenOut != lenReq) {
-						outTo = outFrom + lenReq;
-					}
-				}
+			try {
+				downloadChunks(numOfThreads, rangeRequest, rangeOutput, size, journal);
+			} finally {
+				closeJournal(journal, ownsJournal);
 			}
-			
-			// Wait for all the downloaders to finish downloading
-			lock.await();
-			
-			// Gracefully shutdown the executor and wait, even though at this point all threads should exited
-			executor.shutdown();
-			Ignore.call(() -> executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS));
 		}
 		
 		return bytes.get();
@@ -305,16 +530,21 @@ public class AcceleratedFileDownloader implements InternalDownloader {
 	
 	@Override
 	public void pause() throws Exception {
+		paused = true;
 		doAction(InternalDownloader::pause);
 	}
 	
 	@Override
 	public void resume() throws Exception {
+		paused = false;
+		lockPause.unlock();
 		doAction(InternalDownloader::resume);
 	}
 	
 	@Override
 	public void stop() throws Exception {
+		stopped = true;
+		lockPause.unlock();
 		doAction(InternalDownloader::stop);
 	}
 	
@@ -330,6 +560,7 @@ public class AcceleratedFileDownloader implements InternalDownloader {
 	
 	@Override
 	public void setResponseStreamFactory(InputStreamFactory factory) {
+		responseStreamFactory = factory;
 		Ignore.callVoid(() -> doAction((downloader) -> downloader.setResponseStreamFactory(factory)));
 	}
 	
@@ -426,4 +657,395 @@ public class AcceleratedFileDownloader implements InternalDownloader {
 	public Exception exception() {
 		return exception;
 	}
+	
+	/**
+	 * A part of the requested range that is downloaded by a single downloader.
+	 * The end of the chunk may be moved closer to its current position when another,
+	 * otherwise idle, downloader steals its unfinished tail.
+	 * @since 00.02.09
+	 */
+	private static final class Chunk {
+		
+		private final ChunkScheduler scheduler;
+		private final long from;
+		private long position;
+		private long end;
+		private long startTime;
+		
+		private Chunk(ChunkScheduler scheduler, long from, long to) {
+			this.scheduler = scheduler;
+			this.from = from;
+			this.position = from;
+			this.end = to;
+		}
+		
+		/**
+		 * Claims at most the given number of bytes at the current position of the chunk
+		 * and returns the number of bytes that were actually claimed. The returned value
+		 * is less than the requested one only if the end of the chunk was reached.
+		 */
+		public synchronized int claim(int count) {
+			if(startTime == 0L) {
+				startTime = System.nanoTime();
+			}
+			
+			int claimed = (int) Math.max(0L, Math.min(count, end - position));
+			position += claimed;
+			return claimed;
+		}
+		
+		/**
+		 * Moves the end of this chunk to the middle of its remaining part and returns
+		 * the tail as a new range, or {@code null}, if the remaining part is too small.
+		 */
+		public synchronized long[] split(long minSize) {
+			long remaining = end - position;
+			
+			if(remaining < 2L * minSize) {
+				return null;
+			}
+			
+			long mid = position + remaining / 2L;
+			long to = end;
+			end = mid;
+			return new long[] { mid, to };
+		}
+		
+		/**
+		 * Estimated time, in nanoseconds, needed to download the rest of the chunk.
+		 * Chunks that have not started yet are estimated using the given average time
+		 * needed to download a single byte, if it is known.
+		 */
+		public synchronized double estimatedTime(long now, double byteTime) {
+			long remaining = end - position;
+			
+			if(remaining <= 0L) {
+				return 0.0;
+			}
+			
+			if(startTime == 0L) {
+				return byteTime > 0.0 ? remaining * byteTime : Double.MAX_VALUE;
+			}
+			
+			long elapsed = Math.max(1L, now - startTime);
+			long done = Math.max(1L, position - from);
+			return remaining * ((double) elapsed / done);
+		}
+		
+		/** Time, in nanoseconds, since the chunk started, or {@code 0L}, if it has not started yet. */
+		public synchronized long elapsed(long now) {
+			return startTime == 0L ? 0L : Math.max(1L, now - startTime);
+		}
+		
+		public synchronized long downloaded() {
+			return position - from;
+		}
+		
+		public synchronized long remaining() {
+			return Math.max(0L, end - position);
+		}
+		
+		public synchronized Range<Long> rangeRequest() {
+			return new Range<>(position, end);
+		}
+		
+		public synchronized Range<Long> rangeOutput() {
+			long offset = scheduler.outputOffset(position);
+			return new Range<>(offset, offset + (end - position));
+		}
+	}
+	
+	/**
+	 * Keeps track of all chunks of a single file and splits the unfinished ones on demand,
+	 * so that no downloader is idle while there is still a lot of data left to download.
+	 * @since 00.02.09
+	 */
+	private static final class ChunkScheduler {
+		
+		private final List<Chunk> chunks = new CopyOnWriteArrayList<>();
+		private final Queue<Chunk> queue = new ConcurrentLinkedQueue<>();
+		private final long requestFrom;
+		private final long outputFrom;
+		
+		public ChunkScheduler(Range<Long> rangeRequest, Range<Long> rangeOutput) {
+			this.requestFrom = rangeRequest.from();
+			this.outputFrom = rangeOutput.from();
+		}
+		
+		private Chunk newChunk(long from, long to) {
+			Chunk chunk = new Chunk(this, from, to);
+			chunks.add(chunk);
+			return chunk;
+		}
+		
+		/** Adds a new chunk that is waiting to be downloaded. */
+		public void add(long from, long to) {
+			queue.add(newChunk(from, to));
+		}
+		
+		/** Queues the given chunk again, e.g. when its download was refused by the server. */
+		public void requeue(Chunk chunk) {
+			queue.add(chunk);
+		}
+		
+		/** Returns a chunk that was not downloaded by any downloader yet, if any. */
+		public Chunk poll() {
+			return queue.poll();
+		}
+		
+		/** Average time, in nanoseconds, needed to download a single byte, or {@code 0.0}, if unknown. */
+		private double averageByteTime(long now) {
+			long elapsed = 0L;
+			long downloaded = 0L;
+			
+			for(Chunk chunk : chunks) {
+				long time;
+				if((time = chunk.elapsed(now)) > 0L) {
+					elapsed += time;
+					downloaded += chunk.downloaded();
+				}
+			}
+			
+			return downloaded > 0L ? (double) elapsed / downloaded : 0.0;
+		}
+		
+		/**
+		 * Steals the unfinished tail of the chunk that is estimated to finish last,
+		 * or returns {@code null}, if there is no chunk worth splitting.
+		 */
+		public synchronized Chunk steal(long minSize) {
+			long now = System.nanoTime();
+			double byteTime = averageByteTime(now);
+			
+			// Steal from the slowest chunk first, not from the largest one
+			Chunk victim = null;
+			double victimTime = 0.0;
+			
+			for(Chunk chunk : chunks) {
+				double time = chunk.estimatedTime(now, byteTime);
+				
+				if(time > victimTime && chunk.remaining() >= 2L * minSize) {
+					victim = chunk;
+					victimTime = time;
+				}
+			}
+			
+			long[] tail;
+			if(victim == null || (tail = victim.split(minSize)) == null) {
+				return null;
+			}
+			
+			return newChunk(tail[0], tail[1]);
+		}
+		
+		public long outputOffset(long requestOffset) {
+			return outputFrom + (requestOffset - requestFrom);
+		}
+		
+		public long requestOffset(long outputOffset) {
+			return requestFrom + (outputOffset - outputFrom);
+		}
+		
+		public boolean isFinished() {
+			return chunks.stream().allMatch((c) -> c.remaining() <= 0L);
+		}
+		
+		/** Returns whether there is a chunk waiting to be downloaded. */
+		public boolean hasQueued() {
+			return !queue.isEmpty();
+		}
+		
+		/** Returns whether there is a queued chunk or a chunk that can be stolen from. */
+		public boolean hasWork(long minSize) {
+			return !queue.isEmpty() || chunks.stream().anyMatch((c) -> c.remaining() >= 2L * minSize);
+		}
+	}
+	
+	/**
+	 * File downloader that writes only the bytes that still belong to its chunk and
+	 * finishes as soon as the end of the chunk is reached, even if the end was moved.
+	 * @since 00.02.09
+	 */
+	private static final class ChunkFileDownloader extends FileDownloader {
+		
+		private final Chunk chunk;
+		private int discarded;
+		
+		public ChunkFileDownloader(TrackerManager trackerManager, Chunk chunk) {
+			super(trackerManager);
+			this.chunk = Objects.requireNonNull(chunk);
+		}
+		
+		@Override
+		protected int write(ByteBuffer buffer) throws IOException {
+			int count = buffer.remaining();
+			int claimed = chunk.claim(count);
+			
+			// The tail of the chunk was stolen, drop the bytes that do not belong to it
+			if(claimed < count) {
+				buffer.limit(buffer.position() + claimed);
+				discarded = count - claimed;
+			}
+			
+			int num = claimed > 0 ? super.write(buffer) : 0;
+			
+			if(chunk.remaining() <= 0L) {
+				// Stop the download loop, the rest is downloaded by another downloader
+				state.setAndUnset(TaskStates.DONE, TaskStates.RUNNING);
+			}
+			
+			return num;
+		}
+		
+		@Override
+		protected ReadableByteChannel doRequest(Range<Long> range) throws Exception {
+			ReadableByteChannel channel = super.doRequest(range);
+			
+			// A new journal does not know the validator of the remote file yet
+			DownloadJournal journal;
+			if((journal = configuration.journal()) != null) {
+				journal.validator(DownloadJournal.validator(response));
+			}
+			
+			return channel;
+		}
+		
+		@Override
+		protected void update(long readBytes, long writtenBytes) {
+			// Do not count the discarded bytes, they are counted by the other downloader
+			super.update(Math.max(0L, readBytes - discarded), writtenBytes);
+			discarded = 0;
+		}
+		
+		public boolean isThrottled() {
+			return exception() instanceof RejectedResponseException
+						&& AcceleratedFileDownloader.isThrottled(response());
+		}
+	}
+	
+	/**
+	 * Adjusts the number of connections of a single download. It starts with a few
+	 * connections and adds more while the throughput keeps increasing. When the throughput
+	 * stops increasing or the server refuses the requests, the last connection is removed
+	 * and no more connections are added for a while. Then, or as soon as the throughput
+	 * drops, the controller probes again, since the conditions may have changed.
+	 * @since 00.02.09
+	 */
+	private static final class ConnectionController {
+		
+		private static final int INITIAL_CONNECTIONS = 2;
+		/** The minimal relative increase of the throughput to add another connection. */
+		private static final double MIN_GAIN = 0.1;
+		/** The number of samples after which a saturated controller probes again. */
+		private static final int REPROBE_SAMPLES = 10;
+		private static final int MAX_THROTTLED_ATTEMPTS = 8;
+		private static final long THROTTLED_WAIT_MS = 1000L;
+		private static final long MAX_THROTTLED_WAIT_MS = 10000L;
+		
+		private final int maxConnections;
+		private final AtomicInteger active = new AtomicInteger();
+		private final AtomicInteger throttledAttempts = new AtomicInteger();
+		private volatile int target;
+		private volatile boolean saturated;
+		
+		private long lastBytes;
+		private long lastTime;
+		private double baseRate = -1.0;
+		private int saturatedSamples;
+		
+		public ConnectionController(int maxConnections, long startBytes) {
+			this.maxConnections = maxConnections;
+			this.target = Math.min(INITIAL_CONNECTIONS, maxConnections);
+			this.lastBytes = startBytes;
+			this.lastTime = System.nanoTime();
+		}
+		
+		private final synchronized void backOff() {
+			target = Math.max(1, target - 1);
+			saturated = true;
+			saturatedSamples = 0;
+		}
+		
+		/** Returns the number of new connections to start and counts them as active. */
+		public int connectionsToAdd(boolean hasWork) {
+			if(!hasWork) {
+				return 0; // New connections would have nothing to download
+			}
+			
+			int count = Math.max(0, target - active.get());
+			active.getAndAdd(count);
+			return count;
+		}
+		
+		/**
+		 * Measures the throughput since the last sample and changes the target number
+		 * of connections accordingly.
+		 */
+		public synchronized void sample(long bytes, boolean paused) {
+			long now = System.nanoTime();
+			double rate = (bytes - lastBytes) * 1.0e9 / Math.max(1L, now - lastTime);
+			lastBytes = bytes;
+			lastTime = now;
+			
+			if(paused) {
+				return; // Nothing to adjust
+			}
+			
+			if(saturated) {
+				if(++saturatedSamples < REPROBE_SAMPLES && rate >= baseRate * (1.0 - MIN_GAIN)) {
+					return; // Still saturated
+				}
+				
+				// Start over with the current number of connections as the base
+				saturated = false;
+				baseRate = -1.0;
+			}
+			
+			if(target >= maxConnections || active.get() < target) {
+				return; // Nothing to adjust
+			}
+			
+			if(baseRate < 0.0 || rate >= baseRate * (1.0 + MIN_GAIN)) {
+				// The throughput still scales with the number of connections
+				baseRate = rate;
+				++target;
+			} else {
+				// The last connection did not help, remove it
+				backOff();
+			}
+		}
+		
+		/**
+		 * Returns whether the current connection should be closed, since there are too many.
+		 * If so, the connection is no longer counted as active.
+		 */
+		public boolean tryRetire() {
+			for(int count; (count = active.get()) > target;) {
+				if(active.compareAndSet(count, count - 1)) {
+					return true;
+				}
+			}
+			
+			return false;
+		}
+		
+		public void retired() {
+			active.decrementAndGet();
+		}
+		
+		public void throttled() throws Exception {
+			int attempt = throttledAttempts.incrementAndGet();
+			
+			if(attempt > MAX_THROTTLED_ATTEMPTS) {
+				throw new RejectedResponseException();
+			}
+			
+			backOff();
+			Thread.sleep(Math.min(THROTTLED_WAIT_MS * attempt, MAX_THROTTLED_WAIT_MS));
+		}
+		
+		public void resetThrottled() {
+			throttledAttempts.set(0);
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,159 @@
+package sune.app.mediadown.download;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import sune.app.mediadown.MediaDownloader;
+import sune.app.mediadown.concurrent.RateLimiter;
+import sune.app.mediadown.configuration.ApplicationConfiguration;
+import sune.app.mediadown.util.Utils.Ignore;
+
+/**
+ * Shared limits of the download rate. All the downloads are limited by the global limit
+ * and the downloads from a single host also by the per-host limit. Both of the limits
+ * are taken from the configuration, so that any change is applied immediately.
+ * <br><br>
+ * The rate is shared fairly between downloads, not between connections. All the connections
+ * of a single download take turns in waiting for the limiters, therefore a download with
+ * many connections gets the same share as a download with a single connection. Entries of
+ * hosts and downloads that were not used for a while are removed.
+ * @since 00.02.09
+ */
+public final class Bandwidth {
+	
+	private static final long IDLE_TIMEOUT = TimeUnit.SECONDS.toNanos(10L);
+	
+	private static final RateLimiter global = new RateLimiter();
+	private static final Map<String, Entry<RateLimiter>> hosts = new ConcurrentHashMap<>();
+	private static final Map<Object, Entry<ReentrantLock>> downloads = new ConcurrentHashMap<>();
+	private static final AtomicLong lastEviction = new AtomicLong(System.nanoTime());
+	
+	// Forbid anyone to create an instance of this class
+	private Bandwidth() {
+	}
+	
+	private static final long bytesPerSecond(int kibPerSecond) {
+		return kibPerSecond > 0 ? kibPerSecond * 1024L : 0L;
+	}
+	
+	private static final ReentrantLock newTurn() {
+		return new ReentrantLock(true);
+	}
+	
+	private static final <K, T> Entry<T> join(Map<K, Entry<T>> map, K key, Supplier<T> constructor) {
+		return map.compute(key, (k, entry) -> {
+			if(entry == null) {
+				entry = new Entry<>(constructor.get());
+			}
+			
+			++entry.users;
+			return entry;
+		});
+	}
+	
+	private static final <K, T> void leave(Map<K, Entry<T>> map, K key) {
+		map.computeIfPresent(key, (k, entry) -> {
+			--entry.users;
+			entry.lastUse = System.nanoTime();
+			return entry;
+		});
+	}
+	
+	private static final <K, T> void evictIdle(Map<K, Entry<T>> map, long now) {
+		for(K key : map.keySet()) {
+			map.computeIfPresent(key, (k, entry) -> entry.isIdle(now) ? null : entry);
+		}
+	}
+	
+	private static final void maybeEvictIdle() {
+		long now = System.nanoTime();
+		long last = lastEviction.get();
+		
+		if(now - last >= IDLE_TIMEOUT && lastEviction.compareAndSet(last, now)) {
+			evictIdle(hosts, now);
+			evictIdle(downloads, now);
+		}
+	}
+	
+	private static final void acquire(String host, long hostRate, long bytes) throws InterruptedException {
+		if(host != null) {
+			Entry<RateLimiter> entry = join(hosts, host, RateLimiter::new);
+			
+			try {
+				RateLimiter limiter = entry.value;
+				limiter.rate(hostRate);
+				limiter.acquire(bytes);
+			} finally {
+				leave(hosts, host);
+			}
+		}
+		
+		global.acquire(bytes);
+	}
+	
+	/**
+	 * Waits until the given number of bytes downloaded from the given URI fits in the limits.
+	 * The connections of a single download must use the same {@code download} object.
+	 */
+	public static final void acquire(Object download, URI uri, long bytes) throws InterruptedException {
+		// The configuration may not be available yet, e.g. when updating the application
+		ApplicationConfiguration configuration = Ignore.call(MediaDownloader::configuration);
+		
+		if(configuration == null || bytes <= 0L) {
+			return;
+		}
+		
+		long globalRate = bytesPerSecond(configuration.downloadRateLimit());
+		long hostRate = bytesPerSecond(configuration.downloadHostRateLimit());
+		global.rate(globalRate);
+		maybeEvictIdle();
+		
+		String host = hostRate > 0L && uri != null ? uri.getHost() : null;
+		
+		if(globalRate <= 0L && host == null) {
+			return; // Not limited
+		}
+		
+		if(download == null) {
+			acquire(host, hostRate, bytes);
+			return;
+		}
+		
+		Entry<ReentrantLock> entry = join(downloads, download, Bandwidth::newTurn);
+		
+		try {
+			ReentrantLock turn = entry.value;
+			turn.lockInterruptibly();
+			
+			try {
+				acquire(host, hostRate, bytes);
+			} finally {
+				turn.unlock();
+			}
+		} finally {
+			leave(downloads, download);
+		}
+	}
+	
+	/** A shared value with the number of its current users, guarded by its map. */
+	private static final class Entry<T> {
+		
+		private final T value;
+		private int users;
+		private long lastUse;
+		
+		public Entry(T value) {
+			this.value = value;
+			this.lastUse = System.nanoTime();
+		}
+		
+		public boolean isIdle(long now) {
+			return users <= 0 && now - lastUse >= IDLE_TIMEOUT;
+		}
+	}
+}
@@ -5,12 +5,22 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import sune.app.mediadown.MediaDownloader;
+import sune.app.mediadown.util.Utils.Ignore;
 
 /** @since 00.02.09 */
 public final class DownloadCommon {
 	
 	private static final int DEFAULT_BUFFER_SIZE = 8192;
 	private static final int DEFAULT_FILE_STORE_BLOCKS_COUNT = 16;
+	private static final int MAX_POOLED_BUFFERS = 64;
+	
+	private static final Queue<ByteBuffer> pool = new ConcurrentLinkedQueue<>();
+	private static final AtomicInteger poolSize = new AtomicInteger();
 	
 	// Forbid anyone to create an instance of this class
 	private DownloadCommon() {
@@ -43,4 +53,48 @@ public final class DownloadCommon {
 					.allocateDirect(bufferSize(path, numOfBlocks))
 					.order(ByteOrder.nativeOrder());
 	}
-}
\ No newline at end of file
+	
+	private static final int pooledBufferSize(Path path) {
+		// The configuration may not be available yet, e.g. when updating the application
+		int size = Ignore.defaultValue(() -> MediaDownloader.configuration().downloadBufferSize(), 0);
+		return size > 0 ? size * 1024 : bufferSize(path);
+	}
+	
+	/**
+	 * Borrows a direct buffer from the shared pool, or allocates a new one, if the pool
+	 * is empty. The size of the buffer is given by the configuration, or by the file store
+	 * of the given path, if not configured. The buffer should be returned to the pool
+	 * using the {@link #releaseBuffer(ByteBuffer)} method, once it is no longer used.
+	 */
+	public static final ByteBuffer borrowBuffer(Path path) {
+		int size = pooledBufferSize(path);
+		
+		for(ByteBuffer buffer; (buffer = pool.poll()) != null;) {
+			poolSize.decrementAndGet();
+			
+			// Buffers of a different size (e.g. after the configuration changed) are discarded
+			if(buffer.capacity() == size) {
+				return buffer.clear();
+			}
+		}
+		
+		return ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+	}
+	
+	/**
+	 * Returns the given buffer to the shared pool. Only direct buffers are pooled and
+	 * if the pool is full, the buffer is left to the garbage collector.
+	 */
+	public static final void releaseBuffer(ByteBuffer buffer) {
+		if(buffer == null || !buffer.isDirect() || buffer.isReadOnly()) {
+			return;
+		}
+		
+		if(poolSize.incrementAndGet() > MAX_POOLED_BUFFERS) {
+			poolSize.decrementAndGet();
+			return;
+		}
+		
+		pool.offer(buffer.clear());
+	}
+}
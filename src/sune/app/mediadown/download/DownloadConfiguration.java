@@ -15,13 +15,16 @@ public class DownloadConfiguration {
 	private final Range<Long> rangeRequest;
 	private final long totalBytes;
 	private final Predicate<Response> responseFilter;
+	/** @since 00.02.09 */
+	private final DownloadJournal journal;
 	
 	private DownloadConfiguration(Range<Long> rangeOutput, Range<Long> rangeRequest, long totalBytes,
-			Predicate<Response> responseFilter) {
+			Predicate<Response> responseFilter, DownloadJournal journal) {
 		this.rangeOutput = Objects.requireNonNull(rangeOutput);
 		this.rangeRequest = Objects.requireNonNull(rangeRequest);
 		this.totalBytes = totalBytes;
 		this.responseFilter = responseFilter; // May be null
+		this.journal = journal; // May be null
 	}
 	
 	public static final Builder builder() {
@@ -63,6 +66,11 @@ public class DownloadConfiguration {
 		return responseFilter;
 	}
 	
+	/** @since 00.02.09 */
+	public DownloadJournal journal() {
+		return journal;
+	}
+	
 	public static final class Builder {
 		
 		private static final Range<Long> DEFAULT_RANGE = new Range<>(-1L, -1L);
@@ -72,16 +80,19 @@ public class DownloadConfiguration {
 		private Range<Long> rangeRequest;
 		private long totalBytes;
 		private Predicate<Response> responseFilter;
+		/** @since 00.02.09 */
+		private DownloadJournal journal;
 		
 		private Builder() {
 			rangeOutput = DEFAULT_RANGE;
 			rangeRequest = DEFAULT_RANGE;
 			totalBytes = DEFAULT_TOTAL;
 			responseFilter = null;
+			journal = null;
 		}
 		
 		public DownloadConfiguration build() {
-			return new DownloadConfiguration(rangeOutput, rangeRequest, totalBytes, responseFilter);
+			return new DownloadConfiguration(rangeOutput, rangeRequest, totalBytes, responseFilter, journal);
 		}
 		
 		public Builder rangeOutput(Range<Long> rangeOutput) {
@@ -104,6 +115,12 @@ public class DownloadConfiguration {
 			return this;
 		}
 		
+		/** @since 00.02.09 */
+		public Builder journal(DownloadJournal journal) {
+			this.journal = journal;
+			return this;
+		}
+		
 		public Range<Long> rangeOutput() {
 			return rangeOutput;
 		}
@@ -119,5 +136,10 @@ public class DownloadConfiguration {
 		public Predicate<Response> responseFilter() {
 			return responseFilter;
 		}
+		
+		/** @since 00.02.09 */
+		public DownloadJournal journal() {
+			return journal;
+		}
 	}
 }
\ No newline at end of file
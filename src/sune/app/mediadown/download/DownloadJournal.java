@@ -0,0 +1,441 @@
+package sune.app.mediadown.download;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import sune.app.mediadown.net.Web.Response;
+import sune.app.mediadown.util.NIO;
+import sune.app.mediadown.util.Range;
+
+/**
+ * Persistent record of byte ranges of an output file that were already written
+ * and synchronized to the disk. The journal is stored in a sidecar file next to
+ * the output file, so that an interrupted download can later be resumed by requesting
+ * only the missing ranges.
+ * <br><br>
+ * The journal file consists of a header (magic, the total size of the output file and
+ * the validator of the remote file, i.e. its ETag or Last-Modified value) followed by
+ * records of completed ranges, each containing two longs (from, to), where the end is
+ * exclusive. The records are only appended, a partially written record at the end
+ * of the file is ignored. When there are too many records, the journal is compacted
+ * into a new file that atomically replaces the old one.
+ * @since 00.02.09
+ */
+public final class DownloadJournal implements AutoCloseable {
+	
+	private static final String SUFFIX = ".journal";
+	private static final int MAGIC = 0x4D444A32; // MDJ2
+	private static final int MAX_VALIDATOR_LENGTH = 1024;
+	private static final int RECORD_SIZE = 2 * Long.BYTES;
+	private static final int MAX_RECORDS = 4096;
+	private static final long SYNC_INTERVAL = TimeUnit.SECONDS.toNanos(2L);
+	
+	private final Path path;
+	private final long totalBytes;
+	private byte[] validator;
+	private int headerSize;
+	/** All completed ranges, including the ones that are not yet persisted. */
+	private final TreeMap<Long, Long> completed = new TreeMap<>();
+	/** Completed ranges that are not yet persisted. */
+	private final TreeMap<Long, Long> pending = new TreeMap<>();
+	private final AtomicBoolean syncing = new AtomicBoolean();
+	
+	private FileChannel channel;
+	private int records;
+	private volatile long lastSyncTime;
+	
+	private DownloadJournal(Path path, long totalBytes, String validator) {
+		this.path = Objects.requireNonNull(path);
+		this.totalBytes = totalBytes;
+		this.validator = validatorBytes(validator);
+		this.headerSize = headerSize(this.validator);
+		this.lastSyncTime = System.nanoTime();
+	}
+	
+	private static final Path journalPath(Path output) {
+		return output.resolveSibling(output.getFileName().toString() + SUFFIX);
+	}
+	
+	private static final void add(TreeMap<Long, Long> ranges, long from, long to) {
+		// Merge with the preceding range, if they overlap or touch
+		Map.Entry<Long, Long> prev = ranges.floorEntry(from);
+		if(prev != null && prev.getValue() >= from) {
+			if(prev.getValue() >= to) {
+				return; // Already contained
+			}
+			
+			from = prev.getKey();
+		}
+		
+		// Merge with all the following ranges that overlap or touch
+		for(Map.Entry<Long, Long> next;
+				(next = ranges.ceilingEntry(from)) != null && next.getKey() <= to;) {
+			to = Math.max(to, next.getValue());
+			ranges.remove(next.getKey());
+		}
+		
+		ranges.put(from, to);
+	}
+	
+	private static final int headerSize(byte[] validator) {
+		return Integer.BYTES + Long.BYTES + Integer.BYTES + validator.length;
+	}
+	
+	private static final byte[] validatorBytes(String validator) {
+		if(validator == null) {
+			return new byte[0];
+		}
+		
+		byte[] bytes = validator.getBytes(StandardCharsets.UTF_8);
+		
+		// Such a long value is not a sensible validator, rather do not use any
+		return bytes.length <= MAX_VALIDATOR_LENGTH ? bytes : new byte[0];
+	}
+	
+	private static final boolean matches(ByteBuffer buf, byte[] expected) {
+		byte[] actual = new byte[expected.length];
+		buf.get(actual);
+		return Arrays.equals(actual, expected);
+	}
+	
+	private static final ByteBuffer newBuffer(int size) {
+		return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+	
+	private final ByteBuffer header() {
+		return newBuffer(headerSize)
+			.putInt(MAGIC)
+			.putLong(totalBytes)
+			.putInt(validator.length)
+			.put(validator)
+			.flip();
+	}
+	
+	private static final ByteBuffer records(Map<Long, Long> ranges) {
+		ByteBuffer buf = newBuffer(ranges.size() * RECORD_SIZE);
+		
+		for(Map.Entry<Long, Long> entry : ranges.entrySet()) {
+			buf.putLong(entry.getKey()).putLong(entry.getValue());
+		}
+		
+		return buf.flip();
+	}
+	
+	/**
+	 * Returns the validator of the remote file from the given response, i.e. the value
+	 * of its ETag header or, if not present, its Last-Modified header. If the response
+	 * contains neither, {@code null} is returned.
+	 */
+	public static final String validator(Response response) {
+		if(response == null) {
+			return null;
+		}
+		
+		return response.headers().firstValue("ETag")
+					.or(() -> response.headers().firstValue("Last-Modified"))
+					.orElse(null);
+	}
+	
+	/**
+	 * Opens the journal of the given output file. If the output file does not exist or
+	 * the existing journal was created for a file of a different size or with a different
+	 * validator, i.e. the remote file has changed since, the journal is discarded and
+	 * a new, empty one is created.
+	 */
+	public static final DownloadJournal open(Path output, long totalBytes, String validator)
+			throws IOException {
+		if(totalBytes <= 0L) {
+			throw new IllegalArgumentException("Total size must be known");
+		}
+		
+		DownloadJournal journal = new DownloadJournal(journalPath(output), totalBytes, validator);
+		
+		if(!NIO.isRegularFile(output) || !journal.load(NIO.size(output))) {
+			journal.reset();
+		}
+		
+		return journal;
+	}
+	
+	/** Returns whether the journal of the given output file exists. */
+	public static final boolean exists(Path output) {
+		return NIO.isRegularFile(journalPath(output));
+	}
+	
+	/** Removes the journal of the given output file, if it exists. */
+	public static final void delete(Path output) throws IOException {
+		Files.deleteIfExists(journalPath(output));
+	}
+	
+	private final boolean load(long outputSize) throws IOException {
+		if(!NIO.isRegularFile(path)) {
+			return false;
+		}
+		
+		FileChannel ch = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		
+		try {
+			ByteBuffer buf = NIO.read(ch, 0L, ch.size()).order(ByteOrder.LITTLE_ENDIAN);
+			
+			if(buf.remaining() < headerSize
+					|| buf.getInt() != MAGIC
+					|| buf.getLong() != totalBytes
+					|| buf.getInt() != validator.length
+					|| !matches(buf, validator)) {
+				ch.close();
+				return false;
+			}
+			
+			// Ignore the last record, if it was not completely written
+			for(; buf.remaining() >= RECORD_SIZE; ++records) {
+				long from = buf.getLong(), to = buf.getLong();
+				
+				if(from >= 0L && from < to && to <= totalBytes) {
+					add(completed, from, to);
+				}
+			}
+			
+			// The output file was truncated, the recorded ranges are no longer valid
+			if(!completed.isEmpty() && completed.lastEntry().getValue() > outputSize) {
+				ch.close();
+				completed.clear();
+				return false;
+			}
+			
+			channel = ch;
+			return true;
+		} catch(IOException ex) {
+			ch.close();
+			throw ex;
+		}
+	}
+	
+	private final void reset() throws IOException {
+		completed.clear();
+		pending.clear();
+		records = 0;
+		
+		FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+			StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		NIO.write(ch, 0L, header());
+		ch.force(true);
+		channel = ch;
+	}
+	
+	/** Atomically replaces the journal file by a new one with the current header and the given records. */
+	private final FileChannel replace(FileChannel current, ByteBuffer records) throws IOException {
+		Path temp = path.resolveSibling(path.getFileName().toString() + ".tmp");
+		
+		try(FileChannel ch = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			NIO.write(ch, 0L, header());
+			NIO.write(ch, headerSize, records);
+			ch.force(true);
+		}
+		
+		current.close();
+		Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		
+		return FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+	
+	private final void compact(FileChannel current, Map<Long, Long> ranges) throws IOException {
+		FileChannel ch = replace(current, records(ranges));
+		
+		synchronized(this) {
+			channel = ch;
+			records = ranges.size();
+		}
+	}
+	
+	/**
+	 * Sets the validator of the remote file, if the journal does not have any yet, e.g. when
+	 * the journal was created before the first response was received. The already persisted
+	 * ranges are kept.
+	 */
+	public void validator(String value) throws IOException {
+		byte[] bytes = validatorBytes(value);
+		
+		if(bytes.length == 0) {
+			return; // Nothing to set
+		}
+		
+		synchronized(this) {
+			if(validator.length > 0 || channel == null) {
+				return; // Already set or closed
+			}
+		}
+		
+		// No records must be appended while the header is being changed
+		while(!syncing.compareAndSet(false, true)) {
+			Thread.onSpinWait();
+		}
+		
+		try {
+			FileChannel ch;
+			ByteBuffer persisted;
+			
+			synchronized(this) {
+				if(validator.length > 0 || (ch = channel) == null) {
+					return; // Set by another thread meanwhile
+				}
+				
+				persisted = NIO.read(ch, headerSize, (long) records * RECORD_SIZE);
+				validator = bytes;
+				headerSize = headerSize(bytes);
+			}
+			
+			ch = replace(ch, persisted);
+			
+			synchronized(this) {
+				channel = ch;
+			}
+		} finally {
+			syncing.set(false);
+		}
+	}
+	
+	/** Marks the given range of the output file as written. The range is persisted on the next sync. */
+	public void complete(long from, long to) {
+		if(from >= to) {
+			return; // Nothing to complete
+		}
+		
+		synchronized(this) {
+			add(completed, from, to);
+			add(pending, from, to);
+		}
+	}
+	
+	/**
+	 * Persists the pending ranges, if the last sync was long enough ago. The data of the output
+	 * file are synchronized before the journal, so that the journal never refers to data that
+	 * did not reach the disk.
+	 */
+	public void sync(FileChannel output) throws IOException {
+		if(System.nanoTime() - lastSyncTime < SYNC_INTERVAL) {
+			return; // Not yet
+		}
+		
+		syncNow(output);
+	}
+	
+	/** Persists the pending ranges immediately. */
+	public void syncNow(FileChannel output) throws IOException {
+		// Only one thread syncs at a time, the others may continue writing
+		if(!syncing.compareAndSet(false, true)) {
+			return;
+		}
+		
+		try {
+			FileChannel ch;
+			Map<Long, Long> ranges;
+			boolean shouldCompact;
+			
+			synchronized(this) {
+				if(pending.isEmpty() || (ch = channel) == null) {
+					lastSyncTime = System.nanoTime();
+					return;
+				}
+				
+				shouldCompact = records + pending.size() > MAX_RECORDS;
+				ranges = new TreeMap<>(shouldCompact ? completed : pending);
+				pending.clear();
+			}
+			
+			if(output != null && output.isOpen()) {
+				output.force(false);
+			}
+			
+			if(shouldCompact) {
+				compact(ch, ranges);
+			} else {
+				// Always append right after the last complete record
+				NIO.write(ch, headerSize + (long) records * RECORD_SIZE, records(ranges));
+				ch.force(false);
+				
+				synchronized(this) {
+					records += ranges.size();
+				}
+			}
+			
+			lastSyncTime = System.nanoTime();
+		} finally {
+			syncing.set(false);
+		}
+	}
+	
+	/** Returns the ranges in the given range of the output file that are not completed yet. */
+	public synchronized List<Range<Long>> missing(long from, long to) {
+		List<Range<Long>> ranges = new ArrayList<>();
+		long position = from;
+		
+		Map.Entry<Long, Long> prev = completed.floorEntry(from);
+		if(prev != null && prev.getValue() > position) {
+			position = prev.getValue();
+		}
+		
+		for(Map.Entry<Long, Long> entry : completed.subMap(from, false, to, false).entrySet()) {
+			if(entry.getKey() > position) {
+				ranges.add(new Range<>(position, entry.getKey()));
+			}
+			
+			position = Math.max(position, entry.getValue());
+		}
+		
+		if(position < to) {
+			ranges.add(new Range<>(position, to));
+		}
+		
+		return ranges;
+	}
+	
+	/** Returns the number of completed bytes in the given range of the output file. */
+	public synchronized long completedBytes(long from, long to) {
+		long count = 0L;
+		
+		for(Range<Long> range : missing(from, to)) {
+			count += range.to() - range.from();
+		}
+		
+		return (to - from) - count;
+	}
+	
+	/** Closes and removes the journal, used when the output file is complete. */
+	public void delete() throws IOException {
+		close();
+		Files.deleteIfExists(path);
+	}
+	
+	@Override
+	public synchronized void close() throws IOException {
+		FileChannel ch;
+		if((ch = channel) != null) {
+			ch.close();
+			channel = null;
+		}
+	}
+	
+	public Path path() {
+		return path;
+	}
+	
+	public long totalBytes() {
+		return totalBytes;
+	}
+}
\ No newline at end of file
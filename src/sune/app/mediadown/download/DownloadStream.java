@@ -0,0 +1,169 @@
+package sune.app.mediadown.download;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Represents a file that is still being downloaded and can be read at the same time,
+ * e.g. by a conversion that runs concurrently with the download. Downloaders report
+ * the written ranges, possibly out of order, and readers are allowed to read only
+ * the contiguous part of the file from its beginning.
+ * <br><br>
+ * A stream is registered for a path by its owner, usually a download, using
+ * the {@link #open(Path)} method. Downloaders writing to that path then report
+ * the written ranges automatically. Any content that is already present in the file,
+ * e.g. when resuming a download, must be reported by the owner. When all the content
+ * is written, the owner must call the {@link #complete()} method, or the {@link #fail(Exception)}
+ * method, if the download failed, and then {@link #close()} the stream.
+ * <br><br>
+ * Streaming is only suitable for containers that FFmpeg can read without seeking, such as
+ * TS, WebM, MKV or fragmented MP4. The download manager streams the inputs of a download
+ * automatically, if the download knows its conversion before it is started and the conversion
+ * only copies the streams. A download may also stream its files itself, it then opens
+ * the streams before the download starts, submits the conversion and returns its result using
+ * the {@code DownloadPipelineResult.doConversion(inputs, output, conversion)} method.
+ * @since 00.02.09
+ */
+public final class DownloadStream implements AutoCloseable {
+	
+	private static final Map<Path, DownloadStream> streams = new ConcurrentHashMap<>();
+	
+	private final Path path;
+	/** Written ranges that are not yet part of the contiguous prefix, start -> end. */
+	private final TreeMap<Long, Long> ranges = new TreeMap<>();
+	private long available;
+	private boolean done;
+	private Exception exception;
+	
+	private DownloadStream(Path path) {
+		this.path = path;
+	}
+	
+	private static final Path key(Path path) {
+		return path.toAbsolutePath().normalize();
+	}
+	
+	/**
+	 * Registers a new stream for the given path, or returns the already registered one.
+	 * @param path The path of the downloaded file
+	 * @return The stream
+	 */
+	public static final DownloadStream open(Path path) {
+		Path key = key(Objects.requireNonNull(path));
+		return streams.computeIfAbsent(key, DownloadStream::new);
+	}
+	
+	/**
+	 * Returns the stream registered for the given path, if any.
+	 * @param path The path of the downloaded file, may be {@code null}
+	 * @return The stream, or {@code null}, if there is no stream for the path
+	 */
+	public static final DownloadStream of(Path path) {
+		return path != null ? streams.get(key(path)) : null;
+	}
+	
+	private final void merge() {
+		for(Entry<Long, Long> entry; (entry = ranges.firstEntry()) != null && entry.getKey() <= available;) {
+			ranges.pollFirstEntry();
+			available = Math.max(available, entry.getValue());
+		}
+	}
+	
+	/**
+	 * Reports that the given range of the file was written.
+	 * @param start The start of the range, inclusive
+	 * @param end The end of the range, exclusive
+	 */
+	public void written(long start, long end) {
+		if(start < 0L || end <= start) {
+			return; // Nothing to report
+		}
+		
+		synchronized(this) {
+			if(done) {
+				return;
+			}
+			
+			if(start <= available) {
+				available = Math.max(available, end);
+				merge();
+				notifyAll();
+			} else {
+				ranges.merge(start, end, Math::max);
+			}
+		}
+	}
+	
+	/**
+	 * Marks the stream as complete, i.e. that no more content will be written.
+	 */
+	public synchronized void complete() {
+		if(done) {
+			return;
+		}
+		
+		merge();
+		done = true;
+		notifyAll();
+	}
+	
+	/**
+	 * Marks the stream as failed, the readers will fail as well.
+	 * @param exception The cause
+	 */
+	public synchronized void fail(Exception exception) {
+		if(done) {
+			return;
+		}
+		
+		this.exception = Objects.requireNonNull(exception);
+		done = true;
+		notifyAll();
+	}
+	
+	/**
+	 * Waits until there is content available after the given position.
+	 * @param position The position in the file
+	 * @return The number of bytes available from the beginning of the file, always greater
+	 * than the given position, or {@code -1}, if the end of the stream was reached.
+	 * @throws IOException If the download failed
+	 * @throws InterruptedException If interrupted while waiting
+	 */
+	public synchronized long await(long position) throws IOException, InterruptedException {
+		while(available <= position && !done) {
+			wait();
+		}
+		
+		if(exception != null) {
+			throw new IOException("Download failed", exception);
+		}
+		
+		return available > position ? available : -1L;
+	}
+	
+	/**
+	 * Unregisters the stream. If the stream is not complete, it is marked as failed.
+	 */
+	@Override
+	public void close() {
+		streams.remove(key(path), this);
+		fail(new IOException("Stream closed"));
+	}
+	
+	public Path path() {
+		return path;
+	}
+	
+	public synchronized long available() {
+		return available;
+	}
+	
+	public synchronized boolean isDone() {
+		return done;
+	}
+}
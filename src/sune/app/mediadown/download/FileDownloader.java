@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Path;
@@ -22,6 +23,7 @@ import sune.app.mediadown.event.Listener;
 import sune.app.mediadown.event.tracker.DownloadTracker;
 import sune.app.mediadown.event.tracker.TrackerManager;
 import sune.app.mediadown.exception.RejectedResponseException;
+import sune.app.mediadown.net.BufferInputStream;
 import sune.app.mediadown.net.Web;
 import sune.app.mediadown.net.Web.Request;
 import sune.app.mediadown.net.Web.Response;
@@ -89,6 +91,8 @@ public class FileDownloader implements InternalDownloader, AutoCloseable {
 	protected Exception exception;
 	/** @since 00.02.09 */
 	protected Destination prevDestination;
+	/** @since 00.02.09 */
+	protected DownloadStream stream;
 	
 	public FileDownloader(TrackerManager trackerManager) {
 		this.trackerManager = Objects.requireNonNull(trackerManager);
@@ -169,6 +173,19 @@ public class FileDownloader implements InternalDownloader, AutoCloseable {
 			buffer.hasRemaining() && (num = ch.write(buffer, wr)) >= 0;
 			wr += num);
 		
+		DownloadJournal journal;
+		if((journal = configuration.journal()) != null) {
+			// Remember the written range, so that it does not have to be downloaded again
+			journal.complete(start, wr);
+			journal.sync(ch);
+		}
+		
+		DownloadStream str;
+		if((str = stream) != null) {
+			// Make the written range available to the readers of the file
+			str.written(start, wr);
+		}
+		
 		return (int) (wr - start);
 	}
 	
@@ -217,7 +234,7 @@ public class FileDownloader implements InternalDownloader, AutoCloseable {
 		}
 		
 		// Prepare the response
-		response = Web.requestStream(req);
+		response = Web.requestBuffers(req);
 		
 		// Filter the response, if a filter is specified
 		Predicate<Response> filter;
@@ -295,6 +312,12 @@ public class FileDownloader implements InternalDownloader, AutoCloseable {
 				stream = ((InternalInputStream) stream).stream;
 			}
 			
+			// Write the buffers received by the HTTP client directly to the output
+			InputStream body;
+			if((body = response.response().body()) instanceof BufferInputStream) {
+				return new BufferChannel((BufferInputStream) body);
+			}
+			
 			return Channels.newChannel(stream);
 		}
 		
@@ -303,7 +326,16 @@ public class FileDownloader implements InternalDownloader, AutoCloseable {
 	
 	/** @since 00.02.09 */
 	protected ByteBuffer createBuffer() {
-		return DownloadCommon.newDirectBuffer(destination.path());
+		return DownloadCommon.borrowBuffer(destination.path());
+	}
+	
+	/** @since 00.02.09 */
+	protected void releaseBuffer() {
+		ByteBuffer buf;
+		if((buf = buffer) != null) {
+			buffer = null;
+			DownloadCommon.releaseBuffer(buf);
+		}
 	}
 	
 	protected ByteBuffer buffer() {
@@ -347,6 +379,11 @@ public class FileDownloader implements InternalDownloader, AutoCloseable {
 		
 		try(ReadableByteChannel input = doRequest(rangeRequest)) {
 			openFile(destination, rangeOutput);
+			
+			if(input instanceof BufferChannel) {
+				return reachedEOF = transfer((BufferChannel) input);
+			}
+			
 			ByteBuffer buffer = buffer();
 			
 			for(int read, written; isRunning()
@@ -354,6 +391,9 @@ public class FileDownloader implements InternalDownloader, AutoCloseable {
 					&& ((read = input.read(buffer)) >= 0L 
 							// If read < 0L bytes, set the EOF flag and exit the loop
 							|| !(reachedEOF = true));) {
+				// Respect the download rate limits, if any
+				Bandwidth.acquire(trackerManager, request.uri(), read);
+				
 				// Write the buffer to the output
 				buffer.flip();
 				written = write(buffer);
@@ -376,6 +416,32 @@ public class FileDownloader implements InternalDownloader, AutoCloseable {
 		return reachedEOF;
 	}
 	
+	/**
+	 * Writes the buffers received by the HTTP client directly to the output, without copying
+	 * them to the download buffer first.
+	 * @return {@code true}, if the end of the response was reached, otherwise {@code false}.
+	 * @since 00.02.09
+	 */
+	protected boolean transfer(BufferChannel input) throws Exception {
+		for(ByteBuffer buffer; isRunning();) {
+			if((buffer = input.next()) == null) {
+				return true;
+			}
+			
+			int read = buffer.remaining();
+			// Respect the download rate limits, if any
+			Bandwidth.acquire(trackerManager, request.uri(), read);
+			
+			int written = write(buffer);
+			// The buffer may have been limited by the write, the rest is not needed
+			buffer.position(buffer.limit());
+			
+			update(read, written);
+		}
+		
+		return false;
+	}
+	
 	protected void checkIfDone(boolean reachedEOF) {
 		Range<Long> rangeRequest = configuration.rangeRequest();
 		
@@ -420,6 +486,7 @@ public class FileDownloader implements InternalDownloader, AutoCloseable {
 		totalBytes         = configuration.totalBytes();
 		rangeRequest       = configuration.rangeRequest();
 		rangeOutput        = configuration.rangeOutput();
+		stream             = DownloadStream.of(destination.path());
 		buffer             = null;
 		bytes.set(0L);
 		written.set(0L);
@@ -435,6 +502,7 @@ public class FileDownloader implements InternalDownloader, AutoCloseable {
 			throw ex; // Propagate the error
 		} finally {
 			doStop(TaskStates.DONE);
+			releaseBuffer();
 			eventRegistry.call(DownloadEvent.END, this);
 		}
 		
@@ -642,6 +710,54 @@ public class FileDownloader implements InternalDownloader, AutoCloseable {
 		}
 	}
 	
+	/**
+	 * Channel of a response body whose buffers, as received by the HTTP client, can be taken
+	 * and written to the output directly. Reading to another buffer copies the data as usual.
+	 * @since 00.02.09
+	 */
+	protected static final class BufferChannel implements ReadableByteChannel {
+		
+		private final BufferInputStream stream;
+		private volatile boolean open = true;
+		
+		public BufferChannel(BufferInputStream stream) {
+			this.stream = Objects.requireNonNull(stream);
+		}
+		
+		/** @return The next buffer with some data remaining, or {@code null}, if there are no more data. */
+		public ByteBuffer next() throws IOException {
+			if(!open) {
+				throw new ClosedChannelException();
+			}
+			
+			return stream.nextBuffer();
+		}
+		
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			ByteBuffer src;
+			if((src = next()) == null) {
+				return -1;
+			}
+			
+			int count = Math.min(src.remaining(), dst.remaining());
+			dst.put(src.slice().limit(count));
+			src.position(src.position() + count);
+			return count;
+		}
+		
+		@Override
+		public boolean isOpen() {
+			return open;
+		}
+		
+		@Override
+		public void close() throws IOException {
+			open = false;
+			stream.close();
+		}
+	}
+	
 	protected static final class InternalChannel implements ReadableByteChannel {
 		
 		private final ReadableByteChannel channel;
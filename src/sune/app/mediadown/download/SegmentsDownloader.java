@@ -0,0 +1,544 @@
+package sune.app.mediadown.download;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import sune.app.mediadown.InternalState;
+import sune.app.mediadown.MediaDownloader;
+import sune.app.mediadown.TaskStates;
+import sune.app.mediadown.concurrent.CounterLock;
+import sune.app.mediadown.concurrent.SyncObject;
+import sune.app.mediadown.concurrent.Threads;
+import sune.app.mediadown.download.segment.FileSegment;
+import sune.app.mediadown.download.segment.FileSegmentsHolder;
+import sune.app.mediadown.event.DownloadEvent;
+import sune.app.mediadown.event.Event;
+import sune.app.mediadown.event.EventRegistry;
+import sune.app.mediadown.event.Listener;
+import sune.app.mediadown.event.tracker.DownloadTracker;
+import sune.app.mediadown.event.tracker.TrackerManager;
+import sune.app.mediadown.exception.RejectedResponseException;
+import sune.app.mediadown.media.MediaConstants;
+import sune.app.mediadown.net.Web;
+import sune.app.mediadown.net.Web.Request;
+import sune.app.mediadown.net.Web.Response;
+import sune.app.mediadown.util.NIO;
+import sune.app.mediadown.util.Utils.Ignore;
+
+/**
+ * Downloads segments of a segmented file (such as HLS or DASH streams) to a single output
+ * file. At most {@code window} segments are requested concurrently using the shared
+ * HTTP client, the segments are then written to the output in their original order.
+ * Segments that were downloaded but cannot be written yet also count to the window,
+ * therefore the memory usage is bounded as well. A segment whose download fails because
+ * of a transient error is downloaded again, at most {@code MAX_SEGMENT_ATTEMPTS} times.
+ * <br><br>
+ * The application itself does not download any segmented media, the downloader
+ * is meant to be used by the plugins that do.
+ * @since 00.02.09
+ */
+public class SegmentsDownloader implements DownloadContext, AutoCloseable {
+	
+	private static final int DEFAULT_BUFFER_SIZE = 8192;
+	/** Some VMs reserve a few header words in an array. */
+	private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+	private static final int MAX_SEGMENT_ATTEMPTS = 5;
+	private static final long RETRY_WAIT_BASE_MS = 500L;
+	private static final long RETRY_MAX_WAIT_MS = 10000L;
+	
+	private final InternalState state = new InternalState(TaskStates.INITIAL);
+	private final EventRegistry<DownloadEvent> eventRegistry = new EventRegistry<>();
+	private final SyncObject lockPause = new SyncObject();
+	private final TrackerManager trackerManager;
+	private final int window;
+	
+	private final AtomicLong bytes = new AtomicLong();
+	private final AtomicLong written = new AtomicLong();
+	private final AtomicInteger nextFetch = new AtomicInteger();
+	/** Downloaded segments waiting to be written, guarded by itself. */
+	private final Map<Integer, ByteBuffer> pending = new HashMap<>();
+	
+	private Request request;
+	private List<? extends FileSegment> segments;
+	private Destination destination;
+	private DownloadConfiguration configuration;
+	private DownloadTracker tracker;
+	private DownloadStream stream;
+	private Semaphore permits;
+	private long[] latencies;
+	private long[] durations;
+	private int nextWrite;
+	private long position;
+	
+	private volatile Response response;
+	private volatile long totalBytes;
+	private volatile Exception exception;
+	
+	public SegmentsDownloader(TrackerManager trackerManager) {
+		this(trackerManager, defaultWindow());
+	}
+	
+	public SegmentsDownloader(TrackerManager trackerManager, int window) {
+		this.trackerManager = Objects.requireNonNull(trackerManager);
+		this.window = checkWindow(window);
+	}
+	
+	private static final int defaultWindow() {
+		return Math.max(1, MediaDownloader.configuration().acceleratedDownload());
+	}
+	
+	private static final int checkWindow(int window) {
+		if(window <= 0) {
+			throw new IllegalArgumentException("Invalid window size");
+		}
+		
+		return window;
+	}
+	
+	private static final boolean isSuccessful(Response response) {
+		int code = response.statusCode();
+		return code >= 200 && code < 300;
+	}
+	
+	private static final boolean isTransient(Response response) {
+		int code = response.statusCode();
+		return code == 408 // Request Timeout
+					|| code == 429 // Too Many Requests
+					|| code >= 500;
+	}
+	
+	private static final boolean isRetryable(Exception ex) {
+		return ex instanceof IOException
+					|| ex instanceof TimeoutException
+					|| (ex instanceof ExecutionException && ex.getCause() instanceof IOException);
+	}
+	
+	private static final long totalSize(List<? extends FileSegment> segments) {
+		long total = 0L;
+		
+		for(FileSegment segment : segments) {
+			long size = segment.size();
+			
+			if(size <= 0L) {
+				return MediaConstants.UNKNOWN_SIZE;
+			}
+			
+			total += size;
+		}
+		
+		return total;
+	}
+	
+	private static final ByteBuffer ensureCapacity(ByteBuffer buffer, int required) {
+		if(buffer.remaining() >= required) {
+			return buffer;
+		}
+		
+		long needed = (long) buffer.position() + required;
+		
+		if(needed > MAX_BUFFER_SIZE) {
+			throw new OutOfMemoryError("Segment too large");
+		}
+		
+		int capacity = (int) Math.min(Math.max(buffer.capacity() * 2L, needed), MAX_BUFFER_SIZE);
+		return ByteBuffer.allocate(capacity).put(buffer.flip());
+	}
+	
+	private final boolean awaitRunning() {
+		while(isPaused()) {
+			lockPause.await();
+		}
+		
+		return isRunning();
+	}
+	
+	private final void update(Response response, int count, AtomicLong counted) throws Exception {
+		Bandwidth.acquire(trackerManager, response.uri(), count);
+		counted.getAndAdd(count);
+		bytes.getAndAdd(count);
+		tracker.update(count);
+		eventRegistry.call(DownloadEvent.UPDATE, this);
+	}
+	
+	private final ByteBuffer read(Response.OfStream response, int index, AtomicLong counted) throws Exception {
+		long size = segments.get(index).size();
+		
+		if(size <= 0L) {
+			size = Web.size(response.headers());
+		}
+		
+		// Too large segments cannot be allocated at once, let the buffer grow instead
+		boolean sized = size > 0L && size <= MAX_BUFFER_SIZE;
+		ByteBuffer buffer = ByteBuffer.allocate((int) (sized ? size : DEFAULT_BUFFER_SIZE));
+		InputStream stream = response.stream();
+		
+		for(int read; awaitRunning(); update(response, read, counted)) {
+			if(!buffer.hasRemaining() && sized) {
+				// The declared size was reached, grow the buffer only if there are more data
+				if((read = stream.read()) < 0) {
+					break;
+				}
+				
+				buffer = ensureCapacity(buffer, DEFAULT_BUFFER_SIZE).put((byte) read);
+				read = 1;
+				continue;
+			}
+			
+			if(!sized) {
+				buffer = ensureCapacity(buffer, DEFAULT_BUFFER_SIZE);
+			}
+			
+			if((read = stream.read(buffer.array(), buffer.position(), buffer.remaining())) < 0) {
+				break;
+			}
+			
+			buffer.position(buffer.position() + read);
+		}
+		
+		return buffer.flip();
+	}
+	
+	private final ByteBuffer download(int index, long start, AtomicLong counted) throws Exception {
+		Request req = request.ofURI(segments.get(index).uri());
+		
+		try(Response.OfStream response = Web.requestStream(req)) {
+			latencies[index] = System.nanoTime() - start;
+			
+			Predicate<Response> filter;
+			if((filter = configuration.responseFilter()) == null) {
+				filter = SegmentsDownloader::isSuccessful;
+			}
+			
+			if(!filter.test(response)) {
+				if(isTransient(response)) {
+					throw new IOException("Transient response status: " + response.statusCode());
+				}
+				
+				throw new RejectedResponseException();
+			}
+			
+			if(this.response == null) {
+				this.response = response;
+			}
+			
+			return read(response, index, counted);
+		}
+	}
+	
+	private final void fetch(int index) throws Exception {
+		long start = System.nanoTime();
+		ByteBuffer data = null;
+		
+		for(int attempt = 1; data == null; ++attempt) {
+			AtomicLong counted = new AtomicLong();
+			
+			try {
+				data = download(index, start, counted);
+			} catch(Exception ex) {
+				// The segment is downloaded again from the start, do not count the bytes twice
+				long count = counted.get();
+				bytes.getAndAdd(-count);
+				tracker.update(-count);
+				
+				if(!isRetryable(ex) || attempt >= MAX_SEGMENT_ATTEMPTS) {
+					throw ex; // Propagate
+				}
+				
+				if(!awaitRunning()) {
+					return; // Stopped, do not retry
+				}
+				
+				Thread.sleep(Math.min(RETRY_WAIT_BASE_MS * attempt, RETRY_MAX_WAIT_MS));
+			}
+		}
+		
+		durations[index] = System.nanoTime() - start;
+		
+		if(isRunning()) {
+			write(index, data);
+		}
+	}
+	
+	private final void write(int index, ByteBuffer data) throws Exception {
+		synchronized(pending) {
+			pending.put(index, data);
+			
+			// Write all the segments that are next in order, if they are already downloaded
+			for(ByteBuffer buf; (buf = pending.remove(nextWrite)) != null; ++nextWrite) {
+				int size = buf.remaining();
+				NIO.write(destination.channel(), position, buf);
+				
+				if(stream != null) {
+					// Make the written segment available to the readers of the file
+					stream.written(position, position + size);
+				}
+				
+				position += size;
+				written.getAndAdd(size);
+				permits.release();
+			}
+		}
+	}
+	
+	private final void work() throws Exception {
+		for(int index, count = segments.size(); isRunning() || isPaused();) {
+			permits.acquire();
+			
+			if(!awaitRunning() || (index = nextFetch.getAndIncrement()) >= count) {
+				permits.release();
+				break;
+			}
+			
+			fetch(index);
+		}
+	}
+	
+	private final void doStop(int stopState) {
+		if(isStopped() || isDone()) {
+			return;
+		}
+		
+		state.setAndUnset(stopState, TaskStates.RUNNING | TaskStates.PAUSED);
+		lockPause.unlock();
+		
+		// Wake up all the workers waiting for a free slot
+		Semaphore sem;
+		if((sem = permits) != null) {
+			sem.release(window);
+		}
+	}
+	
+	private final void onError(Exception ex) {
+		if(exception == null) {
+			exception = ex;
+			state.set(TaskStates.ERROR);
+			eventRegistry.call(DownloadEvent.ERROR, this);
+		}
+		
+		doStop(TaskStates.STOPPED);
+	}
+	
+	public long start(Request request, FileSegmentsHolder segments, Destination destination) throws Exception {
+		return start(request, segments, destination, DownloadConfiguration.ofDefault());
+	}
+	
+	public long start(Request request, FileSegmentsHolder segments, Destination destination,
+			DownloadConfiguration configuration) throws Exception {
+		this.request       = Objects.requireNonNull(request);
+		this.segments      = Objects.requireNonNull(segments).segments();
+		this.destination   = Objects.requireNonNull(destination);
+		this.configuration = Objects.requireNonNull(configuration);
+		this.stream        = DownloadStream.of(destination.path());
+		
+		int count = this.segments.size();
+		int numOfThreads = Math.min(window, Math.max(1, count));
+		
+		permits = new Semaphore(window);
+		latencies = new long[count];
+		durations = new long[count];
+		Arrays.fill(latencies, -1L);
+		Arrays.fill(durations, -1L);
+		nextFetch.set(0);
+		nextWrite = 0;
+		position = Math.max(0L, configuration.rangeOutput().from());
+		pending.clear();
+		response = null;
+		exception = null;
+		bytes.set(0L);
+		written.set(0L);
+		
+		totalBytes = totalSize(this.segments);
+		tracker = new DownloadTracker(totalBytes);
+		trackerManager.tracker(tracker);
+		
+		state.clear(TaskStates.STARTED | TaskStates.RUNNING);
+		eventRegistry.call(DownloadEvent.BEGIN, this);
+		
+		CounterLock lock = new CounterLock(numOfThreads);
+		ExecutorService executor = Threads.Pools.newFixedIO(numOfThreads);
+		
+		try {
+			for(int i = 0; i < numOfThreads; ++i) {
+				executor.submit(() -> {
+					try {
+						work();
+					} catch(Exception ex) {
+						onError(ex);
+					} finally {
+						lock.decrement();
+					}
+				});
+			}
+			
+			// Wait for all the workers to finish downloading
+			lock.await();
+			
+			executor.shutdown();
+			Ignore.call(() -> executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS));
+			
+			Exception ex;
+			if((ex = exception) != null) {
+				throw ex; // Propagate the error
+			}
+		} finally {
+			doStop(TaskStates.DONE);
+			eventRegistry.call(DownloadEvent.END, this);
+		}
+		
+		return bytes.get();
+	}
+	
+	public void pause() {
+		if(!isStarted() || isPaused() || isStopped() || isDone()) {
+			return;
+		}
+		
+		state.setAndUnset(TaskStates.PAUSED, TaskStates.RUNNING);
+		eventRegistry.call(DownloadEvent.PAUSE, this);
+	}
+	
+	public void resume() {
+		if(!isStarted() || !isPaused() || isStopped() || isDone()) {
+			return;
+		}
+		
+		state.setAndUnset(TaskStates.RUNNING, TaskStates.PAUSED);
+		lockPause.unlock();
+		eventRegistry.call(DownloadEvent.RESUME, this);
+	}
+	
+	public void stop() {
+		if(!isStarted() || isStopped() || isDone()) {
+			return;
+		}
+		
+		doStop(TaskStates.STOPPED);
+	}
+	
+	@Override
+	public void close() throws Exception {
+		Destination dest;
+		if((dest = destination) != null) {
+			dest.close();
+		}
+	}
+	
+	/**
+	 * Returns the time, in nanoseconds, from sending the request of the segment at the given index
+	 * to receiving the response headers, or {@code -1}, if the segment was not requested yet.
+	 */
+	public long latency(int index) {
+		return latencies[index];
+	}
+	
+	/**
+	 * Returns the time, in nanoseconds, from sending the request of the segment at the given index
+	 * to receiving all of its data, or {@code -1}, if the segment was not downloaded yet.
+	 */
+	public long duration(int index) {
+		return durations[index];
+	}
+	
+	/** Returns the average latency, in nanoseconds, of all the segments requested so far. */
+	public double averageLatency() {
+		return Arrays.stream(latencies).filter((l) -> l >= 0L).average().orElse(0.0);
+	}
+	
+	public long writtenBytes() {
+		return written.get();
+	}
+	
+	public int window() {
+		return window;
+	}
+	
+	@Override
+	public Request request() {
+		return request;
+	}
+	
+	@Override
+	public Path output() {
+		return destination != null ? destination.path() : null;
+	}
+	
+	@Override
+	public DownloadConfiguration configuration() {
+		return configuration;
+	}
+	
+	@Override
+	public Response response() {
+		return response;
+	}
+	
+	@Override
+	public long totalBytes() {
+		return totalBytes;
+	}
+	
+	@Override
+	public Exception exception() {
+		return exception;
+	}
+	
+	@Override
+	public TrackerManager trackerManager() {
+		return trackerManager;
+	}
+	
+	@Override
+	public boolean isRunning() {
+		return state.is(TaskStates.RUNNING);
+	}
+	
+	@Override
+	public boolean isDone() {
+		return state.is(TaskStates.DONE);
+	}
+	
+	@Override
+	public boolean isStarted() {
+		return state.is(TaskStates.STARTED);
+	}
+	
+	@Override
+	public boolean isPaused() {
+		return state.is(TaskStates.PAUSED);
+	}
+	
+	@Override
+	public boolean isStopped() {
+		return state.is(TaskStates.STOPPED);
+	}
+	
+	@Override
+	public boolean isError() {
+		return state.is(TaskStates.ERROR);
+	}
+	
+	@Override
+	public <V> void addEventListener(Event<? extends DownloadEvent, V> event, Listener<V> listener) {
+		eventRegistry.add(event, listener);
+	}
+	
+	@Override
+	public <V> void removeEventListener(Event<? extends DownloadEvent, V> event, Listener<V> listener) {
+		eventRegistry.remove(event, listener);
+	}
+}
\ No newline at end of file
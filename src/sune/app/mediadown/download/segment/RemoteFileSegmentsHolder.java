@@ -1,6 +1,7 @@
 package sune.app.mediadown.download.segment;
 
 import java.net.URI;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -9,18 +10,15 @@ import sune.app.mediadown.media.MediaConstants;
 /** @since 00.02.05 */
 public final class RemoteFileSegmentsHolder implements FileSegmentsHolder {
 	
-	private static final RemoteFileSegmentsHolder EMPTY = new RemoteFileSegmentsHolder();
+	private static final RemoteFileSegmentsHolder EMPTY
+		= new RemoteFileSegmentsHolder(List.of(), MediaConstants.UNKNOWN_DURATION);
 	
 	private final List<RemoteFileSegment> segments;
 	private final double duration;
 	
-	private RemoteFileSegmentsHolder() {
-		this.segments = List.of();
-		this.duration = MediaConstants.UNKNOWN_DURATION;
-	}
-	
-	public RemoteFileSegmentsHolder(List<? extends RemoteFileSegment> segments, double duration) {
-		this.segments = List.copyOf(Objects.requireNonNull(segments));
+	/** @since 00.02.09 */
+	private RemoteFileSegmentsHolder(List<RemoteFileSegment> segments, double duration) {
+		this.segments = segments;
 		this.duration = duration;
 	}
 	
@@ -28,8 +26,28 @@ public final class RemoteFileSegmentsHolder implements FileSegmentsHolder {
 		return EMPTY;
 	}
 	
+	/**
+	 * Creates a holder of a copy of the given list.
+	 * @since 00.02.09
+	 */
+	public static final RemoteFileSegmentsHolder of(List<? extends RemoteFileSegment> segments, double duration) {
+		return new RemoteFileSegmentsHolder(List.copyOf(Objects.requireNonNull(segments)), duration);
+	}
+	
 	public static final RemoteFileSegmentsHolder ofSingle(URI uri, long size, double duration) {
-		return new RemoteFileSegmentsHolder(List.of(new RemoteFileSegment(uri, size, duration)), duration);
+		return of(List.of(new RemoteFileSegment(uri, size, duration)), duration);
+	}
+	
+	/**
+	 * Creates a holder backed directly by the given list, without copying it. The list
+	 * must not be modified afterwards, it may, however, generate its segments lazily.
+	 * @since 00.02.09
+	 */
+	public static final RemoteFileSegmentsHolder ofView(List<? extends RemoteFileSegment> segments,
+			double duration) {
+		return new RemoteFileSegmentsHolder(
+			Collections.unmodifiableList(Objects.requireNonNull(segments)), duration
+		);
 	}
 	
 	@Override
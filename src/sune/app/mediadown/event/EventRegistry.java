@@ -1,22 +1,30 @@
 package sune.app.mediadown.event;
 
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.Queue;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 import sune.app.mediadown.util.Utils;
 
 public class EventRegistry<T extends EventType> implements EventCallable<T> {
 	
-	protected final Map<Event<?, ?>, Queue<Listener<?>>> listeners = new ConcurrentHashMap<>();
+	/** @since 00.02.09 */
+	protected final Map<Event<?, ?>, Listeners> listeners = new ConcurrentHashMap<>();
 	
 	@SuppressWarnings("unchecked")
 	protected final <V> void invokeListeners(Event<? extends T, V> event, V value) {
-		Optional.ofNullable(listeners.get(event)).ifPresent((q) -> q.forEach((l) -> ((Listener<V>) l).call(value)));
+		Listeners list;
+		if((list = listeners.get(event)) == null) {
+			return; // Nothing to invoke
+		}
+		
+		// Iterate over a snapshot, so that the listeners may be added or removed during the call
+		for(Listener<?> listener : list.array()) {
+			((Listener<V>) listener).call(value);
+		}
 	}
 	
 	/** @since 00.02.09 */
@@ -27,7 +35,7 @@ public class EventRegistry<T extends EventType> implements EventCallable<T> {
 	}
 	
 	public final <V> void add(Event<? extends T, V> event, Listener<V> listener) {
-		listeners.computeIfAbsent(event, (k) -> new ConcurrentLinkedQueue<>()).add(listener);
+		listeners.computeIfAbsent(event, (k) -> new Listeners()).add(listener);
 	}
 	
 	@SafeVarargs
@@ -42,7 +50,10 @@ public class EventRegistry<T extends EventType> implements EventCallable<T> {
 	}
 	
 	public final <V> void remove(Event<? extends T, V> event, Listener<V> listener) {
-		Optional.ofNullable(listeners.get(event)).ifPresent((q) -> q.remove(listener));
+		Listeners list;
+		if((list = listeners.get(event)) != null) {
+			list.remove(listener);
+		}
 	}
 	
 	@Override
@@ -56,7 +67,8 @@ public class EventRegistry<T extends EventType> implements EventCallable<T> {
 	}
 	
 	public final <V> List<Listener<?>> listenersOfEvent(Event<? extends T, V> event) {
-		return List.copyOf(Optional.ofNullable(listeners.get(event)).orElseGet(ConcurrentLinkedQueue::new));
+		Listeners list = listeners.get(event);
+		return list != null ? list.toList() : List.of();
 	}
 	
 	public final void clear() {
@@ -77,10 +89,10 @@ public class EventRegistry<T extends EventType> implements EventCallable<T> {
 	public final Map<Event<? extends T, ?>, List<Listener<?>>> listeners() {
 		Map<Event<? extends T, ?>, List<Listener<?>>> copy = new LinkedHashMap<>(listeners.size());
 		
-		for(Map.Entry<Event<?, ?>, Queue<Listener<?>>> entry : listeners.entrySet()) {
+		for(Map.Entry<Event<?, ?>, Listeners> entry : listeners.entrySet()) {
 			@SuppressWarnings("unchecked")
 			Event<? extends T, ?> event = (Event<? extends T, ?>) entry.getKey();
-			copy.put(event, List.copyOf(entry.getValue()));
+			copy.put(event, entry.getValue().toList());
 		}
 		
 		return copy;
@@ -88,21 +100,84 @@ public class EventRegistry<T extends EventType> implements EventCallable<T> {
 	
 	/** @since 00.02.09 */
 	public final void transferListenersTo(EventRegistry<? extends T> other) {
-		for(Map.Entry<Event<?, ?>, Queue<Listener<?>>> entry : listeners.entrySet()) {
+		for(Map.Entry<Event<?, ?>, Listeners> entry : listeners.entrySet()) {
 			other.listeners
-				.computeIfAbsent(entry.getKey(), (k) -> new ConcurrentLinkedQueue<>())
-				.addAll(entry.getValue());
+				.computeIfAbsent(entry.getKey(), (k) -> new Listeners())
+				.addAll(entry.getValue().array());
 		}
 	}
 	
 	/** @since 00.02.09 */
 	public final void transferListenersTo(EventBindable<? extends T> other) {
-		for(Map.Entry<Event<?, ?>, Queue<Listener<?>>> entry : listeners.entrySet()) {
+		for(Map.Entry<Event<?, ?>, Listeners> entry : listeners.entrySet()) {
 			Event<?, ?> event = entry.getKey();
 			
-			for(Listener<?> listener : entry.getValue()) {
+			for(Listener<?> listener : entry.getValue().array()) {
 				transferListener(other, event, listener);
 			}
 		}
 	}
+	
+	/**
+	 * Copy-on-write list of listeners of a single event. Modifications replace the whole
+	 * array, therefore the listeners can be invoked without any locking or allocation.
+	 * @since 00.02.09
+	 */
+	protected static final class Listeners {
+		
+		private static final Listener<?>[] EMPTY = new Listener<?>[0];
+		
+		private volatile Listener<?>[] array = EMPTY;
+		
+		protected Listeners() {
+		}
+		
+		public synchronized void add(Listener<?> listener) {
+			Listener<?>[] current = array;
+			Listener<?>[] updated = Arrays.copyOf(current, current.length + 1);
+			updated[current.length] = Objects.requireNonNull(listener);
+			array = updated;
+		}
+		
+		public synchronized void addAll(Listener<?>[] listeners) {
+			if(listeners.length == 0) {
+				return;
+			}
+			
+			Listener<?>[] current = array;
+			Listener<?>[] updated = Arrays.copyOf(current, current.length + listeners.length);
+			System.arraycopy(listeners, 0, updated, current.length, listeners.length);
+			array = updated;
+		}
+		
+		public synchronized boolean remove(Listener<?> listener) {
+			Listener<?>[] current = array;
+			int index = -1;
+			
+			for(int i = 0, l = current.length; i < l; ++i) {
+				if(current[i].equals(listener)) {
+					index = i;
+					break;
+				}
+			}
+			
+			if(index < 0) {
+				return false;
+			}
+			
+			Listener<?>[] updated = new Listener<?>[current.length - 1];
+			System.arraycopy(current, 0, updated, 0, index);
+			System.arraycopy(current, index + 1, updated, index, updated.length - index);
+			array = updated;
+			return true;
+		}
+		
+		public Listener<?>[] array() {
+			return array;
+		}
+		
+		public List<Listener<?>> toList() {
+			return List.of(array);
+		}
+	}
 }
\ No newline at end of file
@@ -6,6 +6,14 @@ public class ConversionTracker extends SimpleTracker {
 	private double totalTime;
 	/** @since 00.02.08 */
 	private final boolean isMerge;
+	/** @since 00.02.09 */
+	private long frame = -1L;
+	/** @since 00.02.09 */
+	private double fps = -1.0;
+	/** @since 00.02.09 */
+	private double bitrate = -1.0;
+	/** @since 00.02.09 */
+	private double speed = -1.0;
 	
 	public ConversionTracker(double totalTime) {
 		this(totalTime, false);
@@ -22,6 +30,19 @@ public class ConversionTracker extends SimpleTracker {
 		update();
 	}
 	
+	/**
+	 * Updates the progress, values that are not known should be negative.
+	 * @since 00.02.09
+	 */
+	public void update(double currentTime, long frame, double fps, double bitrate, double speed) {
+		this.currentTime = currentTime;
+		this.frame = frame;
+		this.fps = fps;
+		this.bitrate = bitrate;
+		this.speed = speed;
+		update();
+	}
+	
 	@Override
 	public void visit(TrackerVisitor visitor) {
 		visitor.visit(this);
@@ -47,4 +68,30 @@ public class ConversionTracker extends SimpleTracker {
 	public double totalTime() {
 		return totalTime;
 	}
+	
+	/** @since 00.02.09 */
+	public long frame() {
+		return frame;
+	}
+	
+	/** @since 00.02.09 */
+	public double fps() {
+		return fps;
+	}
+	
+	/**
+	 * @return The bitrate of the output in kbit/s.
+	 * @since 00.02.09
+	 */
+	public double bitrate() {
+		return bitrate;
+	}
+	
+	/**
+	 * @return The speed of the conversion relative to the real time.
+	 * @since 00.02.09
+	 */
+	public double speed() {
+		return speed;
+	}
 }
\ No newline at end of file
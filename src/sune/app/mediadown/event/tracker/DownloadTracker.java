@@ -1,17 +1,21 @@
 package sune.app.mediadown.event.tracker;
 
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import sune.app.mediadown.util.AtomicDouble;
 
-public class DownloadTracker extends SimpleTracker {
+public class DownloadTracker extends SimpleTracker implements TrackerSampler.Sampled {
 	
 	private final AtomicLong total;
-	private final AtomicLong current;
+	/** @since 00.02.09 */
+	private final LongAdder current;
 	private final AtomicLong prevBytes;
 	private final AtomicLong prevTime;
 	private final AtomicDouble speedBPS;
 	private final AtomicDouble secondsLeft;
+	/** @since 00.02.09 */
+	private volatile boolean changed;
 	
 	public DownloadTracker() {
 		this(0L, -1L);
@@ -23,37 +27,54 @@ public class DownloadTracker extends SimpleTracker {
 	
 	public DownloadTracker(long startBytes, long totalBytes) {
 		total       = new AtomicLong(totalBytes);
-		current     = new AtomicLong(startBytes);
+		current     = new LongAdder();
 		speedBPS    = new AtomicDouble();
 		secondsLeft = new AtomicDouble();
 		prevBytes   = new AtomicLong();
 		prevTime    = new AtomicLong(-1L);
+		current.add(startBytes);
 	}
 	
-	private final void recalcSpeed() {
+	private final void recalcSpeed(long now) {
+		long bytes = current.sum();
+		
 		if(prevTime.get() == -1L) {
-			prevTime .set(System.nanoTime());
-			prevBytes.set(current.get());
+			prevTime .set(now);
+			prevBytes.set(bytes);
 		} else {
-			long deltaTime = System.nanoTime() - prevTime.get();
+			long deltaTime = now - prevTime.get();
 			
 			if(deltaTime >= 1e9) {
-				long deltaBytes = current.get() - prevBytes.get();
+				long deltaBytes = bytes - prevBytes.get();
 				
 				speedBPS   .set((deltaBytes * 1e9) / deltaTime);
-				secondsLeft.set((total.get() - current.get()) / speedBPS.get());
-				prevTime   .set(System.nanoTime());
-				prevBytes  .set(current.get());
+				secondsLeft.set((total.get() - bytes) / speedBPS.get());
+				prevTime   .set(now);
+				prevBytes  .set(bytes);
 			}
 		}
 	}
 	
-	public void update(long bytes) {
-		current.getAndAdd(bytes);
-		recalcSpeed();
+	/** @since 00.02.09 */
+	@Override
+	public void sample(long now) {
+		// Clear the flag before reading the state, so that no change is missed
+		changed = false;
+		recalcSpeed(now);
 		update();
 	}
 	
+	// Called for every downloaded buffer, therefore only the counter is updated here
+	// and the update itself is published by the sampler at a fixed rate.
+	public void update(long bytes) {
+		current.add(bytes);
+		
+		if(!changed) {
+			changed = true;
+			TrackerSampler.changed(this);
+		}
+	}
+	
 	public void updateTotal(long bytes) {
 		total.set(bytes);
 		update();
@@ -61,7 +82,7 @@ public class DownloadTracker extends SimpleTracker {
 	
 	public void reset() {
 		total      .set(0L);
-		current    .set(0L);
+		current    .reset();
 		speedBPS   .set(0.0);
 		secondsLeft.set(0.0);
 		prevBytes  .set(0L);
@@ -80,7 +101,7 @@ public class DownloadTracker extends SimpleTracker {
 	
 	/** @since 00.02.08 */
 	public long current() {
-		return current.get();
+		return current.sum();
 	}
 	
 	/** @since 00.02.08 */
@@ -91,7 +112,7 @@ public class DownloadTracker extends SimpleTracker {
 	/** @since 00.02.08 */
 	@Override
 	public double progress() {
-		double _current = current.get();
+		double _current = current.sum();
 		double _total   = total.get();
 		return _total != 0.0 ? _current / _total : 0.0;
 	}
@@ -105,4 +126,4 @@ public class DownloadTracker extends SimpleTracker {
 	public double speed() {
 		return speedBPS.get();
 	}
-}
\ No newline at end of file
+}
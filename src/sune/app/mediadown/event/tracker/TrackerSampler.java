@@ -0,0 +1,77 @@
+package sune.app.mediadown.event.tracker;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import sune.app.mediadown.concurrent.Threads;
+import sune.app.mediadown.concurrent.VarLoader;
+
+/**
+ * Publishes updates of trackers that change frequently at a fixed rate. Instead of
+ * notifying the listeners on every change, a tracker only marks itself as changed and
+ * all the changed trackers are then sampled together by a single shared thread.
+ * @since 00.02.09
+ */
+public final class TrackerSampler {
+	
+	/** Interval between two samples, in milliseconds. */
+	public static final long INTERVAL_MS = 250L;
+	
+	private static final Set<Sampled> changed = ConcurrentHashMap.newKeySet();
+	private static final VarLoader<ScheduledExecutorService> executor = VarLoader.of(TrackerSampler::newExecutor);
+	
+	// Forbid anyone to create an instance of this class
+	private TrackerSampler() {
+	}
+	
+	private static final ScheduledExecutorService newExecutor() {
+		ScheduledExecutorService executor = Threads.Pools.newScheduled(1);
+		
+		if(executor != null) {
+			executor.scheduleAtFixedRate(
+				TrackerSampler::sampleAll, INTERVAL_MS, INTERVAL_MS, TimeUnit.MILLISECONDS
+			);
+		}
+		
+		return executor;
+	}
+	
+	private static final void sampleAll() {
+		long now = System.nanoTime();
+		
+		for(Iterator<Sampled> it = changed.iterator(); it.hasNext();) {
+			Sampled sampled = it.next();
+			it.remove();
+			
+			try {
+				sampled.sample(now);
+			} catch(Throwable th) {
+				// Do not let a single tracker cancel the whole sampler
+			}
+		}
+	}
+	
+	/**
+	 * Marks the given tracker as changed, so that it is sampled in the next round.
+	 * Marking an already marked tracker has no effect.
+	 * @param sampled The tracker
+	 */
+	public static final void changed(Sampled sampled) {
+		changed.add(Objects.requireNonNull(sampled));
+		executor.value(); // Ensure the sampler is running
+	}
+	
+	/** Tracker that can be sampled by the sampler. */
+	public static interface Sampled {
+		
+		/**
+		 * Samples the state of the tracker and publishes its update.
+		 * @param now The current time, in nanoseconds, as returned by {@link System#nanoTime()}
+		 */
+		void sample(long now);
+	}
+}
@@ -17,6 +17,7 @@ import sune.app.mediadown.conversion.ConversionCommand.Option;
 import sune.app.mediadown.conversion.ConversionCommand.Output;
 import sune.app.mediadown.conversion.ConversionFormat;
 import sune.app.mediadown.conversion.ConversionMedia;
+import sune.app.mediadown.conversion.ConversionScheduler.Workload;
 import sune.app.mediadown.entity.Converter;
 import sune.app.mediadown.event.tracker.TrackerManager;
 import sune.app.mediadown.gui.table.ResolvedMedia;
@@ -564,8 +565,11 @@ public final class FFmpeg {
 			
 			Metadata metadataInput = Metadata.of("noExplicitFormat", true).seal();
 			
+			// Raw streams left by the media fixer need their timestamps to be regenerated
 			List<Pair<Media, Input.Builder>> mutableInputs = inputs.stream()
-				.map((i) -> new Pair<>(i.media(), Input.ofMutable(i.path(), List.of(), metadataInput)))
+				.map((i) -> new Pair<>(i.media(), Input.ofMutable(
+					i.path(), FFmpegFixPlanner.inputOptions(i), metadataInput
+				)))
 				.collect(Collectors.toList());
 			
 			ConversionFormat format = formatOf(formatOutput);
@@ -710,6 +714,37 @@ public final class FFmpeg {
 			return string == null ? (string = construct()) : string;
 		}
 		
+		/**
+		 * Returns the kind of the work done by this command. A command that only copies
+		 * the streams is bound by the disk, otherwise at least one stream is encoded.
+		 * @since 00.02.09
+		 */
+		public Workload workload() {
+			for(Output output : outputs()) {
+				boolean hasCodec = false;
+				
+				for(Option option : output.options()) {
+					String name = option.name();
+					
+					if(!name.equals("c") && !name.startsWith("c:")) {
+						continue;
+					}
+					
+					if(!"copy".equals(option.value())) {
+						return Workload.CPU_BOUND;
+					}
+					
+					hasCodec = true;
+				}
+				
+				if(!hasCodec) {
+					return Workload.CPU_BOUND; // The default codecs are used
+				}
+			}
+			
+			return Workload.IO_BOUND;
+		}
+		
 		private static final class Constructor {
 			
 			private static final Regex REGEX_NEEDS_QUOTES = Regex.of("[\\s\"']");
@@ -756,13 +791,20 @@ public final class FFmpeg {
 			
 			private final void handle(StringBuilder builder, Path path, MediaFormat format, List<Option> options,
 					String argName, boolean includeFormat) {
+				handle(builder, path, format, options, argName, includeFormat, null);
+			}
+			
+			/** @since 00.02.09 */
+			private final void handle(StringBuilder builder, Path path, MediaFormat format, List<Option> options,
+					String argName, boolean includeFormat, String url) {
 				for(Option option : options) handle(builder, option);
 				
 				if(includeFormat && !format.is(MediaFormat.UNKNOWN) && !MediaFormat.fromPath(path).is(format)) {
 					handle(builder, false, "f", format.toString().toLowerCase(), false);
 				}
 				
-				handle(builder, false, argName, path.toAbsolutePath().toString(), true);
+				String value = url != null ? url : path.toAbsolutePath().toString();
+				handle(builder, false, argName, value, true);
 			}
 			
 			private final void handle(StringBuilder builder, Option option) {
@@ -771,7 +813,9 @@ public final class FFmpeg {
 			
 			private final void handle(StringBuilder builder, Input input) {
 				boolean includeFormat = !input.metadata().has("noExplicitFormat");
-				handle(builder, input.path(), input.format(), input.options(), "i", includeFormat);
+				// Inputs may be read from a URL instead of the path, e.g. when streamed
+				String url = input.metadata().get("url", null);
+				handle(builder, input.path(), input.format(), input.options(), "i", includeFormat, url);
 			}
 			
 			private final void handle(StringBuilder builder, Output output) {
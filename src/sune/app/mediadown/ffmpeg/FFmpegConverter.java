@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -15,6 +16,8 @@ import sune.app.mediadown.TaskStates;
 import sune.app.mediadown.conversion.ConversionCommand;
 import sune.app.mediadown.conversion.ConversionCommand.Input;
 import sune.app.mediadown.conversion.ConversionCommand.Output;
+import sune.app.mediadown.conversion.ConversionScheduler.Prioritizable;
+import sune.app.mediadown.download.DownloadStream;
 import sune.app.mediadown.entity.Converter;
 import sune.app.mediadown.event.ConversionEvent;
 import sune.app.mediadown.event.Event;
@@ -24,18 +27,15 @@ import sune.app.mediadown.event.tracker.ConversionTracker;
 import sune.app.mediadown.event.tracker.TrackerManager;
 import sune.app.mediadown.ffmpeg.FFmpeg.Options;
 import sune.app.mediadown.media.MediaConstants;
+import sune.app.mediadown.util.Metadata;
 import sune.app.mediadown.util.NIO;
 import sune.app.mediadown.util.Pair;
 import sune.app.mediadown.util.ProcessUtils;
-import sune.app.mediadown.util.Regex;
-import sune.app.mediadown.util.Regex.ReusableMatcher;
 import sune.app.mediadown.util.Utils;
 import sune.app.mediadown.util.Utils.Ignore;
 
 /** @since 00.02.08 */
-public final class FFmpegConverter implements Converter {
-	
-	private static final Regex REGEX_LINE_PROGRESS = Regex.of("^(?:frame|size)=.*?time=(.*?)\\s.*$");
+public final class FFmpegConverter implements Converter, Prioritizable {
 	
 	private final InternalState state = new InternalState(TaskStates.INITIAL);
 	private final EventRegistry<ConversionEvent> eventRegistry = new EventRegistry<>();
@@ -46,12 +46,16 @@ public final class FFmpegConverter implements Converter {
 	private FFmpeg.Command command;
 	
 	private Exception exception;
-	private final ReusableMatcher matcher = REGEX_LINE_PROGRESS.reusableMatcher();
 	/** @since 00.02.09 */
 	private BufferedWriter writerLog;
+	/** @since 00.02.09 */
+	private FFmpegInputServer inputServer;
+	/** @since 00.02.09 */
+	private final FFmpegLease lease;
 	
 	public FFmpegConverter(TrackerManager trackerManager) {
 		this.trackerManager = Objects.requireNonNull(trackerManager);
+		this.lease = new FFmpegLease(() -> process, this::isPaused);
 	}
 	
 	private static final FFmpeg.Command alterOutputs(FFmpeg.Command command) {
@@ -72,6 +76,45 @@ public final class FFmpegConverter implements Converter {
 		return builder.build();
 	}
 	
+	/**
+	 * Replaces the inputs that are still being downloaded with URLs from which the content
+	 * is read as soon as it is downloaded, so that the conversion runs concurrently
+	 * with the download.
+	 * @since 00.02.09
+	 */
+	private final FFmpeg.Command alterInputs(FFmpeg.Command command) throws IOException {
+		List<Input> inputs = command.inputs();
+		List<Input> newInputs = new ArrayList<>(inputs.size());
+		boolean altered = false;
+		
+		for(Input input : inputs) {
+			DownloadStream stream;
+			if((stream = DownloadStream.of(input.path())) == null) {
+				newInputs.add(input);
+				continue;
+			}
+			
+			if(inputServer == null) {
+				inputServer = new FFmpegInputServer();
+			}
+			
+			String url = inputServer.serve(stream);
+			newInputs.add((Input) Input.ofMutable(input).addMetadata(Metadata.of("url", url)).asFormat(input.format()));
+			altered = true;
+		}
+		
+		if(!altered) {
+			return command;
+		}
+		
+		FFmpeg.Command.Builder builder = FFmpeg.Command.builder(command);
+		// Replace all the inputs to retain their order
+		builder.removeInputs(inputs);
+		builder.addInputs(newInputs);
+		
+		return builder.build();
+	}
+	
 	/** @since 00.02.09 */
 	private final void log(String... parts) {
 		if(writerLog == null) {
@@ -91,10 +134,16 @@ public final class FFmpegConverter implements Converter {
 	
 	private final void outputHandler(String line) {
 		log(line); // Always log the line
-		matcher.reset(line);
-		if(!matcher.matches()) return; // Not a progress info
-		String time = matcher.group(1);
-		tracker.update(Utils.convertToSeconds(time));
+	}
+	
+	/** @since 00.02.09 */
+	private final void progressHandler(FFmpegProgress progress) {
+		double time;
+		if((time = progress.time()) < 0.0) {
+			return; // Nothing processed yet
+		}
+		
+		tracker.update(time, progress.frame(), progress.fps(), progress.bitrate(), progress.speed());
 		eventRegistry.call(ConversionEvent.UPDATE, this);
 	}
 	
@@ -105,19 +154,31 @@ public final class FFmpegConverter implements Converter {
 			throw new IllegalStateException("Unable to create conversion process.");
 		}
 		
-		Path dir = command.outputs().get(0).path().getParent();
-		String cmd = command.string();
-		log("ffmpeg ", cmd); // Always log the line
-		process.execute(cmd, dir);
-		
-		return process.waitFor();
+		try(FFmpegProgress progress = FFmpegProgress.open(this::progressHandler)) {
+			FFmpeg.Command.Builder builder = FFmpeg.Command.builder(command);
+			builder.addOptions(progress.options());
+			FFmpeg.Command withProgress = builder.build();
+			
+			Path dir = withProgress.outputs().get(0).path().getParent();
+			String cmd = withProgress.string();
+			log("ffmpeg ", cmd); // Always log the line
+			process.execute(cmd, dir);
+			lease.started(); // Suspend it, if preempted before it was started
+			
+			return process.waitFor();
+		}
 	}
 	
 	private final void doStart() throws Exception {
 		state.set(TaskStates.RUNNING);
 		
+		// Wait for the resources needed by the kind of the conversion
+		if(!lease.acquire(command.workload())) {
+			return; // Stopped while waiting
+		}
+		
 		double duration = command.metadata().get("duration", MediaConstants.UNKNOWN_DURATION);
-		FFmpeg.Command altered = alterOutputs(command);
+		FFmpeg.Command altered = alterInputs(alterOutputs(command));
 		boolean isMerge = altered.outputs().stream().allMatch((o) -> o.options().contains(Options.codecCopy()));
 		
 		tracker = new ConversionTracker(duration, isMerge);
@@ -189,7 +250,12 @@ public final class FFmpegConverter implements Converter {
 			writerLog = null;
 		}
 		
-		matcher.dispose();
+		if(inputServer != null) {
+			inputServer.close();
+			inputServer = null;
+		}
+		
+		lease.close();
 	}
 	
 	@Override
@@ -244,7 +310,8 @@ public final class FFmpegConverter implements Converter {
 		state.unset(TaskStates.PAUSED);
 		state.set(TaskStates.RUNNING);
 		
-		if(process != null) {
+		// The process may be suspended by the scheduler, in which case it is resumed by it
+		if(process != null && !lease.isSuspended()) {
 			ProcessUtils.resume(process.process());
 		}
 		
@@ -260,6 +327,11 @@ public final class FFmpegConverter implements Converter {
 		doStop(TaskStates.STOPPED);
 	}
 	
+	@Override
+	public void priority(int priority) {
+		lease.priority(priority);
+	}
+	
 	@Override
 	public final boolean isRunning() {
 		return state.is(TaskStates.RUNNING);
@@ -0,0 +1,79 @@
+package sune.app.mediadown.ffmpeg;
+
+import java.util.List;
+
+import sune.app.mediadown.MediaDownloader;
+import sune.app.mediadown.conversion.ConversionCommand;
+import sune.app.mediadown.conversion.ConversionCommand.Input;
+import sune.app.mediadown.conversion.ConversionCommand.Option;
+import sune.app.mediadown.conversion.ConversionMedia;
+import sune.app.mediadown.conversion.ConversionProvider;
+import sune.app.mediadown.ffmpeg.FFmpegFixer.InternalMediaFormats;
+import sune.app.mediadown.gui.table.ResolvedMedia;
+
+/**
+ * Plans the fixing of media that are converted afterwards. Fixing the timestamps
+ * of a stream consists of extracting the raw stream and of remuxing the raw stream
+ * with regenerated timestamps. The remux is a full pass over the data that only
+ * produces an input for the conversion, therefore it is merged into the conversion
+ * command, i.e. the conversion reads the raw stream and regenerates the timestamps itself.
+ * The remux is done separately only if the conversion command cannot take it over.
+ * @since 00.02.09
+ */
+final class FFmpegFixPlanner {
+	
+	private static final List<Option> OPTIONS_RAW_STREAM = List.of(Option.ofShort("fflags", "+genpts"));
+	
+	// Forbid anyone to create an instance of this class
+	private FFmpegFixPlanner() {
+	}
+	
+	private static final boolean isRawStream(ConversionMedia input) {
+		return input.format().isAnyOf(InternalMediaFormats.H264, InternalMediaFormats.ADTS);
+	}
+	
+	/**
+	 * Checks whether the remux of the fixed streams can be done by the conversion
+	 * of the given inputs.
+	 * @param inputs The inputs, before they are fixed
+	 * @param output The output of the conversion
+	 * @return {@code true}, if the fixing and the conversion can be merged, otherwise {@code false}.
+	 */
+	public static final boolean canMerge(List<ConversionMedia> inputs, ResolvedMedia output) {
+		ConversionProvider provider = MediaDownloader.configuration().conversionProvider();
+		
+		if(!(provider instanceof FFmpeg.Provider)) {
+			return false; // The raw streams may not be supported
+		}
+		
+		ConversionCommand command;
+		try {
+			command = provider.createCommand(inputs, output);
+		} catch(Exception ex) {
+			return false; // Let the conversion itself report the error
+		}
+		
+		if(command == ConversionCommand.Constants.RENAME) {
+			return false; // The raw streams cannot be just renamed
+		}
+		
+		for(Input input : command.inputs()) {
+			// The input options may depend on the original timestamps
+			if(!input.options().isEmpty()) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Returns the options of the given conversion input that regenerate its timestamps,
+	 * if the input is a raw stream produced by the fixer.
+	 * @param input The conversion input
+	 * @return The list of input options, may be empty
+	 */
+	public static final List<Option> inputOptions(ConversionMedia input) {
+		return isRawStream(input) ? OPTIONS_RAW_STREAM : List.of();
+	}
+}
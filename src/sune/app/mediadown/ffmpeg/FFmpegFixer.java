@@ -16,6 +16,8 @@ import sune.app.mediadown.conversion.ConversionCommand;
 import sune.app.mediadown.conversion.ConversionCommand.Input;
 import sune.app.mediadown.conversion.ConversionCommand.Output;
 import sune.app.mediadown.conversion.ConversionMedia;
+import sune.app.mediadown.conversion.ConversionScheduler.Prioritizable;
+import sune.app.mediadown.conversion.ConversionScheduler.Workload;
 import sune.app.mediadown.event.Event;
 import sune.app.mediadown.event.EventRegistry;
 import sune.app.mediadown.event.Listener;
@@ -33,14 +35,10 @@ import sune.app.mediadown.media.fix.MediaFixer;
 import sune.app.mediadown.util.Metadata;
 import sune.app.mediadown.util.NIO;
 import sune.app.mediadown.util.ProcessUtils;
-import sune.app.mediadown.util.Regex;
-import sune.app.mediadown.util.Regex.ReusableMatcher;
-import sune.app.mediadown.util.Utils;
+import sune.app.mediadown.util.Utils.Ignore;
 
 /** @since 00.02.09 */
-public final class FFmpegFixer implements MediaFixer {
-	
-	private static final Regex REGEX_LINE_PROGRESS = Regex.of("^(?:frame|size)=.*?time=(.*?)\\s.*$");
+public final class FFmpegFixer implements MediaFixer, Prioritizable {
 	
 	private final InternalState state = new InternalState(TaskStates.INITIAL);
 	private final EventRegistry<MediaFixEvent> eventRegistry = new EventRegistry<>();
@@ -50,21 +48,32 @@ public final class FFmpegFixer implements MediaFixer {
 	private MediaFixTracker tracker;
 	private List<ConversionMedia> inputs;
 	private ResolvedMedia output;
+	private boolean mergeConversion;
+	private List<ConversionMedia> conversionInputs;
+	private List<Path> replacedInputs;
 	
-	private final Map<Integer, Path> mapInputs = new HashMap<>();
+	private final Map<Integer, ConversionMedia> mapInputs = new HashMap<>();
 	private final List<Path> tempPaths = new ArrayList<>();
+	private final FFmpegLease lease;
 	private Exception exception;
-	private final ReusableMatcher matcher = REGEX_LINE_PROGRESS.reusableMatcher();
 	
 	public FFmpegFixer(TrackerManager trackerManager) {
 		this.trackerManager = Objects.requireNonNull(trackerManager);
+		this.lease = new FFmpegLease(() -> process, this::isPaused);
 	}
 	
 	private final void outputHandler(String line) {
-		matcher.reset(line);
-		if(!matcher.matches()) return; // Not a progress info
-		String time = matcher.group(1);
-		tracker.update(Utils.convertToSeconds(time));
+		// The log is not used, the progress is received separately
+	}
+	
+	/** @since 00.02.09 */
+	private final void progressHandler(FFmpegProgress progress) {
+		double time;
+		if((time = progress.time()) < 0.0) {
+			return; // Nothing processed yet
+		}
+		
+		tracker.update(time);
 		eventRegistry.call(MediaFixEvent.UPDATE, this);
 	}
 	
@@ -75,11 +84,18 @@ public final class FFmpegFixer implements MediaFixer {
 			throw new IllegalStateException("Unable to create conversion process.");
 		}
 		
-		String cmd = command.string();
-		Path dir = command.outputs().get(0).path().getParent();
-		process.execute(cmd, dir);
-		
-		return process.waitFor();
+		try(FFmpegProgress progress = FFmpegProgress.open(this::progressHandler)) {
+			FFmpeg.Command.Builder builder = FFmpeg.Command.builder(command);
+			builder.addOptions(progress.options());
+			FFmpeg.Command withProgress = builder.build();
+			
+			String cmd = withProgress.string();
+			Path dir = withProgress.outputs().get(0).path().getParent();
+			process.execute(cmd, dir);
+			lease.started(); // Suspend it, if preempted before it was started
+			
+			return process.waitFor();
+		}
 	}
 	
 	private final int mediaIndexOfType(MediaType type) {
@@ -88,8 +104,9 @@ public final class FFmpegFixer implements MediaFixer {
 					.findFirst().orElse(-1);
 	}
 	
-	private final void setOutput(int index, Path output) {
-		mapInputs.put(index, output);
+	private final void setOutput(int index, Path output, MediaFormat format) {
+		ConversionMedia input = inputs.get(index);
+		mapInputs.put(index, new ConversionMedia(input.media(), output, format, input.duration()));
 	}
 	
 	private final void addTempPath(Path path) {
@@ -138,6 +155,12 @@ public final class FFmpegFixer implements MediaFixer {
 				);
 				cmdRaw.addMetadata(metadata);
 				
+				if(mergeConversion) {
+					// The timestamps are regenerated by the conversion, see FFmpegFixPlanner
+					setOutput(index, outputH264, InternalMediaFormats.H264);
+					return List.of(cmdRaw);
+				}
+				
 				FFmpeg.Command.Builder cmdFix = FFmpeg.Command.builder();
 				cmdFix.addInputs(Input.of(outputH264, InternalMediaFormats.H264));
 				cmdFix.addOptions(
@@ -153,7 +176,7 @@ public final class FFmpegFixer implements MediaFixer {
 				cmdFix.addMetadata(metadata);
 				
 				addTempPath(outputH264);
-				setOutput(index, outputPath);
+				setOutput(index, outputPath, video.format());
 				
 				return List.of(cmdRaw, cmdFix);
 			}
@@ -197,6 +220,12 @@ public final class FFmpegFixer implements MediaFixer {
 				);
 				cmdRaw.addMetadata(metadata);
 				
+				if(mergeConversion) {
+					// The timestamps are regenerated by the conversion, see FFmpegFixPlanner
+					setOutput(index, outputAdts, InternalMediaFormats.ADTS);
+					return List.of(cmdRaw);
+				}
+				
 				FFmpeg.Command.Builder cmdFix = FFmpeg.Command.builder();
 				cmdFix.addInputs(Input.of(outputAdts, InternalMediaFormats.ADTS));
 				cmdFix.addOptions(
@@ -212,7 +241,7 @@ public final class FFmpegFixer implements MediaFixer {
 				cmdFix.addMetadata(metadata);
 				
 				addTempPath(outputAdts);
-				setOutput(index, outputPath);
+				setOutput(index, outputPath, audio.format());
 				
 				return List.of(cmdRaw, cmdFix);
 			}
@@ -236,6 +265,11 @@ public final class FFmpegFixer implements MediaFixer {
 	private final void doStart() throws Exception {
 		state.set(TaskStates.RUNNING);
 		
+		// All the steps only copy the streams
+		if(!lease.acquire(Workload.IO_BOUND)) {
+			return; // Stopped while waiting
+		}
+		
 		tempPaths.clear();
 		mapInputs.clear();
 		
@@ -285,16 +319,39 @@ public final class FFmpegFixer implements MediaFixer {
 		
 		tracker.updateState(PipelineStates.MEDIA_FIX);
 		
+		List<ConversionMedia> fixedInputs = new ArrayList<>(inputs.size());
+		List<Path> replaced = new ArrayList<>();
+		
 		for(int i = 0, l = inputs.size(); i < l; ++i) {
 			ConversionMedia input = inputs.get(i);
-			Path newPath = mapInputs.get(i);
+			ConversionMedia newInput = mapInputs.get(i);
+			
+			if(newInput == null) {
+				fixedInputs.add(input);
+				continue;
+			}
 			
-			if(newPath != null) {
-				Path oldPath = input.path();
+			Path oldPath = input.path();
+			
+			if(mergeConversion) {
+				// The conversion reads the raw stream directly, keep the original until it succeeds
+				fixedInputs.add(newInput);
+				replaced.add(oldPath);
+			} else {
 				NIO.delete(oldPath);
-				NIO.move(newPath, oldPath);
+				NIO.move(newInput.path(), oldPath);
+				fixedInputs.add(input);
 			}
 		}
+		
+		conversionInputs = fixedInputs;
+		replacedInputs = replaced;
+	}
+	
+	private final void deleteRawOutputs() {
+		for(ConversionMedia newInput : mapInputs.values()) {
+			Ignore.callVoid(() -> NIO.deleteFile(newInput.path()));
+		}
 	}
 	
 	private final void doStop(int stopState) throws Exception {
@@ -311,13 +368,22 @@ public final class FFmpegFixer implements MediaFixer {
 			process.close();
 		}
 		
-		matcher.dispose();
+		lease.close();
 	}
 	
 	@Override
 	public void start(List<ConversionMedia> inputs, ResolvedMedia output) throws Exception {
+		start(inputs, output, false);
+	}
+	
+	@Override
+	public void start(List<ConversionMedia> inputs, ResolvedMedia output, boolean needConversion)
+			throws Exception {
 		this.inputs = inputs;
 		this.output = output;
+		this.mergeConversion = needConversion && FFmpegFixPlanner.canMerge(inputs, output);
+		this.conversionInputs = inputs;
+		this.replacedInputs = List.of();
 		
 		state.clear(TaskStates.STARTED);
 		
@@ -331,6 +397,12 @@ public final class FFmpegFixer implements MediaFixer {
 			throw ex; // Propagate the error
 		} finally {
 			doStop(TaskStates.DONE);
+			
+			if(mergeConversion && (isError() || isStopped())) {
+				// The original inputs are left intact, only the raw streams are removed
+				deleteRawOutputs();
+			}
+			
 			eventRegistry.call(MediaFixEvent.END, this);
 		}
 	}
@@ -360,7 +432,8 @@ public final class FFmpegFixer implements MediaFixer {
 		state.unset(TaskStates.PAUSED);
 		state.set(TaskStates.RUNNING);
 		
-		if(process != null) {
+		// The process may be suspended by the scheduler, in which case it is resumed by it
+		if(process != null && !lease.isSuspended()) {
 			ProcessUtils.resume(process.process());
 		}
 		
@@ -376,6 +449,11 @@ public final class FFmpegFixer implements MediaFixer {
 		doStop(TaskStates.STOPPED);
 	}
 	
+	@Override
+	public void priority(int priority) {
+		lease.priority(priority);
+	}
+	
 	@Override
 	public final boolean isRunning() {
 		return state.is(TaskStates.RUNNING);
@@ -436,15 +514,25 @@ public final class FFmpegFixer implements MediaFixer {
 		return output;
 	}
 	
+	@Override
+	public List<ConversionMedia> conversionInputs() {
+		return conversionInputs;
+	}
+	
+	@Override
+	public List<Path> replacedInputs() {
+		return replacedInputs;
+	}
+	
 	@Override
 	public Exception exception() {
 		return exception;
 	}
 	
-	private static final class InternalMediaFormats {
+	static final class InternalMediaFormats {
 		
-		private static final MediaFormat H264 = formatH264();
-		private static final MediaFormat ADTS = formatADTS();
+		static final MediaFormat H264 = formatH264();
+		static final MediaFormat ADTS = formatADTS();
 		
 		private InternalMediaFormats() {
 		}
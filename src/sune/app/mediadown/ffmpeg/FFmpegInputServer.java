@@ -0,0 +1,144 @@
+package sune.app.mediadown.ffmpeg;
+
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import sune.app.mediadown.concurrent.Threads;
+import sune.app.mediadown.download.DownloadStream;
+
+/**
+ * Serves files that are still being downloaded to FFmpeg over loopback connections,
+ * so that a conversion can read its inputs while they are downloaded. Each input has
+ * its own server socket and FFmpeg reads it using the {@code tcp} protocol. The content
+ * is sent as soon as it is available and the connection is closed when the download
+ * is complete. If the download fails, the connection is reset, so that FFmpeg fails
+ * as well, rather than treating the input as complete.
+ * @since 00.02.09
+ */
+final class FFmpegInputServer implements AutoCloseable {
+	
+	private final List<ServerSocketChannel> servers = new ArrayList<>();
+	private final List<Thread> threads = new ArrayList<>();
+	private volatile boolean closed;
+	
+	public FFmpegInputServer() {
+	}
+	
+	/**
+	 * Opens a server socket bound to an ephemeral port on the loopback interface,
+	 * that accepts a single connection.
+	 */
+	static final ServerSocketChannel openLoopback() throws IOException {
+		ServerSocketChannel server = ServerSocketChannel.open();
+		
+		try {
+			server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1);
+		} catch(IOException ex) {
+			server.close();
+			throw ex;
+		}
+		
+		return server;
+	}
+	
+	/** Returns the URL of the given server socket, in the form usable by FFmpeg. */
+	static final String url(ServerSocketChannel server) throws IOException {
+		InetSocketAddress address = (InetSocketAddress) server.getLocalAddress();
+		String host = address.getAddress().getHostAddress();
+		
+		if(address.getAddress() instanceof Inet6Address) {
+			host = '[' + host + ']';
+		}
+		
+		return "tcp://" + host + ':' + address.getPort();
+	}
+	
+	private static final void transfer(DownloadStream stream, SocketChannel socket) throws Exception {
+		try(FileChannel file = FileChannel.open(stream.path(), StandardOpenOption.READ)) {
+			long position = 0L;
+			
+			for(long available; (available = stream.await(position)) >= 0L;) {
+				position += file.transferTo(position, available - position, socket);
+			}
+		}
+	}
+	
+	private final void serve(ServerSocketChannel server, DownloadStream stream) {
+		try(SocketChannel socket = server.accept()) {
+			try {
+				transfer(stream, socket);
+			} catch(Exception ex) {
+				// Reset the connection, so that the input is not treated as complete
+				socket.socket().setSoLinger(true, 0);
+			}
+		} catch(IOException ex) {
+			// Closed or FFmpeg disconnected, nothing to do
+		} finally {
+			try {
+				server.close();
+			} catch(IOException ex) {
+				// Ignore
+			}
+		}
+	}
+	
+	/**
+	 * Starts serving the given stream.
+	 * @param stream The stream of a file being downloaded
+	 * @return The URL that FFmpeg should use to read the input
+	 * @throws IOException If the server cannot be created
+	 */
+	public synchronized String serve(DownloadStream stream) throws IOException {
+		Objects.requireNonNull(stream);
+		
+		if(closed) {
+			throw new IllegalStateException("Closed");
+		}
+		
+		ServerSocketChannel server = openLoopback();
+		
+		try {
+			Thread thread = Threads.newThreadUnmanaged(() -> serve(server, stream));
+			thread.setDaemon(true);
+			thread.start();
+			servers.add(server);
+			threads.add(thread);
+		} catch(RuntimeException ex) {
+			server.close();
+			throw ex;
+		}
+		
+		return url(server);
+	}
+	
+	@Override
+	public synchronized void close() {
+		if(closed) {
+			return;
+		}
+		
+		closed = true;
+		
+		for(ServerSocketChannel server : servers) {
+			try {
+				server.close();
+			} catch(IOException ex) {
+				// Ignore
+			}
+		}
+		
+		// Wake up the threads waiting for more content
+		threads.forEach(Thread::interrupt);
+		servers.clear();
+		threads.clear();
+	}
+}
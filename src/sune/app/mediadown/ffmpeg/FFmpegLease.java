@@ -0,0 +1,125 @@
+package sune.app.mediadown.ffmpeg;
+
+import java.util.Objects;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import sune.api.process.ReadOnlyProcess;
+import sune.app.mediadown.conversion.ConversionScheduler;
+import sune.app.mediadown.conversion.ConversionScheduler.Lease;
+import sune.app.mediadown.conversion.ConversionScheduler.Preemptible;
+import sune.app.mediadown.conversion.ConversionScheduler.Workload;
+import sune.app.mediadown.util.ProcessUtils;
+
+/**
+ * Holds the admission of FFmpeg processes by the conversion scheduler. When the scheduler
+ * preempts the work, the current process is suspended, the same way as when it is paused,
+ * and it is resumed later, unless it was paused by the user in the meantime. The work may
+ * be preempted before its process is started, therefore the owner must call {@link #started()}
+ * after starting each process, so that the process is suspended right away, if needed.
+ * @since 00.02.09
+ */
+final class FFmpegLease implements Preemptible, AutoCloseable {
+	
+	private final Supplier<ReadOnlyProcess> process;
+	private final BooleanSupplier isPaused;
+	private volatile Lease lease;
+	private volatile int priority = ConversionScheduler.PRIORITY_NORMAL;
+	private volatile boolean closed;
+	/** The process that was started, may be suspended only after it is started. */
+	private ReadOnlyProcess started;
+	private boolean suspended;
+	
+	public FFmpegLease(Supplier<ReadOnlyProcess> process, BooleanSupplier isPaused) {
+		this.process = Objects.requireNonNull(process);
+		this.isPaused = Objects.requireNonNull(isPaused);
+	}
+	
+	/**
+	 * Waits until the given workload is admitted by the scheduler.
+	 * @param workload The kind of the work
+	 * @return {@code true}, if admitted, or {@code false}, if the lease was closed while waiting.
+	 * @throws InterruptedException If interrupted while waiting
+	 */
+	public boolean acquire(Workload workload) throws InterruptedException {
+		Lease l = ConversionScheduler.instance().lease(workload, priority, this);
+		lease = l;
+		l.priority(priority); // Changed before the lease was set
+		
+		if(closed) {
+			l.close(); // Closed before the lease was set
+		}
+		
+		return l.await();
+	}
+	
+	/**
+	 * Changes the priority of the work, both of the current lease and of the following ones.
+	 * @param priority The new priority
+	 */
+	public void priority(int priority) {
+		this.priority = priority;
+		
+		Lease l;
+		if((l = lease) != null) {
+			l.priority(priority);
+		}
+	}
+	
+	/**
+	 * Notifies the lease that the current process was started. If the work was suspended
+	 * by the scheduler in the meantime, the process is suspended as well.
+	 */
+	public synchronized void started() {
+		ReadOnlyProcess p;
+		if((p = process.get()) == null) {
+			return;
+		}
+		
+		started = p;
+		
+		if(suspended) {
+			ProcessUtils.pause(p.process());
+		}
+	}
+	
+	@Override
+	public synchronized void suspend() throws Exception {
+		suspended = true;
+		
+		ReadOnlyProcess p;
+		if((p = started) != null) {
+			ProcessUtils.pause(p.process());
+		}
+	}
+	
+	@Override
+	public synchronized void resume() throws Exception {
+		suspended = false;
+		
+		if(isPaused.getAsBoolean()) {
+			return; // Paused by the user, must be resumed by the user
+		}
+		
+		ReadOnlyProcess p;
+		if((p = started) != null) {
+			ProcessUtils.resume(p.process());
+		}
+	}
+	
+	@Override
+	public void close() {
+		closed = true;
+		
+		Lease l;
+		if((l = lease) != null) {
+			l.close();
+		}
+	}
+	
+	/** @return {@code true}, if the work is suspended by the scheduler, otherwise {@code false}. */
+	public boolean isSuspended() {
+		Lease l;
+		return (l = lease) != null && l.isSuspended();
+	}
+}
@@ -0,0 +1,207 @@
+package sune.app.mediadown.ffmpeg;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import sune.app.mediadown.concurrent.Threads;
+import sune.app.mediadown.conversion.ConversionCommand.Option;
+import sune.app.mediadown.util.Utils;
+
+/**
+ * Receives the machine-readable progress of FFmpeg, i.e. the output of the {@code -progress}
+ * option, on a dedicated loopback connection. The progress is reported in blocks of
+ * {@code key=value} lines, each terminated by the {@code progress} key. The listener is
+ * notified once per block, rather than for every line of the FFmpeg's log.
+ * @since 00.02.09
+ */
+final class FFmpegProgress implements AutoCloseable {
+	
+	private final ServerSocketChannel server;
+	private final Consumer<FFmpegProgress> listener;
+	private final String url;
+	private Thread thread;
+	
+	private long frame = -1L;
+	private double fps = -1.0;
+	private double bitrate = -1.0;
+	private double speed = -1.0;
+	private double time = -1.0;
+	private boolean isEnd;
+	/** Whether the time was already set in the current block. */
+	private boolean hasTime;
+	
+	private FFmpegProgress(ServerSocketChannel server, String url, Consumer<FFmpegProgress> listener) {
+		this.server = server;
+		this.url = url;
+		this.listener = listener;
+	}
+	
+	/**
+	 * Opens a new progress channel.
+	 * @param listener The listener notified for each block of progress
+	 * @return The progress channel
+	 * @throws IOException If the channel cannot be opened
+	 */
+	public static final FFmpegProgress open(Consumer<FFmpegProgress> listener) throws IOException {
+		Objects.requireNonNull(listener);
+		
+		ServerSocketChannel server = FFmpegInputServer.openLoopback();
+		FFmpegProgress progress;
+		
+		try {
+			progress = new FFmpegProgress(server, FFmpegInputServer.url(server), listener);
+			progress.start();
+		} catch(IOException | RuntimeException ex) {
+			server.close();
+			throw ex;
+		}
+		
+		return progress;
+	}
+	
+	private static final double parseDouble(String value, int end) {
+		try {
+			return Double.parseDouble(value.substring(0, end));
+		} catch(NumberFormatException ex) {
+			return -1.0; // E.g. N/A
+		}
+	}
+	
+	private static final long parseLong(String value) {
+		try {
+			return Long.parseLong(value);
+		} catch(NumberFormatException ex) {
+			return -1L; // E.g. N/A
+		}
+	}
+	
+	private static final double parseSuffixed(String value, String suffix) {
+		int end = value.endsWith(suffix) ? value.length() - suffix.length() : value.length();
+		return parseDouble(value, end);
+	}
+	
+	private final void start() {
+		thread = Threads.newThreadUnmanaged(this::read);
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	private final void read() {
+		try(SocketChannel socket = server.accept();
+				BufferedReader reader = new BufferedReader(new InputStreamReader(
+					Channels.newInputStream(socket), StandardCharsets.US_ASCII
+				))) {
+			for(String line; (line = reader.readLine()) != null;) {
+				int index = line.indexOf('=');
+				
+				if(index <= 0) {
+					continue; // Not a key-value pair
+				}
+				
+				String key = line.substring(0, index);
+				String value = line.substring(index + 1).strip();
+				
+				if(set(key, value)) {
+					listener.accept(this);
+				}
+			}
+		} catch(IOException ex) {
+			// Closed or FFmpeg ended, nothing to do
+		} finally {
+			try {
+				server.close();
+			} catch(IOException ex) {
+				// Ignore
+			}
+		}
+	}
+	
+	/** @return {@code true}, if the block of progress ended, otherwise {@code false}. */
+	private final boolean set(String key, String value) {
+		switch(key) {
+			case "frame":
+				frame = parseLong(value);
+				break;
+			case "fps":
+				fps = parseDouble(value, value.length());
+				break;
+			case "bitrate":
+				bitrate = parseSuffixed(value, "kbits/s");
+				break;
+			case "speed":
+				speed = parseSuffixed(value, "x");
+				break;
+			case "out_time_us":
+			case "out_time_ms": {
+				// Both keys are in microseconds, the latter is only misnamed in older versions
+				long micros = parseLong(value);
+				
+				if(micros >= 0L) {
+					time = micros / 1e6;
+					hasTime = true;
+				}
+				
+				break;
+			}
+			case "out_time":
+				if(!hasTime && !value.startsWith("-")) {
+					time = Utils.convertToSeconds(value);
+					hasTime = true;
+				}
+				
+				break;
+			case "progress":
+				isEnd = value.equals("end");
+				hasTime = false;
+				return true;
+			default:
+				// Ignore other keys
+				break;
+		}
+		
+		return false;
+	}
+	
+	/** @return The options that make FFmpeg report the progress to this channel. */
+	public List<Option> options() {
+		return List.of(
+			Option.ofShort("progress", url),
+			// Do not write the human-readable progress to the log
+			Option.ofShort("nostats")
+		);
+	}
+	
+	@Override
+	public void close() {
+		try {
+			server.close();
+		} catch(IOException ex) {
+			// Ignore
+		}
+		
+		if(thread != null) {
+			thread.interrupt();
+		}
+	}
+	
+	public String url() { return url; }
+	/** @return The number of processed frames, or {@code -1}, if not available. */
+	public long frame() { return frame; }
+	/** @return The number of processed frames per second, or {@code -1.0}, if not available. */
+	public double fps() { return fps; }
+	/** @return The bitrate of the output in kbit/s, or {@code -1.0}, if not available. */
+	public double bitrate() { return bitrate; }
+	/** @return The speed relative to the real time, or {@code -1.0}, if not available. */
+	public double speed() { return speed; }
+	/** @return The time of the output in seconds, or {@code -1.0}, if not available. */
+	public double time() { return time; }
+	public boolean isEnd() { return isEnd; }
+}
@@ -2,13 +2,18 @@ package sune.app.mediadown.gui.control;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
+import javafx.application.Platform;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleDoubleProperty;
@@ -53,10 +58,12 @@ import sune.app.mediadown.gui.control.PipelineTableView.PipelineInfo;
 import sune.app.mediadown.gui.table.ResolvedMedia;
 import sune.app.mediadown.language.Translator;
 import sune.app.mediadown.os.OS;
+import sune.app.mediadown.pipeline.ManagerPipelineTask;
 import sune.app.mediadown.pipeline.MediaPipelineResult;
 import sune.app.mediadown.pipeline.Pipeline;
 import sune.app.mediadown.pipeline.PipelineMedia;
 import sune.app.mediadown.pipeline.PipelineResult;
+import sune.app.mediadown.pipeline.PipelineTask;
 import sune.app.mediadown.util.FXUtils;
 import sune.app.mediadown.util.Pair;
 import sune.app.mediadown.util.Utils;
@@ -272,6 +279,16 @@ public class PipelineTableView extends TableView<PipelineInfo> {
 		});
 	}
 	
+	/** @since 00.02.09 */
+	public void moveToFront(List<PipelineInfo> infos) {
+		Threads.executeEnsured(() -> {
+			// Move the last one first, so that the selected items keep their order
+			for(ListIterator<PipelineInfo> it = infos.listIterator(infos.size()); it.hasPrevious();) {
+				it.previous().moveToFront();
+			}
+		});
+	}
+	
 	public ObjectProperty<PipelineInfo> onItemDoubleClicked() {
 		if(onItemDoubleClicked == null) {
 			onItemDoubleClicked = new SimpleObjectProperty<>();
@@ -452,6 +469,36 @@ public class PipelineTableView extends TableView<PipelineInfo> {
 			return menuItem;
 		}
 		
+		/** @since 00.02.09 */
+		@Override
+		public ContextMenuItem createMoveToFront(String title) {
+			ContextMenuItem menuItem = new ContextMenuItem(title);
+			
+			menuItem.setOnAction((e) -> {
+				List<PipelineInfo> infos = table.selectedPipelines();
+				
+				if(infos.isEmpty()) {
+					return; // Nothing to move
+				}
+				
+				table.moveToFront(infos);
+			});
+			
+			menuItem.addOnContextMenuShowing((o, ov, pair) -> {
+				ContextMenuItem item = pair.a;
+				Stats stats = pair.b;
+				
+				int count = stats.count();
+				int started = stats.started();
+				int done = stats.done();
+				int stopped = stats.stopped();
+				
+				item.setDisable(started == 0 || (done == count || stopped == count));
+			});
+			
+			return menuItem;
+		}
+		
 		@Override
 		public ContextMenuItem createShowFile(String title) {
 			ContextMenuItem menuItem = new ContextMenuItem(title);
@@ -651,7 +698,7 @@ public class PipelineTableView extends TableView<PipelineInfo> {
 			public ProgressBarTableCell() {
 				getStyleClass().add("has-progress-bar");
 			}
-		
+			
 			private final void initialize() {
 				if(isInitialized()) {
 					return;
@@ -760,6 +807,8 @@ public class PipelineTableView extends TableView<PipelineInfo> {
 		ContextMenuItem createTerminate(String title);
 		/** @since 00.02.09 */
 		ContextMenuItem createRetry(String title);
+		/** @since 00.02.09 */
+		ContextMenuItem createMoveToFront(String title);
 		ContextMenuItem createShowFile(String title);
 		ContextMenuItem create(String title);
 		SeparatorContextMenuItem createSeparator();
@@ -1049,6 +1098,41 @@ public class PipelineTableView extends TableView<PipelineInfo> {
 		}
 	}
 	
+	/**
+	 * Applies updates of pipeline information on the FX thread in batches. Only the latest
+	 * data of each pipeline information are kept and all the pending ones are applied
+	 * in a single pass, at most one pass is waiting to run at any time.
+	 * @since 00.02.09
+	 */
+	private static final class PipelineInfoUpdates {
+		
+		private static final ConcurrentLinkedQueue<PipelineInfo> pending = new ConcurrentLinkedQueue<>();
+		private static final AtomicBoolean scheduled = new AtomicBoolean();
+		private static final Runnable flush = PipelineInfoUpdates::flush;
+		
+		// Forbid anyone to create an instance of this class
+		private PipelineInfoUpdates() {
+		}
+		
+		private static final void flush() {
+			// Allow a new pass to be scheduled, pipeline information added after this point
+			// are either applied in this pass or in the next one.
+			scheduled.set(false);
+			
+			for(PipelineInfo info; (info = pending.poll()) != null;) {
+				info.applyPendingData();
+			}
+		}
+		
+		public static final void add(PipelineInfo info) {
+			pending.add(info);
+			
+			if(!scheduled.getAndSet(true)) {
+				Platform.runLater(flush);
+			}
+		}
+	}
+	
 	public static final class PipelineInfo implements TrackerView {
 		
 		private static final long MIN_UPDATE_DIFF_TIME = 250L * 1000000L; // 250 ms
@@ -1075,6 +1159,8 @@ public class PipelineTableView extends TableView<PipelineInfo> {
 		
 		private long lastUpdateTime = Long.MIN_VALUE;
 		/** @since 00.02.09 */
+		private final AtomicReference<PipelineInfoData> pendingData = new AtomicReference<>();
+		/** @since 00.02.09 */
 		private volatile String lastState = null;
 		private boolean isQueued;
 		
@@ -1104,12 +1190,35 @@ public class PipelineTableView extends TableView<PipelineInfo> {
 			}
 			
 			if(needsUpdate) {
-				FXUtils.thread(() -> data.update(this));
+				updateData(data);
 				lastState = newState;
 				lastUpdateTime = now;
 			}
 		}
 		
+		/** @since 00.02.09 */
+		private final void updateData(PipelineInfoData data) {
+			if(Platform.isFxApplicationThread()) {
+				// Drop any older pending data, they would overwrite the new ones
+				pendingData.set(null);
+				data.update(this);
+				return;
+			}
+			
+			// Schedule only once, a scheduled pipeline information always uses the latest data
+			if(pendingData.getAndSet(data) == null) {
+				PipelineInfoUpdates.add(this);
+			}
+		}
+		
+		/** @since 00.02.09 */
+		private final void applyPendingData() {
+			PipelineInfoData data;
+			if((data = pendingData.getAndSet(null)) != null) {
+				data.update(this);
+			}
+		}
+		
 		public void start() {
 			Pipeline pipeline = pipeline();
 			
@@ -1221,6 +1330,22 @@ public class PipelineTableView extends TableView<PipelineInfo> {
 			}
 		}
 		
+		/** @since 00.02.09 */
+		public void moveToFront() {
+			Pipeline pipeline = pipeline();
+			
+			if(!pipeline.isStarted() || pipeline.isDone() || pipeline.isStopped()) {
+				return;
+			}
+			
+			PipelineTask task;
+			if(!((task = pipeline.getTask()) instanceof ManagerPipelineTask)) {
+				return; // Not waiting in any queue
+			}
+			
+			((ManagerPipelineTask<?, ?>) task).moveToFront();
+		}
+		
 		public void isQueued(boolean isQueued) {
 			this.isQueued = isQueued;
 		}
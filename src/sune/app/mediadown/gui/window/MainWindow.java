@@ -553,6 +553,7 @@ public final class MainWindow extends Window<BorderPane> {
 					);
 				}),
 			contextMenuItemFactory.createRetry(tr("context_menus.table.items.retry")),
+			contextMenuItemFactory.createMoveToFront(tr("context_menus.table.items.move_to_front")),
 			contextMenuItemFactory.createSeparator(),
 			contextMenuItemFactory.create(tr("context_menus.table.items.move_up"))
 				.setOnActivated((e) -> {
@@ -6,13 +6,15 @@ import java.util.function.Function;
 
 import sune.app.mediadown.Disposables;
 import sune.app.mediadown.MediaDownloader;
-import sune.app.mediadown.concurrent.PositionAwareQueueTaskExecutor;
 import sune.app.mediadown.concurrent.PositionAwareQueueTaskExecutor.PositionAwareQueueTaskResult;
+import sune.app.mediadown.concurrent.PriorityQueueTaskExecutor;
 import sune.app.mediadown.concurrent.QueueTaskExecutor.QueueTask;
 import sune.app.mediadown.concurrent.VarLoader;
 import sune.app.mediadown.conversion.ConversionCommand;
 import sune.app.mediadown.conversion.ConversionMedia;
 import sune.app.mediadown.conversion.ConversionProvider;
+import sune.app.mediadown.conversion.ConversionScheduler;
+import sune.app.mediadown.conversion.ConversionScheduler.Prioritizable;
 import sune.app.mediadown.entity.Converter;
 import sune.app.mediadown.event.ConversionEvent;
 import sune.app.mediadown.event.Event;
@@ -36,10 +38,10 @@ public final class ConversionManager implements QueueContext {
 	private static final VarLoader<ConversionManager> instance = VarLoader.of(ConversionManager::new);
 	
 	/** @since 00.02.08 */
-	private final PositionAwareQueueTaskExecutor<Void> executor;
+	private final PriorityQueueTaskExecutor<Void> executor;
 	
 	private ConversionManager() {
-		executor = new PositionAwareQueueTaskExecutor<>(MediaDownloader.configuration().parallelConversions());
+		executor = new PriorityQueueTaskExecutor<>(MediaDownloader.configuration().parallelConversions());
 		Disposables.add(this::dispose);
 	}
 	
@@ -88,7 +90,7 @@ public final class ConversionManager implements QueueContext {
 	}
 	
 	/** @since 00.02.09 */
-	private static final class ConversionDelegate implements Converter {
+	private static final class ConversionDelegate implements Converter, Prioritizable {
 		
 		private final ConversionTask task;
 		private EventRegistry<ConversionEvent> eventDelegate;
@@ -156,6 +158,17 @@ public final class ConversionManager implements QueueContext {
 		@Override public boolean isError() { return doAction(Converter::isError, false); }
 		@Override public TrackerManager trackerManager() { return doAction(Converter::trackerManager, null); }
 		
+		@Override
+		public void priority(int priority) {
+			// The converter may not be created yet, it then takes the priority from the task
+			task.priority = priority;
+			
+			Converter delegate;
+			if((delegate = delegate()) instanceof Prioritizable) {
+				((Prioritizable) delegate).priority(priority);
+			}
+		}
+		
 		@Override
 		public <V> void addEventListener(Event<? extends ConversionEvent, V> event, Listener<V> listener) {
 			Converter delegate;
@@ -191,6 +204,8 @@ public final class ConversionManager implements QueueContext {
 		private Converter converter;
 		/** @since 00.02.09 */
 		private ConversionDelegate delegate;
+		/** @since 00.02.09 */
+		private volatile int priority = ConversionScheduler.PRIORITY_NORMAL;
 		
 		public ConversionTask(ConversionProvider provider, List<ConversionMedia> inputs, ResolvedMedia output) {
 			this.provider = Objects.requireNonNull(provider);
@@ -229,6 +244,10 @@ public final class ConversionManager implements QueueContext {
 					delegate.converterCreated();
 				}
 				
+				if(converter instanceof Prioritizable) {
+					((Prioritizable) converter).priority(priority);
+				}
+				
 				converter.start(command);
 				return null;
 			} catch(Exception ex) {
@@ -6,8 +6,8 @@ import java.util.Objects;
 
 import sune.app.mediadown.Disposables;
 import sune.app.mediadown.MediaDownloader;
-import sune.app.mediadown.concurrent.PositionAwareQueueTaskExecutor;
 import sune.app.mediadown.concurrent.PositionAwareQueueTaskExecutor.PositionAwareQueueTaskResult;
+import sune.app.mediadown.concurrent.PriorityQueueTaskExecutor;
 import sune.app.mediadown.concurrent.QueueTaskExecutor.QueueTask;
 import sune.app.mediadown.concurrent.VarLoader;
 import sune.app.mediadown.download.Download;
@@ -29,10 +29,10 @@ public final class DownloadManager implements QueueContext {
 	/** @since 00.02.08 */
 	private static final VarLoader<DownloadManager> instance = VarLoader.of(DownloadManager::new);
 	
-	private final PositionAwareQueueTaskExecutor<Long> executor;
+	private final PriorityQueueTaskExecutor<Long> executor;
 	
 	private DownloadManager() {
-		executor = new PositionAwareQueueTaskExecutor<>(MediaDownloader.configuration().parallelDownloads());
+		executor = new PriorityQueueTaskExecutor<>(MediaDownloader.configuration().parallelDownloads());
 		Disposables.add(this::dispose);
 	}
 	
@@ -47,7 +47,7 @@ public final class DownloadManager implements QueueContext {
 		return downloader.download(media, destination, mediaConfiguration);
 	}
 	
-	private final DownloadManagerTask createTask(DownloadResult result, Media media, Path destination,
+	private final DownloadManagerTask createTask(StreamingDownloadResult result, Media media, Path destination,
 			MediaDownloadConfiguration mediaConfiguration, DownloadConfiguration configuration) {
 		return new DownloadManagerTask(result, media, destination, mediaConfiguration, configuration);
 	}
@@ -63,7 +63,10 @@ public final class DownloadManager implements QueueContext {
 			throw new IllegalArgumentException();
 		}
 		
-		DownloadResult result = createDownloadResult(media, destination, mediaConfiguration);
+		// Convert the media while they are being downloaded, if possible
+		StreamingDownloadResult result = new StreamingDownloadResult(
+			createDownloadResult(media, destination, mediaConfiguration)
+		);
 		DownloadManagerTask task = createTask(result, media, destination, mediaConfiguration, configuration);
 		PositionAwareQueueTaskResult<Long> taskResult = executor.submit(task);
 		
@@ -91,13 +94,13 @@ public final class DownloadManager implements QueueContext {
 	/** @since 00.02.08 */
 	private static final class DownloadManagerTask implements QueueTask<Long>, MediaDownloadContext {
 		
-		private final DownloadResult result;
+		private final StreamingDownloadResult result;
 		private final Media media;
 		private final Path destination;
 		private final MediaDownloadConfiguration mediaConfiguration;
 		private final DownloadConfiguration configuration;
 		
-		private DownloadManagerTask(DownloadResult result, Media media, Path destination,
+		private DownloadManagerTask(StreamingDownloadResult result, Media media, Path destination,
 				MediaDownloadConfiguration mediaConfiguration, DownloadConfiguration configuration) {
 			this.result = Objects.requireNonNull(result);
 			this.media = Objects.requireNonNull(media);
@@ -114,9 +117,12 @@ public final class DownloadManager implements QueueContext {
 		@Override
 		public Long call() throws Exception {
 			try(Download download = result.download()) {
+				result.start();
 				download.start();
+				result.finish(null);
 				return 0L;
 			} catch(Exception ex) {
+				result.finish(ex);
 				throw new WrappedReportContextException(ex, createContext());
 			}
 		}
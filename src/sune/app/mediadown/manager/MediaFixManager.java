@@ -5,8 +5,8 @@ import java.util.Objects;
 
 import sune.app.mediadown.Disposables;
 import sune.app.mediadown.MediaDownloader;
-import sune.app.mediadown.concurrent.PositionAwareQueueTaskExecutor;
 import sune.app.mediadown.concurrent.PositionAwareQueueTaskExecutor.PositionAwareQueueTaskResult;
+import sune.app.mediadown.concurrent.PriorityQueueTaskExecutor;
 import sune.app.mediadown.concurrent.QueueTaskExecutor.QueueTask;
 import sune.app.mediadown.concurrent.VarLoader;
 import sune.app.mediadown.conversion.ConversionMedia;
@@ -26,10 +26,10 @@ public final class MediaFixManager implements QueueContext {
 	
 	private static final VarLoader<MediaFixManager> instance = VarLoader.of(MediaFixManager::new);
 	
-	private final PositionAwareQueueTaskExecutor<Void> executor;
+	private final PriorityQueueTaskExecutor<Void> executor;
 	
 	private MediaFixManager() {
-		executor = new PositionAwareQueueTaskExecutor<>(MediaDownloader.configuration().parallelConversions());
+		executor = new PriorityQueueTaskExecutor<>(MediaDownloader.configuration().parallelConversions());
 		Disposables.add(this::dispose);
 	}
 	
@@ -43,13 +43,19 @@ public final class MediaFixManager implements QueueContext {
 	
 	public final PositionAwareManagerSubmitResult<MediaFixer, Void> submit(
 			List<ConversionMedia> inputs, ResolvedMedia output
+	) {
+		return submit(inputs, output, false);
+	}
+	
+	public final PositionAwareManagerSubmitResult<MediaFixer, Void> submit(
+			List<ConversionMedia> inputs, ResolvedMedia output, boolean needConversion
 	) {
 		if(inputs == null || inputs.isEmpty() || output == null) {
 			throw new IllegalArgumentException();
 		}
 		
 		MediaFixer fixer = mediaFixer();
-		FFmpegTask task = new FFmpegTask(fixer, inputs, output);
+		FFmpegTask task = new FFmpegTask(fixer, inputs, output, needConversion);
 		PositionAwareQueueTaskResult<Void> taskResult = executor.submit(task);
 		
 		return new PositionAwareManagerSubmitResult<>(fixer, taskResult, this);
@@ -77,11 +83,14 @@ public final class MediaFixManager implements QueueContext {
 		private final MediaFixer fixer;
 		private final List<ConversionMedia> inputs;
 		private final ResolvedMedia output;
+		private final boolean needConversion;
 		
-		public FFmpegTask(MediaFixer fixer, List<ConversionMedia> inputs, ResolvedMedia output) {
+		public FFmpegTask(MediaFixer fixer, List<ConversionMedia> inputs, ResolvedMedia output,
+				boolean needConversion) {
 			this.fixer = Objects.requireNonNull(fixer);
 			this.inputs = Objects.requireNonNull(inputs);
 			this.output = Objects.requireNonNull(output);
+			this.needConversion = needConversion;
 		}
 		
 		private final ReportContext createContext() {
@@ -92,7 +101,7 @@ public final class MediaFixManager implements QueueContext {
 		@Override
 		public Void call() throws Exception {
 			try {
-				fixer.start(inputs, output);
+				fixer.start(inputs, output, needConversion);
 				return null;
 			} catch(Exception ex) {
 				throw new WrappedReportContextException(ex, createContext());
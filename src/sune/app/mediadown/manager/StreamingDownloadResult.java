@@ -0,0 +1,207 @@
+package sune.app.mediadown.manager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import sune.app.mediadown.MediaDownloader;
+import sune.app.mediadown.conversion.ConversionCommand;
+import sune.app.mediadown.conversion.ConversionMedia;
+import sune.app.mediadown.conversion.ConversionScheduler.Workload;
+import sune.app.mediadown.download.Download;
+import sune.app.mediadown.download.DownloadResult;
+import sune.app.mediadown.download.DownloadStream;
+import sune.app.mediadown.entity.Converter;
+import sune.app.mediadown.ffmpeg.FFmpeg;
+import sune.app.mediadown.gui.table.ResolvedMedia;
+import sune.app.mediadown.media.Media;
+import sune.app.mediadown.media.MediaFormat;
+import sune.app.mediadown.pipeline.DownloadPipelineResult;
+import sune.app.mediadown.pipeline.PipelineResult;
+import sune.app.mediadown.util.NIO;
+import sune.app.mediadown.util.Utils.Ignore;
+
+/**
+ * Result of a download that converts the media while they are being downloaded, if possible.
+ * Right before the download starts, its planned conversion is checked. If the conversion only
+ * merges the inputs by copying their streams and all the inputs are in containers that FFmpeg
+ * can read without seeking, i.e. HLS or DASH segments, TS, MKV or WebM, the inputs are registered
+ * as download streams and the conversion is submitted right away. The pipeline then only waits
+ * for the conversion. If the download fails, is stopped, or does not produce the planned inputs,
+ * the conversion is cancelled and the media are converted after the download as usual.
+ * @since 00.02.09
+ */
+final class StreamingDownloadResult implements DownloadResult {
+	
+	private final DownloadResult result;
+	private DownloadPipelineResult planned;
+	private List<DownloadStream> streams;
+	private PositionAwareManagerSubmitResult<Converter, Void> conversion;
+	private volatile boolean streamed;
+	
+	public StreamingDownloadResult(DownloadResult result) {
+		this.result = Objects.requireNonNull(result);
+	}
+	
+	private static final boolean isStreamable(ConversionMedia input) {
+		// Concatenated segments of HLS and DASH are either TS or fragmented MP4
+		return Media.root(input.media()).format().isAnyOf(MediaFormat.M3U8, MediaFormat.DASH)
+					|| input.format().isAnyOf(MediaFormat.TS, MediaFormat.MKV, MediaFormat.WEBMV, MediaFormat.WEBMA);
+	}
+	
+	private static final boolean isCodecCopy(List<ConversionMedia> inputs, ResolvedMedia output) {
+		ConversionCommand command = MediaDownloader.configuration().conversionProvider()
+			.createCommand(inputs, output);
+		
+		return command instanceof FFmpeg.Command
+					&& ((FFmpeg.Command) command).workload() == Workload.IO_BOUND;
+	}
+	
+	private static final boolean isEmpty(Path path) {
+		return !NIO.exists(path) || Ignore.defaultValue(() -> NIO.size(path) == 0L, false);
+	}
+	
+	/** Returns the conversion planned by the download, if it can be run during the download. */
+	private static final DownloadPipelineResult streamableConversion(PipelineResult pipelineResult) {
+		if(!(pipelineResult instanceof DownloadPipelineResult)) {
+			return null;
+		}
+		
+		DownloadPipelineResult planned = (DownloadPipelineResult) pipelineResult;
+		
+		if(!planned.needConversion()
+				|| planned.output().media().metadata().get("media.fix.required", false)) {
+			return null; // No conversion, or the media must be fixed before it
+		}
+		
+		for(ConversionMedia input : planned.inputs()) {
+			// Only empty files, since the content of a resumed download cannot be reported,
+			// and only files that are not already streamed by the download itself
+			if(!isStreamable(input) || !isEmpty(input.path()) || DownloadStream.of(input.path()) != null) {
+				return null;
+			}
+		}
+		
+		return Ignore.defaultValue(() -> isCodecCopy(planned.inputs(), planned.output()), false)
+					? planned
+					: null;
+	}
+	
+	private static final List<Path> paths(List<ConversionMedia> inputs) {
+		List<Path> paths = new ArrayList<>(inputs.size());
+		
+		for(ConversionMedia input : inputs) {
+			paths.add(input.path());
+		}
+		
+		return paths;
+	}
+	
+	private final boolean isPlanned(PipelineResult pipelineResult) {
+		if(!(pipelineResult instanceof DownloadPipelineResult)) {
+			return false;
+		}
+		
+		DownloadPipelineResult actual = (DownloadPipelineResult) pipelineResult;
+		return actual.needConversion()
+					&& paths(actual.inputs()).equals(paths(planned.inputs()))
+					&& actual.output().path().equals(planned.output().path());
+	}
+	
+	private final boolean isWholeStreamed(DownloadStream stream) {
+		// The file may have been written by other means than the internal downloaders
+		return Ignore.defaultValue(() -> stream.available() == NIO.size(stream.path()), false);
+	}
+	
+	/**
+	 * Registers the download streams and submits the conversion, if the planned conversion
+	 * can be run during the download. Must be called before the download is started.
+	 */
+	public void start() {
+		// The download may not know its result before it is started
+		DownloadPipelineResult planned;
+		if((planned = streamableConversion(Ignore.call(result::pipelineResult))) == null) {
+			return;
+		}
+		
+		List<DownloadStream> streams = new ArrayList<>();
+		
+		for(ConversionMedia input : planned.inputs()) {
+			streams.add(DownloadStream.open(input.path()));
+		}
+		
+		this.planned = planned;
+		this.streams = streams;
+		
+		try {
+			conversion = ConversionManager.instance().submit(planned.inputs(), planned.output());
+		} catch(RuntimeException ex) {
+			finish(ex);
+			throw ex;
+		}
+	}
+	
+	/**
+	 * Completes the download streams, if the download was successful, otherwise
+	 * cancels the conversion.
+	 * @param exception The exception thrown by the download, or {@code null}
+	 */
+	public void finish(Exception exception) {
+		List<DownloadStream> streams;
+		if((streams = this.streams) == null) {
+			return; // Not streamed or already finished
+		}
+		
+		this.streams = null;
+		Download download = result.download();
+		boolean success = exception == null
+				&& !download.isStopped()
+				&& !download.isError()
+				&& isPlanned(Ignore.call(result::pipelineResult));
+		
+		for(DownloadStream stream : streams) {
+			success = success && isWholeStreamed(stream);
+		}
+		
+		for(DownloadStream stream : streams) {
+			if(success) {
+				stream.complete();
+			} else {
+				stream.fail(exception != null ? exception : new IOException("Download not completed"));
+			}
+			
+			stream.close();
+		}
+		
+		PositionAwareManagerSubmitResult<Converter, Void> c;
+		if((c = conversion) == null) {
+			return;
+		}
+		
+		if(success) {
+			streamed = true;
+			return;
+		}
+		
+		conversion = null;
+		// Remove the conversion from the queue, or stop it, if it is already running
+		Ignore.callVoid(c::cancel);
+		Ignore.callVoid(() -> c.value().stop());
+	}
+	
+	@Override
+	public Download download() {
+		return result.download();
+	}
+	
+	@Override
+	public PipelineResult pipelineResult() {
+		if(!streamed) {
+			return result.pipelineResult();
+		}
+		
+		return DownloadPipelineResult.doConversion(planned.inputs(), planned.output(), conversion);
+	}
+}
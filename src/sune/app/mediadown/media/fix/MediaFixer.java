@@ -1,5 +1,6 @@
 package sune.app.mediadown.media.fix;
 
+import java.nio.file.Path;
 import java.util.List;
 
 import sune.app.mediadown.conversion.ConversionMedia;
@@ -9,6 +10,31 @@ import sune.app.mediadown.gui.table.ResolvedMedia;
 public interface MediaFixer extends AutoCloseable, MediaFixerContext {
 	
 	void start(List<ConversionMedia> inputs, ResolvedMedia output) throws Exception;
+	
+	/**
+	 * Starts fixing the given inputs. If the fixed inputs are converted afterwards,
+	 * the fixer may leave a part of the fix to the conversion, in which case
+	 * the conversion must use the inputs returned by {@link #conversionInputs()}.
+	 */
+	default void start(List<ConversionMedia> inputs, ResolvedMedia output, boolean needConversion)
+			throws Exception {
+		start(inputs, output);
+	}
+	
+	/** @return The inputs of the conversion that follows the fix. */
+	default List<ConversionMedia> conversionInputs() {
+		return inputs();
+	}
+	
+	/**
+	 * Returns the paths of the original inputs that are replaced by {@link #conversionInputs()}.
+	 * The fixer keeps them, so they must be deleted once the conversion successfully finishes.
+	 * @return The list of paths, may be empty
+	 */
+	default List<Path> replacedInputs() {
+		return List.of();
+	}
+	
 	void stop() throws Exception;
 	void pause() throws Exception;
 	void resume() throws Exception;
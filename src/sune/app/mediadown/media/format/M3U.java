@@ -7,13 +7,20 @@ import java.io.Reader;
 import java.io.StringReader;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.stream.Collectors;
 
+import sune.app.mediadown.concurrent.Threads;
 import sune.app.mediadown.download.segment.RemoteFileSegment;
 import sune.app.mediadown.download.segment.RemoteFileSegmentsHolder;
 import sune.app.mediadown.media.MediaConstants;
@@ -27,6 +34,7 @@ import sune.app.mediadown.net.Web;
 import sune.app.mediadown.net.Web.Request;
 import sune.app.mediadown.net.Web.Response;
 import sune.app.mediadown.util.CheckedFunction;
+import sune.app.mediadown.util.CheckedRunnable;
 import sune.app.mediadown.util.Pair;
 import sune.app.mediadown.util.Regex;
 import sune.app.mediadown.util.Utils;
@@ -93,7 +101,8 @@ public final class M3U {
 	public static final List<M3UCombinedFile> parse(Request request) throws Exception {
 		URI baseURI = Net.baseURI(request.uri());
 		
-		try(M3UReader reader = new M3UReader(baseURI, request.uri(), streamResolver(request), null)) {
+		try(M3UPlaylistLoader loader = M3UPlaylistLoader.concurrent(streamResolver(request));
+				M3UReader reader = new M3UReader(baseURI, request.uri(), loader, null)) {
 			return build(reader.read());
 		}
 	}
@@ -101,7 +110,8 @@ public final class M3U {
 	public static final List<M3UCombinedFile> parse(String uri, String content) throws Exception {
 		URI uriObj = Net.uri(uri), baseURI = Net.baseURI(uriObj);
 		
-		try(M3UReader reader = new M3UReader(baseURI, uriObj, streamResolver(), content)) {
+		try(M3UPlaylistLoader loader = M3UPlaylistLoader.concurrent(streamResolver());
+				M3UReader reader = new M3UReader(baseURI, uriObj, loader, content)) {
 			return build(reader.read());
 		}
 	}
@@ -544,7 +554,7 @@ public final class M3U {
 		
 		/** @since 00.02.09 */
 		private RemoteFileSegmentsHolder segmentsHolder() {
-			return new RemoteFileSegmentsHolder(segments, duration);
+			return RemoteFileSegmentsHolder.of(segments, duration);
 		}
 		
 		/** @since 00.02.09 */
@@ -613,6 +623,101 @@ public final class M3U {
 		}
 	}
 	
+	/**
+	 * Loads the nested playlists of a master playlist. The playlists may be loaded
+	 * concurrently, at most a few at once, and each distinct playlist is loaded only once,
+	 * even if referenced multiple times, e.g. by multiple groups.
+	 * @since 00.02.09
+	 */
+	protected static final class M3UPlaylistLoader implements AutoCloseable {
+		
+		private static final int MAX_CONCURRENT_PLAYLISTS = 6;
+		
+		private final CheckedFunction<URI, Response.OfStream> streamResolver;
+		private final ExecutorService executor;
+		/** Only accessed from the thread that reads the master playlist. */
+		private final Map<URI, Future<List<M3UFileBuilder>>> playlists = new HashMap<>();
+		
+		private M3UPlaylistLoader(CheckedFunction<URI, Response.OfStream> streamResolver,
+				ExecutorService executor) {
+			this.streamResolver = Objects.requireNonNull(streamResolver);
+			this.executor = executor;
+		}
+		
+		public static final M3UPlaylistLoader concurrent(CheckedFunction<URI, Response.OfStream> streamResolver) {
+			ExecutorService executor = Executors.newFixedThreadPool(
+				MAX_CONCURRENT_PLAYLISTS, Threads.ioThreadFactory()
+			);
+			
+			return new M3UPlaylistLoader(streamResolver, executor);
+		}
+		
+		public static final M3UPlaylistLoader sequential(CheckedFunction<URI, Response.OfStream> streamResolver) {
+			return new M3UPlaylistLoader(streamResolver, null);
+		}
+		
+		private final List<M3UFileBuilder> read(URI baseURI, URI uri) throws Exception {
+			// Nested playlists of a nested playlist are loaded sequentially, so that the tasks
+			// never wait for other tasks in the same executor.
+			try(M3UReader reader = new M3UReader(baseURI, uri, sequential(streamResolver), null)) {
+				return reader.read().files();
+			}
+		}
+		
+		/** Starts loading the given playlist, if it is not already being loaded. */
+		public Future<List<M3UFileBuilder>> load(URI baseURI, URI uri) {
+			Future<List<M3UFileBuilder>> future;
+			if((future = playlists.get(uri)) != null) {
+				return future;
+			}
+			
+			if(executor != null) {
+				future = executor.submit(() -> read(baseURI, uri));
+			} else {
+				CompletableFuture<List<M3UFileBuilder>> completable = new CompletableFuture<>();
+				
+				try {
+					completable.complete(read(baseURI, uri));
+				} catch(Exception ex) {
+					completable.completeExceptionally(ex);
+				}
+				
+				future = completable;
+			}
+			
+			playlists.put(uri, future);
+			return future;
+		}
+		
+		/**
+		 * Waits for the given playlist to be loaded and returns its files. The files are
+		 * always copied, since the same playlist may be used multiple times.
+		 */
+		public List<M3UFileBuilder> get(Future<List<M3UFileBuilder>> future) throws Exception {
+			List<M3UFileBuilder> files;
+			
+			try {
+				files = future.get();
+			} catch(ExecutionException ex) {
+				Throwable cause = ex.getCause();
+				throw cause instanceof Exception ? (Exception) cause : ex;
+			}
+			
+			return files.stream().map(M3UFileBuilder::copy).collect(Collectors.toList());
+		}
+		
+		public CheckedFunction<URI, Response.OfStream> streamResolver() {
+			return streamResolver;
+		}
+		
+		@Override
+		public void close() throws Exception {
+			if(executor != null) {
+				executor.shutdownNow();
+			}
+		}
+	}
+	
 	protected static final class M3UReader implements AutoCloseable {
 		
 		private static final char CHAR_META                    = '#';
@@ -643,7 +748,8 @@ public final class M3U {
 		
 		private final URI baseURI;
 		private final URI uri;
-		private final CheckedFunction<URI, Response.OfStream> streamResolver;
+		/** @since 00.02.09 */
+		private final M3UPlaylistLoader loader;
 		private final Response.OfStream response;
 		private final BufferedReader reader;
 		
@@ -654,19 +760,24 @@ public final class M3U {
 		private M3UFileBuilder fileBuilder;
 		private M3UKey key;
 		private final Map<String, List<M3UFileBuilder>> groups = new LinkedHashMap<>();
+		/**
+		 * Actions processing the nested playlists in the order they were referenced.
+		 * @since 00.02.09
+		 */
+		private final List<CheckedRunnable> pending = new ArrayList<>();
 		
-		private M3UReader(URI baseURI, URI uri, CheckedFunction<URI, Response.OfStream> streamResolver, String content)
+		private M3UReader(URI baseURI, URI uri, M3UPlaylistLoader loader, String content)
 				throws Exception {
 			this.baseURI = Objects.requireNonNull(baseURI);
 			this.uri = Objects.requireNonNull(uri);
-			this.streamResolver = Objects.requireNonNull(streamResolver);
+			this.loader = Objects.requireNonNull(loader);
 			
 			Response.OfStream sr = null;
 			Reader r = null;
 			if(content != null) {
 				r = new StringReader(content);
 			} else {
-				sr = streamResolver.apply(uri);
+				sr = loader.streamResolver().apply(uri);
 				r = new InputStreamReader(sr.stream());
 			}
 			
@@ -821,59 +932,55 @@ public final class M3U {
 			Map<String, String> attrs = parseAttributeList(value);
 			String type = attrs.get("TYPE");
 			String groupId = attrs.get("GROUP-ID");
-			List<M3UFileBuilder> files = null;
 			
 			switch(type.toLowerCase()) {
 				case "audio": {
 					String language = attrs.get("LANGUAGE");
 					int channels = Integer.valueOf(attrs.getOrDefault("CHANNELS", "-1"));
-					String uri = attrs.get("URI");
-					
-					URI resolvedURI = resolveURI(uri);
-					URI resolvedBaseURI = Net.isRelativeURI(uri) ? resolveURI(uri) : Net.baseURI(Net.uri(uri));
+					Future<List<M3UFileBuilder>> future = loadPlaylist(attrs.get("URI"));
 					
-					try(M3UReader reader = new M3UReader(resolvedBaseURI, resolvedURI, streamResolver, null)) {
-						files = reader.read().files();
-					}
-					
-					for(M3UFileBuilder file : files) {
-						file.type(M3UFileType.AUDIO);
-						file.addAttribute("channels", String.valueOf(channels));
-						file.addAttribute("language", String.valueOf(language));
-					}
+					pending.add(() -> {
+						List<M3UFileBuilder> files = loader.get(future);
+						
+						for(M3UFileBuilder file : files) {
+							file.type(M3UFileType.AUDIO);
+							file.addAttribute("channels", String.valueOf(channels));
+							file.addAttribute("language", String.valueOf(language));
+						}
+						
+						addToGroup(groupId, files);
+					});
 					
 					break;
 				}
 				case "subtitles": {
 					String language = attrs.get("LANGUAGE");
-					String uri = attrs.get("URI");
-					URI resolvedURI = resolveURI(uri);
-					URI resolvedBaseURI = Net.isRelativeURI(uri) ? resolveURI(uri) : Net.baseURI(Net.uri(uri));
+					Future<List<M3UFileBuilder>> future = loadPlaylist(attrs.get("URI"));
 					
-					try(M3UReader reader = new M3UReader(resolvedBaseURI, resolvedURI, streamResolver, null)) {
-						files = reader.read().files();
-					}
-					
-					for(M3UFileBuilder file : files) {
-						file.type(M3UFileType.SUBTITLES);
-						file.addAttribute("language", String.valueOf(language));
-					}
+					pending.add(() -> {
+						List<M3UFileBuilder> files = loader.get(future);
+						
+						for(M3UFileBuilder file : files) {
+							file.type(M3UFileType.SUBTITLES);
+							file.addAttribute("language", String.valueOf(language));
+						}
+						
+						addToGroup(groupId, files);
+					});
 					
 					break;
 				}
 			}
-			
-			if(files == null) {
-				return;
-			}
-			
-			final var list = files;
+		}
+		
+		/** @since 00.02.09 */
+		private final void addToGroup(String groupId, List<M3UFileBuilder> files) {
 			groups.compute(groupId, (k, v) -> {
 				if(v == null) {
-					return list;
+					return files;
 				}
 				
-				v.addAll(list);
+				v.addAll(files);
 				return v;
 			});
 		}
@@ -896,13 +1003,11 @@ public final class M3U {
 			return Net.isRelativeURI(uri) ? Net.resolve(baseURI, uri) : Net.uri(uri);
 		}
 		
-		private final List<M3UFileBuilder> readStreamInfo(String uri) throws Exception {
+		/** @since 00.02.09 */
+		private final Future<List<M3UFileBuilder>> loadPlaylist(String uri) {
 			URI resolvedURI = resolveURI(uri);
 			URI resolvedBaseURI = Net.isRelativeURI(uri) ? resolveURI(uri) : Net.baseURI(Net.uri(uri));
-			
-			try(M3UReader reader = new M3UReader(resolvedBaseURI, resolvedURI, streamResolver, null)) {
-				return reader.read().files();
-			}
+			return loader.load(resolvedBaseURI, resolvedURI);
 		}
 		
 		public final M3UReaderResult read() throws Exception {
@@ -926,21 +1031,32 @@ public final class M3U {
 					fileBuilder.addSegment(segmentBuilder.build());
 					segmentBuilder.reset();
 				} else if(fileBuilder.isDirty()) { // File URI
-					List<M3UFileBuilder> builders = readStreamInfo(line);
-					
+					Future<List<M3UFileBuilder>> future = loadPlaylist(line);
 					MediaResolution resolution = fileBuilder.resolution();
 					Map<String, String> attributes = fileBuilder.attributes();
 					
-					for(M3UFileBuilder builder : builders) {
-						builder.resolution(resolution);
-						builder.attributes(attributes);
-					}
+					pending.add(() -> {
+						List<M3UFileBuilder> builders = loader.get(future);
+						
+						for(M3UFileBuilder builder : builders) {
+							builder.resolution(resolution);
+							builder.attributes(attributes);
+						}
+						
+						files.addAll(builders);
+					});
 					
-					files.addAll(builders);
 					fileBuilder.reset();
 				}
 			}
 			
+			// The nested playlists are being loaded meanwhile, process them in the original order
+			for(CheckedRunnable action : pending) {
+				action.run();
+			}
+			
+			pending.clear();
+			
 			// If there were only segments in this file
 			if(files.isEmpty()) {
 				fileBuilder.uri(uri);
@@ -4,15 +4,22 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.regex.MatchResult;
+import java.util.RandomAccess;
 import java.util.stream.Collectors;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Attribute;
 import org.jsoup.nodes.Attributes;
@@ -33,7 +40,6 @@ import sune.app.mediadown.net.Net;
 import sune.app.mediadown.net.Web;
 import sune.app.mediadown.net.Web.Request;
 import sune.app.mediadown.net.Web.Response;
-import sune.app.mediadown.util.Regex;
 import sune.app.mediadown.util.Utils;
 
 /** @since 00.02.05 */
@@ -108,22 +114,31 @@ public final class MPD {
 		}
 		
 		public static final Segment parse(Element element) {
+			return parse(
+				element.hasAttr("t") ? element.attr("t") : null,
+				element.hasAttr("d") ? element.attr("d") : null,
+				element.hasAttr("r") ? element.attr("r") : null
+			);
+		}
+		
+		/** @since 00.02.09 */
+		public static final Segment parse(String t, String d, String r) {
 			long time = -1L;
 			long duration = -1L;
 			int count = 1;
 			
-			if(element.hasAttr("t")) {
-				time = Long.parseLong(element.attr("t"));
+			if(t != null) {
+				time = Long.parseLong(t);
 			}
 			
-			if(element.hasAttr("d")) {
-				duration = Long.parseLong(element.attr("d"));
+			if(d != null) {
+				duration = Long.parseLong(d);
 			}
 			
-			if(element.hasAttr("r")) {
+			if(r != null) {
 				// Number of repetitions AFTER the first segment,
 				// i.e. first segment + 'r' more segments.
-				count += Math.max(0, Integer.parseInt(element.attr("r")));
+				count += Math.max(0, Integer.parseInt(r));
 			}
 			
 			return new Segment(time, duration, count);
@@ -196,16 +211,24 @@ public final class MPD {
 			Element elementTimeline = element.getElementsByTag(SegmentTimeline.NODE_NAME).first();
 			if(elementTimeline == null)
 				throw new IllegalArgumentException();
-			int timescale = Math.max(1, Integer.parseInt(element.attr("timescale")));
-			String media = element.attr("media");
-			String initialization = element.attr("initialization");
-			String startNumberStr = element.attr("startNumber");
+			return parse(
+				element.attr("timescale"),
+				element.attr("media"),
+				element.attr("initialization"),
+				element.attr("startNumber"),
+				element.attr("presentationTimeOffset"),
+				SegmentTimeline.parse(elementTimeline)
+			);
+		}
+		
+		/** @since 00.02.09 */
+		public static final SegmentTemplate parse(String strTimescale, String media, String initialization,
+				String startNumberStr, String strTimeOffset, SegmentTimeline timeline) {
+			int timescale = Math.max(1, Integer.parseInt(strTimescale));
 			if(startNumberStr.isEmpty()) startNumberStr = "0";
 			int startNumber = Math.max(0, Integer.parseInt(startNumberStr));
-			String strTimeOffset = element.attr("presentationTimeOffset");
 			if(strTimeOffset.isEmpty()) strTimeOffset = "0";
 			long timeOffset = Long.parseLong(strTimeOffset);
-			SegmentTimeline timeline = SegmentTimeline.parse(elementTimeline);
 			return new SegmentTemplate(timescale, media, initialization, startNumber, timeOffset, timeline);
 		}
 		
@@ -234,6 +257,50 @@ public final class MPD {
 		}
 	}
 	
+	/**
+	 * Raw attributes of a SegmentTemplate element and of its timeline. The template itself
+	 * is constructed only when some representation uses it, so that an invalid template
+	 * that is not used at all does not fail the parsing.
+	 * @since 00.02.09
+	 */
+	private static final class SegmentTemplateSource {
+		
+		private final String timescale;
+		private final String media;
+		private final String initialization;
+		private final String startNumber;
+		private final String timeOffset;
+		/** The t, d and r attributes of each S element, {@code null} if there is no timeline. */
+		private final List<String[]> timeline;
+		
+		public SegmentTemplateSource(String timescale, String media, String initialization,
+				String startNumber, String timeOffset, List<String[]> timeline) {
+			this.timescale = timescale;
+			this.media = media;
+			this.initialization = initialization;
+			this.startNumber = startNumber;
+			this.timeOffset = timeOffset;
+			this.timeline = timeline; // May be null
+		}
+		
+		public final SegmentTemplate build() {
+			if(timeline == null) {
+				throw new IllegalArgumentException("No SegmentTimeline");
+			}
+			
+			List<Segment> segments = new ArrayList<>(timeline.size());
+			
+			for(String[] segment : timeline) {
+				segments.add(Segment.parse(segment[0], segment[1], segment[2]));
+			}
+			
+			return SegmentTemplate.parse(
+				timescale, media, initialization, startNumber, timeOffset,
+				new SegmentTimeline(segments)
+			);
+		}
+	}
+	
 	private static final class Representation {
 		
 		public static final String NODE_NAME = "Representation";
@@ -256,15 +323,6 @@ public final class MPD {
 				throw new IllegalArgumentException();
 			}
 			
-			String id = element.attr("id");
-			MediaResolution resolution = MediaResolution.UNKNOWN;
-			
-			if(element.hasAttr("width") && element.hasAttr("height")) {
-				int width = Integer.parseInt(element.attr("width"));
-				int height = Integer.parseInt(element.attr("height"));
-				resolution = new MediaResolution(width, height);
-			}
-			
 			Map<String, String> attributes = elementAttributesToMap(element.attributes());
 			
 			SegmentTemplate template = null;
@@ -274,6 +332,20 @@ public final class MPD {
 				template = SegmentTemplate.parse(elementSegmentTemplate);
 			}
 			
+			return of(attributes, template);
+		}
+		
+		/** @since 00.02.09 */
+		public static final Representation of(Map<String, String> attributes, SegmentTemplate template) {
+			String id = attributes.getOrDefault("id", "");
+			MediaResolution resolution = MediaResolution.UNKNOWN;
+			
+			if(attributes.containsKey("width") && attributes.containsKey("height")) {
+				int width = Integer.parseInt(attributes.get("width"));
+				int height = Integer.parseInt(attributes.get("height"));
+				resolution = new MediaResolution(width, height);
+			}
+			
 			return new Representation(id, resolution, attributes, template);
 		}
 		
@@ -309,159 +381,318 @@ public final class MPD {
 		}
 	}
 	
-	private static final class MPDFileConstructor {
-		
-		/** @since 00.02.09 */
-		private static final Regex REGEX_SEGMENT_TEMPLATE = Regex.of("\\$(.*?)\\$");
-		
-		private final URI baseURI;
-		private final Representation representation;
-		private final SegmentTemplate template;
-		private final List<MPDSegment> segments = new ArrayList<>();
-		private long time;
-		private int count;
-		private final ContentProtection protection;
-		private final Map<String, String> attributes;
-		
-		private final Map<String, String> formatMap = new HashMap<>();
-		
-		public MPDFileConstructor(URI baseURI, Representation representation, SegmentTemplate template,
-				ContentProtection protection, Map<String, String> attributes) {
-			this.baseURI = Objects.requireNonNull(baseURI);
-			this.representation = Objects.requireNonNull(representation);
-			this.template = Objects.requireNonNull(template);
-			this.protection = Objects.requireNonNull(protection);
-			this.attributes = Objects.requireNonNull(attributes);
-			prepareFormatMap();
+	// Reference: ISO-IEC 23009-1, section 5.3.9.4.4
+	/** @since 00.02.09 */
+	private static final class SegmentTemplatePlan {
+		
+		private static final int PART_LITERAL = 0;
+		private static final int PART_NUMBER  = 1;
+		private static final int PART_TIME    = 2;
+		
+		private final int[] types;
+		private final int[] widths;
+		private final String[] literals;
+		private final int length;
+		
+		private SegmentTemplatePlan(int[] types, int[] widths, String[] literals, int length) {
+			this.types = types;
+			this.widths = widths;
+			this.literals = literals;
+			this.length = length;
 		}
 		
-		private final void prepareFormatMap() {
-			formatMap.put("RepresentationID", representation.id());
-			formatMap.put("Bandwidth", representation.attributes().get("bandwidth"));
+		private static final int parseWidth(String format) {
+			// Validate format, only "%0[width]d" is supported
+			if(!format.startsWith("0")
+					|| !format.endsWith("d")
+					|| format.length() < 3) {
+				throw new IllegalStateException("Invalid format: " + format);
+			}
+			
+			int width = Integer.parseInt(format.substring(1, format.length() - 1));
+			
+			// The width must be an unsigned integer
+			if(width <= 0) {
+				throw new IllegalStateException("Invalid format: " + format);
+			}
+			
+			return width;
 		}
 		
-		// Reference: ISO-IEC 23009-1, section 5.3.9.4.4
-		/** @since 00.02.09 */
-		private final String resolveSegmentTemplateIdentifier(MatchResult result) {
-			String name = result.group(1);
-			
-			// Escape sequence: "$$" -> "$"
-			if(name.isEmpty()) {
-				return "\\$"; // Constant quoted replacement
+		private static final void appendPadded(StringBuilder builder, long value, int width) {
+			if(value < 0L) {
+				builder.append(String.format("%1$0" + width + "d", value));
+				return;
 			}
 			
-			String identifier = name, format = null, value;
-			int index;
+			String string = Long.toString(value);
 			
-			// Check whether a format is present and if so, split the identifier string.
-			if((index = name.indexOf("%")) >= 0) {
-				identifier = name.substring(0, index);
-				format = name.substring(index + 1);
+			for(int i = string.length(); i < width; ++i) {
+				builder.append('0');
 			}
 			
-			// Exhaustive list to check validity
-			switch(identifier) {
-				// Does not support formatting
-				case "RepresentationID": {
-					if(format != null) {
-						throw new IllegalStateException("RepresentationID must not have format");
-					}
-					
-					value = formatMap.get(identifier);
+			builder.append(string);
+		}
+		
+		public static final SegmentTemplatePlan compile(String template, String representationId,
+				String bandwidth) {
+			List<Integer> types = new ArrayList<>();
+			List<Integer> widths = new ArrayList<>();
+			List<String> literals = new ArrayList<>();
+			StringBuilder literal = new StringBuilder();
+			int length = 0;
+			
+			for(int i = 0, l = template.length(), start, end; i < l; i = end + 1) {
+				if((start = template.indexOf('$', i)) < 0
+						|| (end = template.indexOf('$', start + 1)) < 0) {
+					literal.append(template, i, l);
 					break;
 				}
-				// Supports formatting
-				case "Number":
-				case "Bandwidth":
-				case "Time": {
-					value = formatMap.get(identifier);
-					
-					// Apply formatting, if possible and requested
-					if(format != null && value != null) {
-						// Validate format, only "%0[width]d" is supported
-						if(!format.startsWith("0")
-								|| !format.endsWith("d")
-								|| format.length() < 3) {
-							throw new IllegalStateException("Invalid format: " + format);
+				
+				literal.append(template, i, start);
+				String name = template.substring(start + 1, end);
+				
+				// Escape sequence: "$$" -> "$"
+				if(name.isEmpty()) {
+					literal.append('$');
+					continue;
+				}
+				
+				String identifier = name, format = null, value;
+				int index, width = 0, type;
+				
+				// Check whether a format is present and if so, split the identifier string.
+				if((index = name.indexOf("%")) >= 0) {
+					identifier = name.substring(0, index);
+					format = name.substring(index + 1);
+				}
+				
+				// Exhaustive list to check validity
+				switch(identifier) {
+					// Does not support formatting
+					case "RepresentationID": {
+						if(format != null) {
+							throw new IllegalStateException("RepresentationID must not have format");
+						}
+						
+						value = representationId;
+						break;
+					}
+					// Supports formatting, constant for the whole template
+					case "Bandwidth": {
+						value = bandwidth;
+						
+						// Apply formatting, if possible and requested
+						if(format != null && value != null) {
+							StringBuilder padded = new StringBuilder();
+							appendPadded(padded, Long.parseLong(value), parseWidth(format));
+							value = padded.toString();
 						}
 						
-						int width = Integer.parseInt(format.substring(1, format.length() - 1));
+						break;
+					}
+					// Supports formatting, resolved for each segment
+					case "Number":
+					case "Time": {
+						type = identifier.equals("Number") ? PART_NUMBER : PART_TIME;
+						
+						if(format != null) {
+							width = parseWidth(format);
+						}
 						
-						// The width must be an unsigned integer
-						if(width <= 0) {
-							throw new IllegalStateException("Invalid format: " + format);
+						if(literal.length() > 0) {
+							types.add(PART_LITERAL);
+							widths.add(0);
+							literals.add(literal.toString());
+							length += literal.length();
+							literal.setLength(0);
 						}
 						
-						value = String.format("%1$0" + width + "d", Integer.parseInt(value));
+						types.add(type);
+						widths.add(width);
+						literals.add(null);
+						length += Math.max(width, 10);
+						continue;
+					}
+					case "SubNumber": {
+						// Currently we don't support SubNumber identifier due to increased complexity
+						// and not supporting the "k" attribute at the Segment element.
+						throw new IllegalStateException("SubNumber identifier not supported");
+					}
+					default: {
+						literal.append(template, start, end + 1); // Ignore the identifier
+						continue;
 					}
-					
-					break;
-				}
-				case "SubNumber": {
-					// Currently we don't support SubNumber identifier due to increased complexity
-					// and not supporting the "k" attribute at the Segment element.
-					throw new IllegalStateException("SubNumber identifier not supported");
 				}
-				default: {
-					return Regex.quoteReplacement(result.group(0)); // Ignore the identifier
+				
+				// The identifier must be present at this point, otherwise it is an invalid template
+				if(value == null) {
+					throw new IllegalStateException("Missing identifier value: " + identifier);
 				}
+				
+				literal.append(value);
+			}
+			
+			if(literal.length() > 0) {
+				types.add(PART_LITERAL);
+				widths.add(0);
+				literals.add(literal.toString());
+				length += literal.length();
+			}
+			
+			int count = types.size();
+			int[] arrayTypes = new int[count];
+			int[] arrayWidths = new int[count];
+			
+			for(int i = 0; i < count; ++i) {
+				arrayTypes[i] = types.get(i);
+				arrayWidths[i] = widths.get(i);
 			}
 			
-			// The identifier must be present at this point, otherwise it is an invalid template
-			if(value == null) {
-				throw new IllegalStateException("Missing identifier value: " + identifier);
+			return new SegmentTemplatePlan(
+				arrayTypes, arrayWidths, literals.toArray(String[]::new), length
+			);
+		}
+		
+		public final String resolve(long number, long time) {
+			StringBuilder builder = new StringBuilder(length);
+			
+			for(int i = 0, l = types.length; i < l; ++i) {
+				switch(types[i]) {
+					case PART_LITERAL: builder.append(literals[i]); break;
+					case PART_NUMBER:  appendPadded(builder, number, widths[i]); break;
+					case PART_TIME:    appendPadded(builder, time, widths[i]); break;
+				}
 			}
 			
-			return value;
+			return builder.toString();
+		}
+	}
+	
+	/**
+	 * Read-only view of segments of a single representation. Segments are not stored,
+	 * instead each one is generated on access from the compiled templates and the timeline,
+	 * so that long manifests do not have to be materialized in memory.
+	 * @since 00.02.09
+	 */
+	private static final class MPDSegmentList extends AbstractList<MPDSegment> implements RandomAccess {
+		
+		private final URI baseURI;
+		private final SegmentTemplatePlan initialization;
+		private final SegmentTemplatePlan media;
+		private final int startNumber;
+		private final double timescaleMult;
+		// Timeline entries, index of the first media segment of each entry (exclusive of
+		// the initialization segment), its start time and duration of a single segment.
+		private final int[] firstIndex;
+		private final long[] startTime;
+		private final long[] duration;
+		private final int size;
+		
+		public MPDSegmentList(URI baseURI, SegmentTemplatePlan initialization, SegmentTemplatePlan media,
+				int startNumber, int timescale, int[] firstIndex, long[] startTime, long[] duration,
+				int count) {
+			this.baseURI = baseURI;
+			this.initialization = initialization;
+			this.media = media;
+			this.startNumber = startNumber;
+			this.timescaleMult = 1.0 / timescale;
+			this.firstIndex = firstIndex;
+			this.startTime = startTime;
+			this.duration = duration;
+			this.size = count + 1; // Include the initialization segment
 		}
 		
-		/** @since 00.02.09 */
-		private final String resolveSegmentTemplate(String template) {
-			return REGEX_SEGMENT_TEMPLATE.replaceAll(
-				template,
-				this::resolveSegmentTemplateIdentifier
-			);
+		private final int entryIndex(int index) {
+			// Each entry has at least one segment, therefore the indices are unique
+			int entry = Arrays.binarySearch(firstIndex, index);
+			return entry >= 0 ? entry : -entry - 2;
 		}
 		
-		private final void addSegment(String templateURI, Segment segment) throws Exception {
-			long startTime = segment.time();
-			if(startTime >= 0L) time = startTime;
-			long duration = segment.duration();
-			int count = segment.count();
-			for(int i = 0; i < count; ++i) {
-				addSegment(templateURI, duration, false);
+		@Override
+		public MPDSegment get(int index) {
+			Objects.checkIndex(index, size);
+			
+			if(index == 0) {
+				String uri = initialization.resolve(startNumber, 0L);
+				return new MPDSegment(Net.resolve(baseURI, uri), 0.0, 0.0);
 			}
+			
+			int mediaIndex = index - 1;
+			int entry = entryIndex(mediaIndex);
+			long segmentDuration = duration[entry];
+			long time = startTime[entry] + (mediaIndex - firstIndex[entry]) * segmentDuration;
+			String uri = media.resolve((long) startNumber + mediaIndex, time);
+			
+			return new MPDSegment(
+				Net.resolve(baseURI, uri),
+				segmentDuration * timescaleMult,
+				time * timescaleMult
+			);
 		}
 		
-		private final void addSegment(String templateURI, long duration, boolean isInitialization) throws Exception {
-			double timescaleMult = 1.0 / template.timescale();
-			formatMap.put("Time", String.valueOf(time));
-			formatMap.put("Number", String.valueOf(count));
-			String uri = resolveSegmentTemplate(templateURI);
-			URI uriObj = Net.resolve(baseURI, uri);
-			segments.add(new MPDSegment(uriObj, duration * timescaleMult, time * timescaleMult));
-			time += duration;
-			if(!isInitialization) ++count; // For the Number variable
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+	
+	private static final class MPDFileConstructor {
+		
+		private final URI baseURI;
+		private final Representation representation;
+		private final SegmentTemplate template;
+		private final ContentProtection protection;
+		private final Map<String, String> attributes;
+		
+		public MPDFileConstructor(URI baseURI, Representation representation, SegmentTemplate template,
+				ContentProtection protection, Map<String, String> attributes) {
+			this.baseURI = Objects.requireNonNull(baseURI);
+			this.representation = Objects.requireNonNull(representation);
+			this.template = Objects.requireNonNull(template);
+			this.protection = Objects.requireNonNull(protection);
+			this.attributes = Objects.requireNonNull(attributes);
+		}
+		
+		/** @since 00.02.09 */
+		private final SegmentTemplatePlan compile(String templateURI) {
+			return SegmentTemplatePlan.compile(
+				templateURI,
+				representation.id(),
+				representation.attributes().get("bandwidth")
+			);
 		}
 		
 		public final MPDFile construct(MediaFormat format) throws Exception {
-			SegmentTimeline timeline = template.timeline();
-			Map<String, String> args = new HashMap<>();
-			args.put("RepresentationID", representation.id());
-			time = 0L; // Muset reset the time first
-			count = template.startNumber(); // Muset reset the count first for the Number variable
-			// Add initialization segment
-			addSegment(template.initialization(), 0L, true);
-			// Add other segments
-			String templateURI = template.media();
-			for(Segment segment : timeline.segments()) {
-				addSegment(templateURI, segment);
+			List<Segment> timeline = template.timeline().segments();
+			int entries = timeline.size();
+			int[] firstIndex = new int[entries];
+			long[] startTime = new long[entries];
+			long[] duration = new long[entries];
+			long time = 0L;
+			int count = 0;
+			
+			// Only resolve the start of each timeline entry, the segments are generated lazily
+			for(int i = 0; i < entries; ++i) {
+				Segment segment = timeline.get(i);
+				if(segment.time() >= 0L) time = segment.time();
+				firstIndex[i] = count;
+				startTime[i] = time;
+				duration[i] = segment.duration();
+				time += segment.duration() * segment.count();
+				count = Math.addExact(count, segment.count());
 			}
+			
+			List<MPDSegment> segments = new MPDSegmentList(
+				baseURI, compile(template.initialization()), compile(template.media()),
+				template.startNumber(), template.timescale(), firstIndex, startTime, duration, count
+			);
+			
 			// Compute total duration (in seconds)
-			double duration = (time - template.timeOffset()) / (double) template.timescale();
+			double totalDuration = (time - template.timeOffset()) / (double) template.timescale();
 			MediaResolution resolution = representation.resolution();
 			Map<String, String> mergedAttrs = Utils.mergeNew(attributes, representation.attributes());
-			return new MPDFile(segments, format, resolution, duration, protection, mergedAttrs);
+			return new MPDFile(segments, format, resolution, totalDuration, protection, mergedAttrs);
 		}
 	}
 	
@@ -599,7 +830,27 @@ public final class MPD {
 			return files;
 		}
 		
-		public final List<MPDFile> read() throws Exception {
+		/** @since 00.02.09 */
+		private final List<MPDFile> readStreaming() throws Exception {
+			if(request != null) {
+				try(Response.OfStream response = Web.requestStream(request)) {
+					return (new MPDStreamReader(response.stream(), response.uri())).read();
+				}
+			}
+			
+			if(content != null) {
+				return (new MPDStreamReader(
+					new ByteArrayInputStream(content.getBytes(Shared.CHARSET)),
+					Net.baseURI(uri)
+				)).read();
+			}
+			
+			throwExceptionInvalid(null);
+			return null; // Not reached
+		}
+		
+		/** @since 00.02.09 */
+		private final List<MPDFile> readDocument() throws Exception {
 			Document document = null;
 			URI baseUri = null;
 			
@@ -623,6 +874,310 @@ public final class MPD {
 			
 			return read(baseUri, document);
 		}
+		
+		public final List<MPDFile> read() throws Exception {
+			try {
+				return readStreaming();
+			} catch(XMLStreamException ex) {
+				// Not a well-formed XML document, use the lenient DOM parser instead.
+				// Note that in case of a request, this means it is sent again.
+				return readDocument();
+			}
+		}
+	}
+	
+	/**
+	 * Streaming MPD reader, that builds the representations and their timelines directly
+	 * from the XML events, without retaining the whole document in memory.
+	 * @since 00.02.09
+	 */
+	private static final class MPDStreamReader {
+		
+		private static final XMLInputFactory FACTORY = newFactory();
+		
+		private final XMLStreamReader reader;
+		private URI baseURI;
+		
+		public MPDStreamReader(InputStream stream, URI baseURI) throws XMLStreamException {
+			this.reader = FACTORY.createXMLStreamReader(stream, Shared.CHARSET.name());
+			this.baseURI = Objects.requireNonNull(baseURI);
+		}
+		
+		private static final XMLInputFactory newFactory() {
+			XMLInputFactory factory = XMLInputFactory.newFactory();
+			factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+			factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+			factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+			return factory;
+		}
+		
+		private final boolean isElement(String name) {
+			return reader.getLocalName().equalsIgnoreCase(name);
+		}
+		
+		private final String attr(String name) {
+			String value = reader.getAttributeValue(null, name);
+			return value != null ? value : "";
+		}
+		
+		private final String qualifiedName(String prefix, String localName) {
+			return prefix == null || prefix.isEmpty() ? localName : prefix + ':' + localName;
+		}
+		
+		private final Map<String, String> attributes() {
+			Map<String, String> attributes = new HashMap<>();
+			
+			for(int i = 0, l = reader.getAttributeCount(); i < l; ++i) {
+				attributes.put(
+					qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+					reader.getAttributeValue(i)
+				);
+			}
+			
+			return attributes;
+		}
+		
+		// Reads the text of the current element and all its descendants
+		private final String text() throws XMLStreamException {
+			StringBuilder builder = new StringBuilder();
+			
+			for(int depth = 1; depth > 0;) {
+				switch(reader.next()) {
+					case XMLStreamConstants.START_ELEMENT: ++depth; break;
+					case XMLStreamConstants.END_ELEMENT: --depth; break;
+					case XMLStreamConstants.CHARACTERS:
+					case XMLStreamConstants.CDATA:
+					case XMLStreamConstants.SPACE:
+						builder.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+						break;
+				}
+			}
+			
+			return builder.toString().trim();
+		}
+		
+		private final void skip() throws XMLStreamException {
+			for(int depth = 1; depth > 0;) {
+				switch(reader.next()) {
+					case XMLStreamConstants.START_ELEMENT: ++depth; break;
+					case XMLStreamConstants.END_ELEMENT: --depth; break;
+				}
+			}
+		}
+		
+		private final List<String[]> readSegmentTimeline() throws XMLStreamException {
+			List<String[]> segments = new ArrayList<>();
+			
+			for(int depth = 1; depth > 0;) {
+				switch(reader.next()) {
+					case XMLStreamConstants.START_ELEMENT: {
+						if(isElement(Segment.NODE_NAME)) {
+							segments.add(new String[] {
+								reader.getAttributeValue(null, "t"),
+								reader.getAttributeValue(null, "d"),
+								reader.getAttributeValue(null, "r")
+							});
+						}
+						
+						++depth;
+						break;
+					}
+					case XMLStreamConstants.END_ELEMENT: --depth; break;
+				}
+			}
+			
+			return segments;
+		}
+		
+		// Only reads the element, the values are validated when the template is built
+		private final SegmentTemplateSource readSegmentTemplate() throws XMLStreamException {
+			String timescale = attr("timescale");
+			String media = attr("media");
+			String initialization = attr("initialization");
+			String startNumber = attr("startNumber");
+			String timeOffset = attr("presentationTimeOffset");
+			List<String[]> timeline = null;
+			
+			for(int depth = 1; depth > 0;) {
+				switch(reader.next()) {
+					case XMLStreamConstants.START_ELEMENT: {
+						if(timeline == null && isElement(SegmentTimeline.NODE_NAME)) {
+							timeline = readSegmentTimeline();
+						} else {
+							++depth;
+						}
+						
+						break;
+					}
+					case XMLStreamConstants.END_ELEMENT: --depth; break;
+				}
+			}
+			
+			return new SegmentTemplateSource(timescale, media, initialization, startNumber, timeOffset, timeline);
+		}
+		
+		private final void readContentProtection(List<MediaProtection> protections) throws XMLStreamException {
+			MediaProtectionType type = ContentProtection.protectionType(attr("schemeIdUri"));
+			
+			for(int depth = 1; depth > 0;) {
+				switch(reader.next()) {
+					case XMLStreamConstants.START_ELEMENT: {
+						if(depth > 1) {
+							++depth;
+							break;
+						}
+						
+						String tagName = qualifiedName(reader.getPrefix(), reader.getLocalName());
+						MediaProtection protection = ContentProtection.protection(type, tagName, text());
+						
+						if(protection != null) {
+							protections.add(protection);
+						}
+						
+						break;
+					}
+					case XMLStreamConstants.END_ELEMENT: --depth; break;
+				}
+			}
+		}
+		
+		private final Representation readRepresentation(List<MediaProtection> protections)
+				throws XMLStreamException {
+			Map<String, String> attributes = attributes();
+			SegmentTemplateSource template = null;
+			
+			for(int depth = 1; depth > 0;) {
+				switch(reader.next()) {
+					case XMLStreamConstants.START_ELEMENT: {
+						if(template == null && isElement(SegmentTemplate.NODE_NAME)) {
+							template = readSegmentTemplate();
+						} else if(isElement(ContentProtection.NODE_NAME)) {
+							readContentProtection(protections);
+						} else {
+							++depth;
+						}
+						
+						break;
+					}
+					case XMLStreamConstants.END_ELEMENT: --depth; break;
+				}
+			}
+			
+			return Representation.of(attributes, template != null ? template.build() : null);
+		}
+		
+		private final AdaptationSet readAdaptationSet() throws XMLStreamException {
+			String mimeType = attr("mimeType");
+			
+			// Ignore non-video and non-audio adaptation sets
+			if(!mimeType.startsWith("video/") && !mimeType.startsWith("audio/")) {
+				skip();
+				return null;
+			}
+			
+			MediaFormat format = MediaFormat.fromMimeType(mimeType);
+			Map<String, String> attributes = attributes();
+			List<Representation> representations = new ArrayList<>();
+			List<MediaProtection> protections = new ArrayList<>();
+			boolean needsOuterSegmentTemplate = false;
+			SegmentTemplateSource templateSource = null;
+			
+			for(int depth = 1; depth > 0;) {
+				switch(reader.next()) {
+					case XMLStreamConstants.START_ELEMENT: {
+						if(isElement(Representation.NODE_NAME)) {
+							Representation representation = readRepresentation(protections);
+							
+							if(representation.template() == null) {
+								needsOuterSegmentTemplate = true;
+							}
+							
+							representations.add(representation);
+						} else if(isElement(ContentProtection.NODE_NAME)) {
+							readContentProtection(protections);
+						} else if(depth == 1
+									&& templateSource == null
+									&& isElement(SegmentTemplate.NODE_NAME)) {
+							// The template is built later, only if any representation needs it
+							templateSource = readSegmentTemplate();
+						} else {
+							++depth;
+						}
+						
+						break;
+					}
+					case XMLStreamConstants.END_ELEMENT: --depth; break;
+				}
+			}
+			
+			if(needsOuterSegmentTemplate) {
+				if(templateSource == null) {
+					throw new IllegalStateException("No SegmentTemplate");
+				}
+				
+				SegmentTemplate template = templateSource.build();
+				
+				for(Representation representation : representations) {
+					if(representation.template() != null) {
+						continue;
+					}
+					
+					representation.template(template);
+				}
+			}
+			
+			ContentProtection protection = ContentProtection.of(protections);
+			return new AdaptationSet(format, representations, protection, attributes);
+		}
+		
+		public final List<MPDFile> read() throws Exception {
+			List<AdaptationSet> adaptationSets = new ArrayList<>();
+			boolean isRootMPD = false;
+			boolean hasBaseURI = false;
+			
+			try {
+				for(int depth = 0; reader.hasNext();) {
+					switch(reader.next()) {
+						case XMLStreamConstants.START_ELEMENT: {
+							if(depth == 0) {
+								isRootMPD = isElement("MPD");
+								++depth;
+							} else if(depth == 1 && isRootMPD && !hasBaseURI && isElement("BaseURL")) {
+								// Replace the presumed base URI by the new one
+								baseURI = Net.uri(text());
+								hasBaseURI = true;
+							} else if(isElement(AdaptationSet.NODE_NAME)) {
+								AdaptationSet adaptationSet = readAdaptationSet();
+								
+								// Currently, AdaptationSet is null for non-video and non-audio sources,
+								// if it happens just ignore it.
+								if(adaptationSet != null) {
+									adaptationSets.add(adaptationSet);
+								}
+							} else {
+								++depth;
+							}
+							
+							break;
+						}
+						case XMLStreamConstants.END_ELEMENT: --depth; break;
+					}
+				}
+			} finally {
+				reader.close();
+			}
+			
+			// The base URI may be defined anywhere in the root, therefore process the files
+			// at the end. The segments themselves are generated lazily, so this is cheap.
+			List<MPDFile> files = new ArrayList<>();
+			
+			for(AdaptationSet adaptationSet : adaptationSets) {
+				files.addAll(adaptationSet.process(baseURI));
+			}
+			
+			return files;
+		}
 	}
 	
 	// Reference: https://dashif-documents.azurewebsites.net/Guidelines-Security/master/Guidelines-Security.html#CPS-mpd-scheme
@@ -648,35 +1203,22 @@ public final class MPD {
 					continue;
 				}
 				
-				// Assume Widevine by default
-				MediaProtectionType type = MediaProtectionType.DRM_WIDEVINE;
-				String schemeIdUri = element.attr("schemeIdUri");
-				
-				if(schemeIdUri != null && !schemeIdUri.isEmpty()) {
-					// Schemes (ref.: https://dashif.org/identifiers/content_protection/)
-					// - edef8ba9-79d6-4ace-a3c8-27dcd51d21ed (Widevine)
-					// - 9a04f079-9840-4286-ab92-e65be0885f95 (Microsoft PlayReady)
-					// - 94ce86fb-07ff-4f43-adb8-93d2fa968ca2 (Apple FairPlay)
-					if(schemeIdUri.equalsIgnoreCase("urn:uuid:9a04f079-9840-4286-ab92-e65be0885f95")) {
-						type = MediaProtectionType.DRM_PLAYREADY;
-					}
-				}
+				MediaProtectionType type = protectionType(element.attr("schemeIdUri"));
 				
 				for(Element child : children) {
-					String tagName = child.tagName().toLowerCase();
-					int index = tagName.indexOf(':');
+					MediaProtection protection = protection(type, child.tagName(), child.html());
 					
-					if(index > 0) {
-						String scheme = tagName.substring(0, index);
-						String contentType = tagName.substring(index + 1);
-						String content = child.html();
-						protections.add(
-							MediaProtection.of(type).scheme(scheme).contentType(contentType).content(content).build()
-						);
+					if(protection != null) {
+						protections.add(protection);
 					}
 				}
 			}
 			
+			return of(protections);
+		}
+		
+		/** @since 00.02.09 */
+		protected static final ContentProtection of(List<MediaProtection> protections) {
 			// Normalize the values
 			if(protections.isEmpty()) {
 				protections = null;
@@ -685,6 +1227,39 @@ public final class MPD {
 			return new ContentProtection(protections);
 		}
 		
+		/** @since 00.02.09 */
+		protected static final MediaProtectionType protectionType(String schemeIdUri) {
+			// Assume Widevine by default
+			MediaProtectionType type = MediaProtectionType.DRM_WIDEVINE;
+			
+			if(schemeIdUri != null && !schemeIdUri.isEmpty()) {
+				// Schemes (ref.: https://dashif.org/identifiers/content_protection/)
+				// - edef8ba9-79d6-4ace-a3c8-27dcd51d21ed (Widevine)
+				// - 9a04f079-9840-4286-ab92-e65be0885f95 (Microsoft PlayReady)
+				// - 94ce86fb-07ff-4f43-adb8-93d2fa968ca2 (Apple FairPlay)
+				if(schemeIdUri.equalsIgnoreCase("urn:uuid:9a04f079-9840-4286-ab92-e65be0885f95")) {
+					type = MediaProtectionType.DRM_PLAYREADY;
+				}
+			}
+			
+			return type;
+		}
+		
+		/** @since 00.02.09 */
+		protected static final MediaProtection protection(MediaProtectionType type, String tagName,
+				String content) {
+			tagName = tagName.toLowerCase();
+			int index = tagName.indexOf(':');
+			
+			if(index <= 0) {
+				return null;
+			}
+			
+			String scheme = tagName.substring(0, index);
+			String contentType = tagName.substring(index + 1);
+			return MediaProtection.of(type).scheme(scheme).contentType(contentType).content(content).build();
+		}
+		
 		/** @since 00.02.09 */
 		public List<MediaProtection> protections() {
 			return protections;
@@ -781,10 +1356,20 @@ public final class MPD {
 		
 		public final RemoteFileSegmentsHolder segmentsHolder() {
 			if(segmentsHolder == null) {
-				List<RemoteFileSegment> fileSegments = segments.stream()
-					.map((seg) -> new RemoteFileSegment(seg.uri()))
-					.collect(Collectors.toList());
-				segmentsHolder = new RemoteFileSegmentsHolder(fileSegments, duration);
+				List<RemoteFileSegment> fileSegments = new AbstractList<>() {
+					
+					@Override
+					public RemoteFileSegment get(int index) {
+						return new RemoteFileSegment(segments.get(index).uri());
+					}
+					
+					@Override
+					public int size() {
+						return segments.size();
+					}
+				};
+				
+				segmentsHolder = RemoteFileSegmentsHolder.ofView(fileSegments, duration);
 			}
 			
 			return segmentsHolder;
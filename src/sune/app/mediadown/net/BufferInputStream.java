@@ -0,0 +1,171 @@
+package sune.app.mediadown.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Response body that keeps the buffers received by the HTTP client. The buffers can be
+ * taken one by one using {@link #nextBuffer()} and written directly to a channel, without
+ * copying them, or the body can be read as a usual input stream, e.g. when it must be decoded.
+ * Only a single list of buffers is requested from the client at a time.
+ * @since 00.02.09
+ */
+public final class BufferInputStream extends InputStream implements BodySubscriber<InputStream> {
+	
+	/** Marks the end of the body, either successful or not. */
+	private static final List<ByteBuffer> LAST = List.of();
+	
+	private final BlockingQueue<List<ByteBuffer>> queue = new LinkedBlockingQueue<>();
+	private final CompletableFuture<InputStream> body = CompletableFuture.completedFuture(this);
+	private volatile Flow.Subscription subscription;
+	private volatile Throwable error;
+	private volatile boolean closed;
+	
+	private Iterator<ByteBuffer> buffers;
+	private ByteBuffer current;
+	private boolean eof;
+	
+	public BufferInputStream() {
+	}
+	
+	private final List<ByteBuffer> take() throws IOException {
+		try {
+			return queue.take();
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+	}
+	
+	/**
+	 * Returns the next buffer of the body that has some data remaining, or {@code null},
+	 * if the end of the body was reached. The same buffer is returned until all its data
+	 * are consumed by the caller.
+	 */
+	public ByteBuffer nextBuffer() throws IOException {
+		if(closed) {
+			throw new IOException("Stream closed");
+		}
+		
+		for(;;) {
+			if(current != null && current.hasRemaining()) {
+				return current;
+			}
+			
+			if(buffers != null && buffers.hasNext()) {
+				current = buffers.next();
+				continue;
+			}
+			
+			if(eof) {
+				return null;
+			}
+			
+			if(buffers != null) {
+				// All the received buffers were consumed, request more
+				buffers = null;
+				subscription.request(1L);
+			}
+			
+			List<ByteBuffer> list;
+			if((list = take()) == LAST) {
+				eof = true;
+				
+				Throwable t;
+				if((t = error) != null) {
+					throw new IOException(t);
+				}
+				
+				return null;
+			}
+			
+			buffers = list.iterator();
+		}
+	}
+	
+	@Override
+	public int read() throws IOException {
+		ByteBuffer buffer;
+		return (buffer = nextBuffer()) == null ? -1 : buffer.get() & 0xff;
+	}
+	
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if(len == 0) {
+			return 0;
+		}
+		
+		ByteBuffer buffer;
+		if((buffer = nextBuffer()) == null) {
+			return -1;
+		}
+		
+		int count = Math.min(len, buffer.remaining());
+		buffer.get(b, off, count);
+		return count;
+	}
+	
+	@Override
+	public int available() throws IOException {
+		ByteBuffer buffer;
+		return (buffer = current) != null ? buffer.remaining() : 0;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		if(closed) {
+			return;
+		}
+		
+		closed = true;
+		queue.clear();
+		
+		Flow.Subscription s;
+		if((s = subscription) != null) {
+			s.cancel();
+		}
+	}
+	
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		this.subscription = subscription;
+		
+		if(closed) {
+			subscription.cancel(); // Closed before any data were received
+			return;
+		}
+		
+		subscription.request(1L);
+	}
+	
+	@Override
+	public void onNext(List<ByteBuffer> item) {
+		queue.add(item);
+	}
+	
+	@Override
+	public void onError(Throwable throwable) {
+		error = throwable;
+		queue.add(LAST);
+	}
+	
+	@Override
+	public void onComplete() {
+		queue.add(LAST);
+	}
+	
+	@Override
+	public CompletionStage<InputStream> getBody() {
+		return body;
+	}
+}
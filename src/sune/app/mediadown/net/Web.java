@@ -1,5 +1,6 @@
 package sune.app.mediadown.net;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.CookieManager;
@@ -33,12 +34,16 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
@@ -48,6 +53,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import sune.app.mediadown.Shared;
+import sune.app.mediadown.concurrent.Threads;
 import sune.app.mediadown.concurrent.VarLoader;
 import sune.app.mediadown.util.L10N;
 import sune.app.mediadown.util.Opt;
@@ -68,9 +74,15 @@ public final class Web {
 	private static final int INTERNAL_RETRY_MAX_WAIT_MS = 10000;
 	/** @since 00.02.09 */
 	private static final Version DEFAULT_HTTP_VERSION = Version.HTTP_2;
+	/** @since 00.02.09 */
+	private static final int MAX_CLIENT_THREADS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+	/** @since 00.02.09 */
+	private static final long CLIENT_THREAD_KEEP_ALIVE_MS = 60000L;
 	
 	private static Duration defaultConnectTimeout = Duration.ofMillis(5000);
 	private static Duration defaultReadTimeout = Duration.ofMillis(20000);
+	/** @since 00.02.09 */
+	private static Version defaultHttpVersion = DEFAULT_HTTP_VERSION;
 	
 	private static final VarLoader<HttpClient> httpClientWithRedirect = VarLoader.of(Web::newDefaultHttpClientWithRedirect);
 	private static final VarLoader<HttpClient> httpClientNoRedirect = VarLoader.of(Web::newDefaultHttpClientNoRedirect);
@@ -96,8 +108,19 @@ public final class Web {
 	
 	private static final ExecutorService newExecutor() {
 		// Must create the new executor with a custom thread factory so that
-		// the threads are closed properly.
-		return Executors.newCachedThreadPool(new WebThreadFactory(clientId.getAndIncrement()));
+		// the threads are closed properly. The number of threads is bounded,
+		// since the client threads only dispatch the asynchronous work.
+		ThreadFactory threadFactory = Threads.useVirtualThreads()
+			? Threads.ioThreadFactory() // Virtual threads are always daemon
+			: new WebThreadFactory(clientId.getAndIncrement());
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(
+			MAX_CLIENT_THREADS, MAX_CLIENT_THREADS,
+			CLIENT_THREAD_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS,
+			new LinkedBlockingQueue<>(),
+			threadFactory
+		);
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
 	}
 	
 	private static final HttpClient.Builder newHttpClientBuilder() {
@@ -106,7 +129,7 @@ public final class Web {
 					.cookieHandler(cookieManager())
 					.executor(newExecutor())
 					.sslContext(SSL.Contexts.aiaFetching())
-					.version(DEFAULT_HTTP_VERSION);
+					.version(defaultHttpVersion);
 	}
 	
 	private static final HttpClient newDefaultHttpClientWithRedirect() {
@@ -191,7 +214,7 @@ public final class Web {
 			version = Internal.getHttpVersion(request);
 			
 			if(version == null) {
-				version = DEFAULT_HTTP_VERSION;
+				version = defaultHttpVersion;
 			}
 		}
 		
@@ -211,6 +234,9 @@ public final class Web {
 			int retryInternalAttempt, int retryExternalAttempt
 	) throws Exception {
 		do {
+			// Wait for a free connection to the host, if the connections are limited
+			HostLimiter.Permit permit = HostLimiter.acquire(request.uri());
+			
 			try {
 				R response = constructor.apply(
 					request,
@@ -219,10 +245,17 @@ public final class Web {
 						.get(request.timeout().toNanos(), TimeUnit.NANOSECONDS)
 				);
 				
+				// The body of a stream response is still being received, therefore
+				// the connection is released only when the stream is closed.
+				if(response instanceof Response.OfStream) {
+					((Response.OfStream) response).holdPermit(permit);
+					permit = null;
+				}
+				
 				Version targetVersion = request.version();
 				Version version = response.version();
 				
-				if(version != DEFAULT_HTTP_VERSION
+				if(version != defaultHttpVersion
 						|| (targetVersion != null && !targetVersion.equals(version))) {
 					Internal.setHttpVersion(request, version);
 				}
@@ -237,6 +270,10 @@ public final class Web {
 						throw ex; // Propagate
 					}
 					
+					// Do not block other requests to the host while waiting
+					HostLimiter.release(permit);
+					permit = null;
+					
 					waitInternalRetry(retryInternalAttempt); // Wait a little
 					continue; // Retry the request
 				}
@@ -258,6 +295,8 @@ public final class Web {
 				}
 				
 				continue; // Retry the request
+			} finally {
+				HostLimiter.release(permit);
 			}
 		} while(true);
 	}
@@ -289,6 +328,38 @@ public final class Web {
 		defaultReadTimeout = checkTimeout(timeout);
 	}
 	
+	/** @since 00.02.09 */
+	public static final Version defaultHttpVersion() {
+		return defaultHttpVersion;
+	}
+	
+	/**
+	 * Sets the HTTP version used for requests that do not specify any. HTTP/2 multiplexes
+	 * all the requests to a single origin over one connection, whereas HTTP/1.1 uses
+	 * a separate connection for each request.
+	 * @since 00.02.09
+	 */
+	public static final void defaultHttpVersion(Version version) {
+		defaultHttpVersion = Objects.requireNonNull(version);
+	}
+	
+	/** @since 00.02.09 */
+	public static final int maxConnectionsPerHost() {
+		return HostLimiter.maxPermits();
+	}
+	
+	/**
+	 * Sets the maximum number of concurrent requests to a single host, including the ones
+	 * whose response body is still being read. A non-positive value means no limit. Requests
+	 * of a thread that already holds a connection to the host share that connection's permit,
+	 * so that a thread reading a response body cannot block itself by sending another request
+	 * to the same host.
+	 * @since 00.02.09
+	 */
+	public static final void maxConnectionsPerHost(int count) {
+		HostLimiter.maxPermits(count);
+	}
+	
 	public static final CookieManager cookieManager() {
 		return cookieManager.value();
 	}
@@ -301,6 +372,15 @@ public final class Web {
 		return doRequest(request, Response.OfStream::new, BodyHandlers.ofInputStream());
 	}
 	
+	/**
+	 * Sends the request and returns its response, whose body is kept in the buffers received
+	 * by the HTTP client, see {@link BufferInputStream}.
+	 * @since 00.02.09
+	 */
+	public static final Response.OfStream requestBuffers(Request request) throws Exception {
+		return doRequest(request, Response.OfStream::new, (info) -> new BufferInputStream());
+	}
+	
 	public static final Response.OfVoid peek(Request request) throws Exception {
 		return doRequest(request.toHEAD(), Response.OfVoid::new, BodyHandlers.discarding());
 	}
@@ -392,6 +472,142 @@ public final class Web {
 		}
 	}
 	
+	/** @since 00.02.09 */
+	private static final class HostLimiter {
+		
+		private static final Map<String, HostPermits> permits = new ConcurrentHashMap<>();
+		private static volatile int maxPermits;
+		
+		// Forbid anyone to create an instance of this class
+		private HostLimiter() {
+		}
+		
+		/**
+		 * Waits for a permit for a request to the host of the given URI and returns it, or returns
+		 * {@code null}, if the connections are not limited. The permits are reentrant, i.e. if the calling
+		 * thread already holds a permit for the host, e.g. of a response body it still reads, the returned
+		 * permit shares it and does not wait.
+		 */
+		public static final Permit acquire(URI uri) throws InterruptedException {
+			int max = maxPermits;
+			String host;
+			
+			if(max <= 0 || (host = uri.getHost()) == null) {
+				return null;
+			}
+			
+			HostPermits hostPermits = permits.computeIfAbsent(host, (k) -> new HostPermits(max));
+			return hostPermits.acquire();
+		}
+		
+		public static final void release(Permit permit) {
+			if(permit != null) {
+				permit.release();
+			}
+		}
+		
+		public static final void maxPermits(int value) {
+			maxPermits = Math.max(0, value);
+			// Permits already acquired are released to the old semaphores
+			permits.clear();
+		}
+		
+		public static final int maxPermits() {
+			return maxPermits;
+		}
+		
+		/** Permits of a single host, together with the number of permits held by each thread. */
+		private static final class HostPermits {
+			
+			private final Semaphore semaphore;
+			private final Map<Thread, Integer> holds = new ConcurrentHashMap<>();
+			
+			public HostPermits(int count) {
+				this.semaphore = new Semaphore(count, true);
+			}
+			
+			public Permit acquire() throws InterruptedException {
+				Thread thread = Thread.currentThread();
+				
+				// Only the thread itself changes its entry, therefore the check cannot race
+				if(holds.computeIfPresent(thread, (t, count) -> count + 1) == null) {
+					semaphore.acquire();
+					holds.put(thread, 1);
+				}
+				
+				return new Permit(this, thread);
+			}
+			
+			public void release(Thread thread) {
+				// The permit may be released by another thread, e.g. when a stream is closed
+				if(holds.computeIfPresent(thread, (t, count) -> count > 1 ? count - 1 : null) == null) {
+					semaphore.release();
+				}
+			}
+		}
+		
+		/** A single hold of a permit, released at most once. */
+		public static final class Permit {
+			
+			private final HostPermits permits;
+			private final Thread thread;
+			private final AtomicBoolean released = new AtomicBoolean();
+			
+			private Permit(HostPermits permits, Thread thread) {
+				this.permits = permits;
+				this.thread = thread;
+			}
+			
+			public void release() {
+				if(released.compareAndSet(false, true)) {
+					permits.release(thread);
+				}
+			}
+		}
+	}
+	
+	/** @since 00.02.09 */
+	private static final class PermitInputStream extends FilterInputStream {
+		
+		private final HostLimiter.Permit permit;
+		
+		public PermitInputStream(InputStream stream, HostLimiter.Permit permit) {
+			super(stream);
+			this.permit = Objects.requireNonNull(permit);
+		}
+		
+		private final int release(int read) {
+			if(read < 0) {
+				release();
+			}
+			
+			return read;
+		}
+		
+		private final void release() {
+			permit.release();
+		}
+		
+		@Override
+		public int read() throws IOException {
+			return release(super.read());
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			return release(super.read(b, off, len));
+		}
+		
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				release();
+			}
+		}
+	}
+	
 	private static final class WebThreadFactory implements ThreadFactory {
 		
 		private final String namePrefix;
@@ -474,10 +690,20 @@ public final class Web {
 		
 		public static class OfStream extends Response {
 			
+			/** @since 00.02.09 */
+			private InputStream stream;
+			
 			protected OfStream(Request request, HttpResponse<InputStream> response) {
 				super(request, response);
 			}
 			
+			/** @since 00.02.09 */
+			private final void holdPermit(HostLimiter.Permit permit) {
+				if(permit != null) {
+					stream = new PermitInputStream(response().body(), permit);
+				}
+			}
+			
 			@Override
 			public void close() throws Exception {
 				stream().close();
@@ -486,7 +712,7 @@ public final class Web {
 			@SuppressWarnings("unchecked")
 			public HttpResponse<InputStream> response() { return (HttpResponse<InputStream>) response; }
 			
-			public InputStream stream() { return response().body(); }
+			public InputStream stream() { return stream != null ? stream : response().body(); }
 		}
 	}
 	
@@ -1,5 +1,6 @@
 package sune.app.mediadown.pipeline;
 
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Objects;
 
@@ -14,12 +15,16 @@ public final class ConversionPipelineResult implements PipelineResult {
 	private final List<ConversionMedia> inputs;
 	/** @since 00.02.08 */
 	private final ResolvedMedia output;
+	/** @since 00.02.09 */
+	private final List<Path> replacedInputs;
 	
-	/** @since 00.02.08 */
-	private ConversionPipelineResult(boolean needConversion, List<ConversionMedia> inputs, ResolvedMedia output) {
+	/** @since 00.02.09 */
+	private ConversionPipelineResult(boolean needConversion, List<ConversionMedia> inputs, ResolvedMedia output,
+			List<Path> replacedInputs) {
 		this.needConversion = needConversion;
 		this.inputs = inputs;
 		this.output = output;
+		this.replacedInputs = replacedInputs;
 	}
 	
 	/** @since 00.02.08 */
@@ -32,18 +37,31 @@ public final class ConversionPipelineResult implements PipelineResult {
 	}
 	
 	public static final ConversionPipelineResult noConversion() {
-		return new ConversionPipelineResult(false, null, null);
+		return new ConversionPipelineResult(false, null, null, null);
 	}
 	
 	/** @since 00.02.08 */
 	public static final ConversionPipelineResult doConversion(List<ConversionMedia> inputs, ResolvedMedia output) {
-		return new ConversionPipelineResult(true, checkInputs(inputs), Objects.requireNonNull(output));
+		return doConversion(inputs, output, List.of());
+	}
+	
+	/**
+	 * Creates a result that converts the given inputs, which replace the inputs at the given paths,
+	 * e.g. when a fixer left a part of the fix to the conversion. The replaced inputs are deleted
+	 * only when the conversion successfully finishes.
+	 * @since 00.02.09
+	 */
+	public static final ConversionPipelineResult doConversion(List<ConversionMedia> inputs, ResolvedMedia output,
+			List<Path> replacedInputs) {
+		return new ConversionPipelineResult(
+			true, checkInputs(inputs), Objects.requireNonNull(output), Objects.requireNonNull(replacedInputs)
+		);
 	}
 	
 	@Override
 	public PipelineTask process(Pipeline pipeline) throws Exception {
 		if(needConversion) {
-			return ConversionPipelineTask.of(inputs, output);
+			return ConversionPipelineTask.of(inputs, output, replacedInputs);
 		}
 		
 		return TerminatingPipelineTask.getTypedInstance();
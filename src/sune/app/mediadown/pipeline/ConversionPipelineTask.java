@@ -1,6 +1,8 @@
 package sune.app.mediadown.pipeline;
 
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Objects;
 
 import sune.app.mediadown.conversion.ConversionMedia;
 import sune.app.mediadown.entity.Converter;
@@ -9,6 +11,8 @@ import sune.app.mediadown.gui.table.ResolvedMedia;
 import sune.app.mediadown.manager.ConversionManager;
 import sune.app.mediadown.manager.PositionAwareManagerSubmitResult;
 import sune.app.mediadown.media.MediaConversionContext;
+import sune.app.mediadown.util.NIO;
+import sune.app.mediadown.util.Utils.Ignore;
 
 /** @since 00.01.26 */
 public final class ConversionPipelineTask
@@ -19,24 +23,58 @@ public final class ConversionPipelineTask
 	private final List<ConversionMedia> inputs;
 	/** @since 00.02.08 */
 	private final ResolvedMedia output;
+	/** @since 00.02.09 */
+	private PositionAwareManagerSubmitResult<Converter, Void> submitted;
+	/** @since 00.02.09 */
+	private final List<Path> replacedInputs;
 	
-	/** @since 00.02.08 */
-	private ConversionPipelineTask(List<ConversionMedia> inputs, ResolvedMedia output) {
-		if(inputs == null || inputs.isEmpty() || output == null) {
+	/** @since 00.02.09 */
+	private ConversionPipelineTask(List<ConversionMedia> inputs, ResolvedMedia output,
+			PositionAwareManagerSubmitResult<Converter, Void> submitted, List<Path> replacedInputs) {
+		if(inputs == null || inputs.isEmpty() || output == null || replacedInputs == null) {
 			throw new IllegalArgumentException();
 		}
 		
 		this.inputs = inputs;
 		this.output = output;
+		this.submitted = submitted;
+		this.replacedInputs = replacedInputs;
 	}
 	
 	/** @since 00.02.08 */
 	public static final ConversionPipelineTask of(List<ConversionMedia> inputs, ResolvedMedia output) {
-		return new ConversionPipelineTask(inputs, output);
+		return new ConversionPipelineTask(inputs, output, null, List.of());
+	}
+	
+	/**
+	 * Creates a task that converts the given inputs and then deletes the replaced inputs,
+	 * if and only if the conversion successfully finishes.
+	 * @since 00.02.09
+	 */
+	public static final ConversionPipelineTask of(List<ConversionMedia> inputs, ResolvedMedia output,
+			List<Path> replacedInputs) {
+		return new ConversionPipelineTask(inputs, output, null, replacedInputs);
+	}
+	
+	/**
+	 * Creates a task that waits for an already submitted conversion, e.g. a conversion
+	 * that was started while its inputs were still being downloaded.
+	 * @since 00.02.09
+	 */
+	public static final ConversionPipelineTask of(List<ConversionMedia> inputs, ResolvedMedia output,
+			PositionAwareManagerSubmitResult<Converter, Void> submitted) {
+		return new ConversionPipelineTask(inputs, output, Objects.requireNonNull(submitted), List.of());
 	}
 	
 	@Override
 	protected PositionAwareManagerSubmitResult<Converter, Void> submit(Pipeline pipeline) throws Exception {
+		PositionAwareManagerSubmitResult<Converter, Void> result;
+		if((result = submitted) != null) {
+			// Use the already submitted conversion only once, e.g. a retry must submit a new one
+			submitted = null;
+			return result;
+		}
+		
 		return ConversionManager.instance().submit(inputs, output);
 	}
 	
@@ -47,6 +85,13 @@ public final class ConversionPipelineTask
 	
 	@Override
 	protected PipelineResult pipelineResult() throws Exception {
+		if(isDone() && !isError() && !isStopped()) {
+			// The inputs were replaced by the converted ones, they are not needed anymore
+			for(Path path : replacedInputs) {
+				Ignore.callVoid(() -> NIO.deleteFile(path));
+			}
+		}
+		
 		return TerminatingPipelineResult.getTypedInstance();
 	}
 	
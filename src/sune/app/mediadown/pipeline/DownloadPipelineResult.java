@@ -4,7 +4,9 @@ import java.util.List;
 import java.util.Objects;
 
 import sune.app.mediadown.conversion.ConversionMedia;
+import sune.app.mediadown.entity.Converter;
 import sune.app.mediadown.gui.table.ResolvedMedia;
+import sune.app.mediadown.manager.PositionAwareManagerSubmitResult;
 
 /** @since 00.01.26 */
 public final class DownloadPipelineResult implements PipelineResult {
@@ -14,12 +16,16 @@ public final class DownloadPipelineResult implements PipelineResult {
 	private final List<ConversionMedia> inputs;
 	/** @since 00.02.08 */
 	private final ResolvedMedia output;
+	/** @since 00.02.09 */
+	private final PositionAwareManagerSubmitResult<Converter, Void> conversion;
 	
-	/** @since 00.02.08 */
-	private DownloadPipelineResult(boolean needConversion, List<ConversionMedia> inputs, ResolvedMedia output) {
+	/** @since 00.02.09 */
+	private DownloadPipelineResult(boolean needConversion, List<ConversionMedia> inputs, ResolvedMedia output,
+			PositionAwareManagerSubmitResult<Converter, Void> conversion) {
 		this.needConversion = needConversion;
 		this.inputs = inputs;
 		this.output = output;
+		this.conversion = conversion;
 	}
 	
 	/** @since 00.02.08 */
@@ -32,16 +38,35 @@ public final class DownloadPipelineResult implements PipelineResult {
 	}
 	
 	public static final DownloadPipelineResult noConversion() {
-		return new DownloadPipelineResult(false, null, null);
+		return new DownloadPipelineResult(false, null, null, null);
 	}
 	
 	/** @since 00.02.08 */
 	public static final DownloadPipelineResult doConversion(List<ConversionMedia> inputs, ResolvedMedia output) {
-		return new DownloadPipelineResult(true, checkInputs(inputs), Objects.requireNonNull(output));
+		return new DownloadPipelineResult(true, checkInputs(inputs), Objects.requireNonNull(output), null);
+	}
+	
+	/**
+	 * Creates a result of a download whose conversion was already submitted during
+	 * the download, i.e. a conversion of inputs that were streamed to the converter
+	 * while being downloaded. The pipeline then only waits for the conversion to finish.
+	 * See {@link sune.app.mediadown.download.DownloadStream DownloadStream}.
+	 * @since 00.02.09
+	 */
+	public static final DownloadPipelineResult doConversion(List<ConversionMedia> inputs, ResolvedMedia output,
+			PositionAwareManagerSubmitResult<Converter, Void> conversion) {
+		return new DownloadPipelineResult(
+			true, checkInputs(inputs), Objects.requireNonNull(output), Objects.requireNonNull(conversion)
+		);
 	}
 	
 	@Override
 	public final PipelineTask process(Pipeline pipeline) throws Exception {
+		// The conversion is already running, the media cannot be fixed before it
+		if(conversion != null) {
+			return ConversionPipelineTask.of(inputs, output, conversion);
+		}
+		
 		// Try to fix the media, if a fixing is requested, before anything else
 		if(output.media().metadata().get("media.fix.required", false)) {
 			return MediaFixPipelineTask.of(needConversion, inputs, output);
@@ -4,6 +4,8 @@ import java.util.function.Function;
 import java.util.function.Supplier;
 
 import sune.app.mediadown.concurrent.PositionAwareQueueTaskExecutor.PositionAwareQueueTaskResult;
+import sune.app.mediadown.concurrent.PriorityQueueTaskExecutor.PriorityQueueTaskResult;
+import sune.app.mediadown.conversion.ConversionScheduler.Prioritizable;
 import sune.app.mediadown.event.Event;
 import sune.app.mediadown.event.EventBindable;
 import sune.app.mediadown.event.EventRegistry;
@@ -100,6 +102,25 @@ public abstract class ManagerPipelineTask<R, V> implements PipelineTask {
 		return pipelineResult();
 	}
 	
+	/**
+	 * Moves the task to the front of the queue of its manager. Has no effect, if the task
+	 * is not queued anymore or if the queue does not support priorities.
+	 */
+	public final void moveToFront() {
+		if(result == null
+				|| !(result.taskResult() instanceof PriorityQueueTaskResult)) {
+			return;
+		}
+		
+		PriorityQueueTaskResult<V> priorityTaskResult = Utils.cast(result.taskResult());
+		priorityTaskResult.moveToFront();
+		
+		// The work may also wait for other resources, e.g. for the conversion scheduler
+		if(result.value() instanceof Prioritizable) {
+			((Prioritizable) result.value()).priority(priorityTaskResult.priority());
+		}
+	}
+	
 	@Override
 	public final void stop() throws Exception {
 		doStop();
@@ -1,5 +1,6 @@
 package sune.app.mediadown.pipeline;
 
+import java.nio.file.Path;
 import java.util.List;
 
 import sune.app.mediadown.conversion.ConversionMedia;
@@ -39,7 +40,7 @@ public final class MediaFixPipelineTask
 	
 	@Override
 	protected PositionAwareManagerSubmitResult<MediaFixer, Void> submit(Pipeline pipeline) throws Exception {
-		return MediaFixManager.instance().submit(inputs, output);
+		return MediaFixManager.instance().submit(inputs, output, needConversion);
 	}
 	
 	@Override
@@ -50,7 +51,10 @@ public final class MediaFixPipelineTask
 	@Override
 	protected PipelineResult pipelineResult() throws Exception {
 		if(needConversion) {
-			return ConversionPipelineResult.doConversion(inputs, output);
+			// The fixer may have left a part of the fix to the conversion
+			List<ConversionMedia> conversionInputs = doAction(MediaFixer::conversionInputs, inputs);
+			List<Path> replacedInputs = doAction(MediaFixer::replacedInputs, List.of());
+			return ConversionPipelineResult.doConversion(conversionInputs, output, replacedInputs);
 		}
 		
 		return ConversionPipelineResult.noConversion();
@@ -6,12 +6,16 @@ import java.io.StringReader;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.Predicate;
 
+import sune.app.mediadown.concurrent.Threads;
 import sune.app.mediadown.event.Event;
 import sune.app.mediadown.event.EventBindable;
 import sune.app.mediadown.event.EventRegistry;
@@ -20,6 +24,7 @@ import sune.app.mediadown.event.Listener;
 import sune.app.mediadown.util.NIO;
 import sune.app.mediadown.util.Pair;
 import sune.app.mediadown.util.Regex;
+import sune.app.mediadown.util.Utils.Ignore;
 
 public class FileChecker implements EventBindable<FileCheckEvent> {
 	
@@ -70,37 +75,67 @@ public class FileChecker implements EventBindable<FileCheckEvent> {
 		add(new FileCheckerEntry(path.toAbsolutePath(), requirements, version, null));
 	}
 	
+	/** @since 00.02.09 */
+	private static final boolean isRequired(FileCheckerEntry entry, boolean checkRequirements) {
+		Requirements requirements = entry.getRequirements();
+		return !checkRequirements
+					|| requirements == Requirements.ANY
+					|| requirements.equals(Requirements.CURRENT);
+	}
+	
 	/** @since 00.02.07 */
 	public final void generate(Predicate<Path> filter, boolean checkRequirements, Predicate<Path> predicateComputeHash)
 			throws Exception {
-		for(Entry<Path, FileCheckerEntry> mapEntry : entries.entrySet()) {
-			Path path = mapEntry.getKey();
-			FileCheckerEntry entry = mapEntry.getValue();
-			
-			try {
-				call(FileCheckEvent.BEGIN, path);
+		// Start computing all the hashes in parallel, the results are then processed in order.
+		// Hashing is mostly blocking I/O, therefore it is done in a dedicated I/O pool.
+		Map<Path, Future<String>> hashes = new HashMap<>();
+		ExecutorService executor = Threads.Pools.newFixedIO(Threads.maxNumberOfThreads());
+		
+		try {
+			for(Entry<Path, FileCheckerEntry> mapEntry : entries.entrySet()) {
+				Path path = mapEntry.getKey();
 				
-				if(!filter.test(path)) {
-					continue;
+				if(filter.test(path)
+						&& isRequired(mapEntry.getValue(), checkRequirements)
+						&& predicateComputeHash.test(path)) {
+					hashes.put(path, executor.submit(() -> Hash.sha1(path).toLowerCase()));
 				}
+			}
+			
+			for(Entry<Path, FileCheckerEntry> mapEntry : entries.entrySet()) {
+				Path path = mapEntry.getKey();
+				FileCheckerEntry entry = mapEntry.getValue();
 				
-				Requirements requirements = entry.getRequirements();
-				if(checkRequirements && requirements != Requirements.ANY
-						&& !requirements.equals(Requirements.CURRENT)) {
-					continue;
+				try {
+					call(FileCheckEvent.BEGIN, path);
+					
+					if(!filter.test(path)) {
+						continue;
+					}
+					
+					Requirements requirements = entry.getRequirements();
+					if(!isRequired(entry, checkRequirements)) {
+						continue;
+					}
+					
+					Future<String> task = hashes.get(path);
+					String hash = task != null ? task.get() : null;
+					Path relPath = relativePath(path);
+					String version = entry.getVersion();
+					FileCheckerEntry newEntry = new FileCheckerEntry(relPath, requirements, version, hash);
+					mapEntry.setValue(newEntry);
+					
+					call(FileCheckEvent.UPDATE, new Pair<>(path, hash));
+				} finally {
+					call(FileCheckEvent.END, path);
 				}
-				
-				String hash = predicateComputeHash.test(path) ? Hash.sha1(path).toLowerCase() : null;
-				Path relPath = relativePath(path);
-				String version = entry.getVersion();
-				FileCheckerEntry newEntry = new FileCheckerEntry(relPath, requirements, version, hash);
-				mapEntry.setValue(newEntry);
-				
-				call(FileCheckEvent.UPDATE, new Pair<>(path, hash));
-			} finally {
-				call(FileCheckEvent.END, path);
 			}
+		} finally {
+			executor.shutdownNow();
 		}
+		
+		// Remember the hashes for the next time
+		Ignore.callVoid(HashCache::save);
 	}
 	
 	@Override
@@ -3,47 +3,92 @@ package sune.app.mediadown.update;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
 public final class Hash {
 	
-	private static MessageDigest MD_SHA1;
-	private static MessageDigest ensureMD_SHA1() {
-		if((MD_SHA1 == null)) {
-			try {
-				return MD_SHA1 = MessageDigest.getInstance("SHA-1");
-			} catch(NoSuchAlgorithmException ex) {
-				// Should not happen
-				throw new IllegalStateException("Unable to instantiate SHA-1 Message Digest");
-			}
+	/** @since 00.02.09 */
+	private static final int BUFFER_SIZE = 1 << 20; // 1 MiB
+	
+	// Message digests are not thread-safe, therefore each thread has its own
+	/** @since 00.02.09 */
+	private static final ThreadLocal<MessageDigest> MD_SHA1 = ThreadLocal.withInitial(Hash::newMD_SHA1);
+	/** @since 00.02.09 */
+	private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(
+		() -> ByteBuffer.allocateDirect(BUFFER_SIZE)
+	);
+	
+	/** @since 00.02.09 */
+	private static final MessageDigest newMD_SHA1() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch(NoSuchAlgorithmException ex) {
+			// Should not happen
+			throw new IllegalStateException("Unable to instantiate SHA-1 Message Digest");
 		}
-		return MD_SHA1;
 	}
 	
 	// Forbid anyone to create an instance of this class
 	private Hash() {
 	}
 	
-	private static final byte[] sha1raw(Path file) {
-		// Ensure the message digest of SHA1
-		MessageDigest mdg = ensureMD_SHA1();
-		// Open the file's channel so it can be mapped and read
+	/** @since 00.02.09 */
+	private static final boolean update(MessageDigest mdg, Path file) {
+		// The file is read to a large direct buffer rather than memory-mapped, since a mapped
+		// file cannot be replaced on some systems until the mapping is garbage-collected.
 		try(FileChannel fch = FileChannel.open(file, StandardOpenOption.READ)) {
-			ByteBuffer  buf = ByteBuffer.allocate(8192);
+			ByteBuffer  buf = BUFFER.get().clear();
 			while(fch.read(buf) != -1) {
 				buf.flip();
 				mdg.update(buf);
 				buf.clear();
 			}
+			return true;
 		} catch(IOException ex) {
+			return false;
 		}
-		return mdg.digest();
 	}
 	
+	private static final String sha1(Path file, BasicFileAttributes attrs) {
+		MessageDigest mdg = MD_SHA1.get();
+		mdg.reset();
+		
+		boolean success = update(mdg, file);
+		String hash = Hex.string(mdg.digest());
+		
+		// Only remember the hash of a file that was read completely
+		if(success && attrs != null) {
+			HashCache.put(file, attrs.size(), attrs.lastModifiedTime().toMillis(), hash);
+		}
+		
+		return hash;
+	}
+	
+	/**
+	 * Returns the SHA-1 hash of the given file. The hash of a file that has not changed
+	 * since it was last hashed is taken from the {@linkplain HashCache cache}.
+	 * Can be called from multiple threads at once.
+	 */
 	public static final String sha1(Path file) {
-		return Hex.string(sha1raw(file));
+		BasicFileAttributes attrs = null;
+		
+		try {
+			attrs = Files.readAttributes(file, BasicFileAttributes.class);
+		} catch(IOException ex) {
+			// Ignore, do not use the cache
+		}
+		
+		String hash;
+		if(attrs != null
+				&& (hash = HashCache.get(file, attrs.size(), attrs.lastModifiedTime().toMillis())) != null) {
+			return hash;
+		}
+		
+		return sha1(file, attrs);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,132 @@
+package sune.app.mediadown.update;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import sune.app.mediadown.Shared;
+import sune.app.mediadown.util.NIO;
+import sune.app.mediadown.util.Regex;
+
+/**
+ * Cache of file hashes, so that files that have not changed are not hashed again.
+ * A file is considered unchanged, if both its size and last modification time are
+ * the same as when it was hashed. The cache may be stored in a file, so that it
+ * can also be used by the next runs of the application.
+ * @since 00.02.09
+ */
+public final class HashCache {
+	
+	private static final String STRING_DELIMITER = "|";
+	private static final String STRING_NEWLINE = "\n";
+	
+	private static final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+	private static volatile Path file;
+	private static volatile boolean dirty;
+	
+	// Forbid anyone to create an instance of this class
+	private HashCache() {
+	}
+	
+	private static final Path key(Path path) {
+		return path.toAbsolutePath().normalize();
+	}
+	
+	/** Sets the file in which the cache is stored and loads the cache from it, if it exists. */
+	public static final void load(Path file) throws IOException {
+		HashCache.file = file;
+		
+		if(!NIO.isRegularFile(file)) {
+			return;
+		}
+		
+		try(BufferedReader reader = Files.newBufferedReader(file, Shared.CHARSET)) {
+			for(String line; (line = reader.readLine()) != null;) {
+				String[] parts = line.split(Regex.quote(STRING_DELIMITER), 4);
+				
+				if(parts.length < 4) {
+					continue;
+				}
+				
+				try {
+					long size = Long.parseLong(parts[1]);
+					long modifiedTime = Long.parseLong(parts[2]);
+					entries.putIfAbsent(key(Path.of(parts[3])), new Entry(parts[0], size, modifiedTime));
+				} catch(RuntimeException ex) {
+					// Ignore invalid lines
+				}
+			}
+		}
+	}
+	
+	/** Stores the cache to its file, if it has been loaded from a file and has changed since. */
+	public static final void save() throws IOException {
+		Path output;
+		if((output = file) == null || !dirty) {
+			return;
+		}
+		
+		dirty = false;
+		StringBuilder builder = new StringBuilder();
+		
+		for(Map.Entry<Path, Entry> mapEntry : entries.entrySet()) {
+			Entry entry = mapEntry.getValue();
+			builder.append(String.join(STRING_DELIMITER,
+				entry.hash,
+				String.valueOf(entry.size),
+				String.valueOf(entry.modifiedTime),
+				mapEntry.getKey().toString()
+			));
+			builder.append(STRING_NEWLINE);
+		}
+		
+		// Replace the file at once, so that it is never read partially written
+		Path temp = output.resolveSibling(output.getFileName().toString() + ".tmp");
+		NIO.save(temp, builder.toString());
+		NIO.moveForce(temp, output);
+	}
+	
+	/** Returns the cached hash of the given file, or {@code null}, if the file has changed. */
+	public static final String get(Path path, long size, long modifiedTime) {
+		Entry entry;
+		if((entry = entries.get(key(path))) == null
+				|| entry.size != size
+				|| entry.modifiedTime != modifiedTime) {
+			return null;
+		}
+		
+		return entry.hash;
+	}
+	
+	public static final void put(Path path, long size, long modifiedTime, String hash) {
+		entries.put(key(path), new Entry(hash, size, modifiedTime));
+		dirty = true;
+	}
+	
+	public static final void remove(Path path) {
+		if(entries.remove(key(path)) != null) {
+			dirty = true;
+		}
+	}
+	
+	public static final void clear() {
+		entries.clear();
+		dirty = true;
+	}
+	
+	private static final class Entry {
+		
+		private final String hash;
+		private final long size;
+		private final long modifiedTime;
+		
+		public Entry(String hash, long size, long modifiedTime) {
+			this.hash = hash;
+			this.size = size;
+			this.modifiedTime = modifiedTime;
+		}
+	}
+}
@@ -25,6 +25,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
@@ -131,6 +132,10 @@ public final class JSON {
 		private JSONType lastType = JSONType.UNKNOWN;
 		private Pair<String, JSONCollection> lastParent;
 		private int c;
+		/** @since 00.02.09 */
+		private long lastLong;
+		/** @since 00.02.09 */
+		private boolean hasLastLong;
 		
 		/** @since 00.02.09 */
 		private boolean allowUnquotedNames;
@@ -230,9 +235,7 @@ public final class JSON {
 				}
 			}
 			
-			String value = str.toString();
-			JSONObject object = JSONObject.ofType(lastType, value);
-			str.setLength(0);
+			JSONObject object = pendingValue();
 			
 			switch(parentType) {
 				case OBJECT: pair.b.set(lastStr, object);         break;
@@ -245,6 +248,22 @@ public final class JSON {
 			lastStr  = null;
 		}
 		
+		/** @since 00.02.09 */
+		private final JSONObject pendingValue() {
+			JSONObject object;
+			
+			// Integers that fit into long are already parsed, do not create the string at all
+			if(hasLastLong && lastType == JSONType.INTEGER) {
+				object = JSONObject.ofLong(lastLong);
+			} else {
+				object = JSONObject.ofType(lastType, str.toString());
+			}
+			
+			str.setLength(0);
+			hasLastLong = false;
+			return object;
+		}
+		
 		private final int readAndMatchSequence(String sequence) throws IOException {
 			int i = 0, l = sequence.length();
 			
@@ -346,8 +365,10 @@ public final class JSON {
 		
 		private final void readNumber() throws IOException {
 			str.ensureCapacity(lim - pos); // Optimization
+			boolean negative = false;
 			if(c == '-') {
 				str.appendCodePoint(c);
+				negative = true;
 				c = next();
 			}
 			if(!Character.isDigit(c)) {
@@ -355,10 +376,24 @@ public final class JSON {
 			}
 			boolean fraction = false;
 			boolean exponent = false;
+			// Accumulate the value directly as long as it is a plain integer that does not overflow,
+			// the digits are still kept in the buffer, since the number may be used as a name.
+			boolean simple = true;
+			long value = 0L;
 			loop:
 			do {
 				if(Character.isDigit(c)) {
 					str.appendCodePoint(c);
+					
+					if(simple) {
+						int digit = Character.digit(c, 10);
+						
+						if(value > (Long.MAX_VALUE - digit) / 10L) {
+							simple = false;
+						} else {
+							value = value * 10L + digit;
+						}
+					}
 				} else {
 					switch(c) {
 						case '.':
@@ -392,6 +427,8 @@ public final class JSON {
 				}
 			} while((c = next()) != -1);
 			lastType = fraction ? JSONType.DECIMAL : JSONType.INTEGER;
+			hasLastLong = simple && !fraction && !exponent;
+			lastLong = negative ? -value : value;
 		}
 		
 		private final void readString() throws IOException {
@@ -437,6 +474,37 @@ public final class JSON {
 			lastType = JSONType.STRING_UNQUOTED;
 		}
 		
+		/** @since 00.02.09 */
+		private final void readScalar() throws IOException {
+			if(c == CHAR_STRING_QUOTES) {
+				readString();
+				return;
+			}
+			
+			if(c == '-' || Character.isDigit(c)) {
+				readNumber();
+				return;
+			}
+			
+			boolean success = false;
+			switch(c) {
+				case 't': success = readTrue(); break;
+				case 'f': success = readFalse(); break;
+				case 'n': success = readNull(); break;
+			}
+			
+			if(success) {
+				return;
+			}
+			
+			if(allowUnquotedNames) {
+				readStringUnquoted();
+				return;
+			}
+			
+			throw new IOException("Invalid JSON");
+		}
+		
 		private final void readNext() throws IOException {
 			while((c = skipWhitespaces()) != -1) {
 				switch(c) {
@@ -445,6 +513,7 @@ public final class JSON {
 						c = next();
 						lastStr = str.toString();
 						str.setLength(0);
+						hasLastLong = false;
 						break;
 					case CHAR_OBJECT_OPEN: readObject(); break;
 					case CHAR_ARRAY_OPEN: readArray(); break;
@@ -509,6 +578,15 @@ public final class JSON {
 			}
 		}
 		
+		/**
+		 * Creates a cursor over the input of this reader. The reader must not be used
+		 * to read the whole tree afterwards.
+		 * @since 00.02.09
+		 */
+		public final JSONCursor cursor() {
+			return new JSONCursor(this);
+		}
+		
 		/** @since 00.02.09 */
 		public final JSONReader allowUnquotedNames(boolean value) {
 			allowUnquotedNames = value;
@@ -516,6 +594,424 @@ public final class JSON {
 		}
 	}
 	
+	/**
+	 * Pull-style reader of JSON tokens. Unlike {@link JSONReader#read()}, no tree is built
+	 * unless explicitly requested, therefore only the required parts of large documents
+	 * have to be kept in memory.
+	 * @since 00.02.09
+	 */
+	public static final class JSONCursor implements AutoCloseable {
+		
+		private static final int STATE_ROOT          = 0;
+		private static final int STATE_VALUE         = 1;
+		private static final int STATE_VALUE_OR_END  = 2;
+		private static final int STATE_NAME          = 3;
+		private static final int STATE_NAME_OR_END   = 4;
+		private static final int STATE_AFTER_VALUE   = 5;
+		private static final int STATE_DONE          = 6;
+		
+		private final JSONReader reader;
+		private final List<Frame> frames = new ArrayList<>();
+		private int state = STATE_ROOT;
+		private JSONToken token;
+		private JSONObject value;
+		private boolean hasValue;
+		
+		private JSONCursor(JSONReader reader) {
+			this.reader = Objects.requireNonNull(reader);
+		}
+		
+		private final Frame top() {
+			return frames.isEmpty() ? null : frames.get(frames.size() - 1);
+		}
+		
+		private final JSONToken open(boolean isArray) throws IOException {
+			frames.add(new Frame(isArray));
+			reader.c = reader.next();
+			state = isArray ? STATE_VALUE_OR_END : STATE_NAME_OR_END;
+			return token = isArray ? JSONToken.ARRAY_START : JSONToken.OBJECT_START;
+		}
+		
+		private final JSONToken close(boolean isArray) throws IOException {
+			Frame frame = top();
+			
+			if(frame == null || frame.isArray != isArray) {
+				throw new IllegalStateException("Invalid character: " + Character.toString(reader.c));
+			}
+			
+			frames.remove(frames.size() - 1);
+			reader.c = reader.next();
+			state = STATE_AFTER_VALUE;
+			return token = isArray ? JSONToken.ARRAY_END : JSONToken.OBJECT_END;
+		}
+		
+		private final JSONToken readValueStart() throws IOException {
+			Frame frame = top();
+			
+			if(frame != null && frame.isArray) {
+				++frame.index;
+			}
+			
+			switch(reader.c) {
+				case CHAR_OBJECT_OPEN: return open(false);
+				case CHAR_ARRAY_OPEN: return open(true);
+				default: {
+					reader.readScalar();
+					hasValue = true;
+					state = STATE_AFTER_VALUE;
+					return token = JSONToken.VALUE;
+				}
+			}
+		}
+		
+		private final JSONToken readName() throws IOException {
+			if(reader.c == CHAR_STRING_QUOTES) {
+				reader.readString();
+			} else if(reader.allowUnquotedNames) {
+				reader.readStringUnquoted();
+			} else {
+				throw new IllegalStateException("Invalid name");
+			}
+			
+			if(reader.skipWhitespaces() != CHAR_SEPARATOR_PROPERTY) {
+				throw new IllegalStateException("Expected name separator");
+			}
+			
+			reader.c = reader.next();
+			top().name = reader.str.toString();
+			reader.str.setLength(0);
+			reader.lastType = JSONType.UNKNOWN;
+			state = STATE_VALUE;
+			return token = JSONToken.NAME;
+		}
+		
+		// Discards the current scalar value, if it has not been requested
+		private final void discardValue() {
+			if(hasValue) {
+				reader.str.setLength(0);
+				reader.lastType = JSONType.UNKNOWN;
+				reader.hasLastLong = false;
+				hasValue = false;
+			}
+			
+			value = null;
+		}
+		
+		private final boolean matches(String[] parts, int count) {
+			if(count != parts.length) {
+				return false;
+			}
+			
+			return matchesPrefix(parts, count);
+		}
+		
+		private final boolean matchesPrefix(String[] parts, int count) {
+			if(count > parts.length) {
+				return false;
+			}
+			
+			for(int i = 0; i < count; ++i) {
+				String part = parts[i];
+				
+				if(part.equals("*")) {
+					continue;
+				}
+				
+				Frame frame = frames.get(i);
+				
+				if(frame.isArray ? !part.equals(String.valueOf(frame.index)) : !part.equals(frame.name)) {
+					return false;
+				}
+			}
+			
+			return true;
+		}
+		
+		/**
+		 * Moves to the next token. Whitespaces and separators are consumed, so that only
+		 * the structural tokens, names and values are returned. At the end of the input
+		 * {@link JSONToken#END} is returned.
+		 */
+		public JSONToken next() throws IOException {
+			discardValue();
+			
+			if(state == STATE_ROOT) {
+				reader.c = reader.next(); // Bootstrap
+				
+				if(reader.c == JSONReader.CHAR_BYTE_ORDER_MARK) {
+					// Skip the BOM
+					reader.c = reader.next();
+				}
+				
+				state = STATE_VALUE;
+			}
+			
+			while(true) {
+				int c = reader.skipWhitespaces();
+				
+				switch(state) {
+					case STATE_VALUE: {
+						if(c == -1) {
+							if(!frames.isEmpty()) {
+								throw new IOException("Unexpected end of input");
+							}
+							
+							state = STATE_DONE;
+							continue;
+						}
+						
+						return readValueStart();
+					}
+					case STATE_VALUE_OR_END: {
+						if(c == CHAR_ARRAY_CLOSE) {
+							return close(true);
+						}
+						
+						state = STATE_VALUE;
+						continue;
+					}
+					case STATE_NAME: {
+						return readName();
+					}
+					case STATE_NAME_OR_END: {
+						if(c == CHAR_OBJECT_CLOSE) {
+							return close(false);
+						}
+						
+						state = STATE_NAME;
+						continue;
+					}
+					case STATE_AFTER_VALUE: {
+						if(frames.isEmpty()) {
+							state = STATE_DONE;
+							continue;
+						}
+						
+						switch(c) {
+							case CHAR_SEPARATOR_ELEMENT: {
+								reader.c = reader.next();
+								state = top().isArray ? STATE_VALUE : STATE_NAME;
+								continue;
+							}
+							case CHAR_ARRAY_CLOSE: return close(true);
+							case CHAR_OBJECT_CLOSE: return close(false);
+							case -1: throw new IOException("Unexpected end of input");
+							default: throw new IllegalStateException("Invalid character: " + Character.toString(c));
+						}
+					}
+					default: {
+						return token = JSONToken.END;
+					}
+				}
+			}
+		}
+		
+		/**
+		 * Skips the value of the current token. For a name its whole value is skipped,
+		 * for a start of an object or an array everything up to and including its end
+		 * is skipped. The skipped content is only scanned, it is not parsed.
+		 */
+		public void skipValue() throws IOException {
+			if(token == JSONToken.NAME) {
+				next();
+			}
+			
+			if(token != JSONToken.OBJECT_START && token != JSONToken.ARRAY_START) {
+				return;
+			}
+			
+			boolean inString = false;
+			boolean escaped = false;
+			
+			for(int depth = 1, c = reader.c;; c = reader.next()) {
+				switch(c) {
+					case -1: throw new IOException("Unexpected end of input");
+					case CHAR_STRING_QUOTES: if(!escaped) inString = !inString; break;
+					case CHAR_OBJECT_OPEN:
+					case CHAR_ARRAY_OPEN: if(!inString) ++depth; break;
+					case CHAR_OBJECT_CLOSE:
+					case CHAR_ARRAY_CLOSE: if(!inString) --depth; break;
+				}
+				
+				if(depth == 0) {
+					break;
+				}
+				
+				escaped = inString && c == CHAR_ESCAPE_SLASH && !escaped;
+			}
+			
+			boolean isArray = token == JSONToken.ARRAY_START;
+			frames.remove(frames.size() - 1);
+			reader.c = reader.next();
+			state = STATE_AFTER_VALUE;
+			token = isArray ? JSONToken.ARRAY_END : JSONToken.OBJECT_END;
+		}
+		
+		/**
+		 * Reads the value of the current token as a node. For a scalar value the value itself
+		 * is returned, for a start of an object or an array the whole collection is read.
+		 * For a name, the following value is read.
+		 */
+		public JSONNode readValue() throws IOException {
+			if(token == JSONToken.NAME) {
+				next();
+			}
+			
+			switch(token) {
+				case VALUE: return value();
+				case OBJECT_START:
+				case ARRAY_START: break;
+				default: return null;
+			}
+			
+			Deque<JSONCollection> parents = new ArrayDeque<>();
+			JSONCollection root = token == JSONToken.ARRAY_START
+										? JSONCollection.emptyArray()
+										: JSONCollection.empty();
+			parents.push(root);
+			
+			while(!parents.isEmpty()) {
+				JSONToken token = next();
+				JSONNode node;
+				
+				switch(token) {
+					case NAME: continue;
+					case OBJECT_END:
+					case ARRAY_END: parents.pop(); continue;
+					case OBJECT_START: node = JSONCollection.empty(); break;
+					case ARRAY_START: node = JSONCollection.emptyArray(); break;
+					case VALUE: node = value(); break;
+					default: throw new IOException("Unexpected end of input");
+				}
+				
+				JSONCollection parent = parents.peek();
+				
+				switch(parent.type()) {
+					case OBJECT: parent.set(top(1).name, node); break;
+					case ARRAY:  parent.add(node);              break;
+					default:     /* Should not happen */        break;
+				}
+				
+				if(node.isCollection()) {
+					parents.push((JSONCollection) node);
+				}
+			}
+			
+			return root;
+		}
+		
+		// Frame of the collection that contains the current token, with an offset for
+		// collection start tokens, whose own frame is already pushed.
+		private final Frame top(int startOffset) {
+			int offset = token == JSONToken.OBJECT_START || token == JSONToken.ARRAY_START ? startOffset : 0;
+			int index = frames.size() - 1 - offset;
+			return index >= 0 ? frames.get(index) : null;
+		}
+		
+		/**
+		 * Reads the rest of the input and passes every value at the given path to the action.
+		 * The path uses the same syntax as {@link JSONCollection#get(String)}, additionally
+		 * {@code *} matches any single name or index, e.g. {@code data.items.*.url}.
+		 * Values outside of the path are skipped without being parsed.
+		 */
+		public void select(String path, Consumer<JSONNode> action) throws IOException {
+			Objects.requireNonNull(action);
+			String[] parts = Regex.of(Regex.quote(String.valueOf((char) CHAR_NAME_SEPARATOR)))
+			                      .split(Objects.requireNonNull(path));
+			
+			for(JSONToken token; (token = next()) != JSONToken.END;) {
+				int count;
+				
+				switch(token) {
+					case VALUE: count = frames.size(); break;
+					case OBJECT_START:
+					case ARRAY_START: count = frames.size() - 1; break;
+					default: continue;
+				}
+				
+				if(matches(parts, count)) {
+					action.accept(readValue());
+				} else if(token != JSONToken.VALUE && !matchesPrefix(parts, count)) {
+					skipValue();
+				}
+			}
+		}
+		
+		/** Returns the current scalar value, or {@code null}, if the current token is not a value. */
+		public JSONObject value() {
+			if(token != JSONToken.VALUE) {
+				return null;
+			}
+			
+			if(value == null) {
+				value = reader.pendingValue();
+				hasValue = false;
+			}
+			
+			return value;
+		}
+		
+		/** Returns the current name, i.e. the name of the current property, or {@code null}. */
+		public String name() {
+			Frame frame = top(1);
+			return frame == null || frame.isArray ? null : frame.name;
+		}
+		
+		/** Returns the path of the current token in the same format as {@link JSONNode#fullName()}. */
+		public String path() {
+			StringBuilder builder = new StringBuilder();
+			int count = frames.size();
+			
+			if(token == JSONToken.OBJECT_START || token == JSONToken.ARRAY_START) {
+				--count; // The collection's own frame has no name yet
+			}
+			
+			for(int i = 0; i < count; ++i) {
+				Frame frame = frames.get(i);
+				
+				if(frame.isArray ? frame.index < 0 : frame.name == null) {
+					break;
+				}
+				
+				if(i > 0) {
+					builder.append((char) CHAR_NAME_SEPARATOR);
+				}
+				
+				if(frame.isArray) {
+					builder.append(frame.index);
+				} else {
+					builder.append(frame.name);
+				}
+			}
+			
+			return builder.length() == 0 ? null : builder.toString();
+		}
+		
+		public JSONToken token() {
+			return token;
+		}
+		
+		public int depth() {
+			return frames.size();
+		}
+		
+		@Override
+		public void close() throws IOException {
+			reader.input.close();
+		}
+		
+		private static final class Frame {
+			
+			private final boolean isArray;
+			private int index = -1;
+			private String name;
+			
+			public Frame(boolean isArray) {
+				this.isArray = isArray;
+			}
+		}
+	}
+	
 	/** @since 00.02.09 */
 	public static final class JSONString {
 		
@@ -688,12 +1184,26 @@ public final class JSON {
 		UNKNOWN;
 	}
 	
+	/** @since 00.02.09 */
+	public static enum JSONToken {
+		
+		OBJECT_START,
+		OBJECT_END,
+		ARRAY_START,
+		ARRAY_END,
+		NAME,
+		VALUE,
+		END;
+	}
+	
 	/** @since 00.02.09 */
 	public static abstract class JSONNode {
 		
 		protected JSONCollection parent;
 		protected String name;
 		protected JSONType type;
+		/** @since 00.02.09 */
+		protected int index;
 		
 		public JSONNode(JSONCollection parent, String name, JSONType type) {
 			this.parent = parent; // null for root
@@ -706,6 +1216,14 @@ public final class JSON {
 			this.name = name;
 		}
 		
+		// Array elements have no stored name, it is derived from the index when requested
+		/** @since 00.02.09 */
+		protected final void assign(JSONCollection parent, int index) {
+			this.parent = parent;
+			this.name = null;
+			this.index = index;
+		}
+		
 		protected final void unassign() {
 			this.parent = null;
 			this.name = null;
@@ -725,10 +1243,19 @@ public final class JSON {
 		}
 		
 		public JSONCollection parent() { return parent; }
-		public String name() { return name; }
 		public JSONType type() { return type; }
 		
+		public String name() {
+			if(name == null && parent != null && parent.type == JSONType.ARRAY) {
+				return String.valueOf(index);
+			}
+			
+			return name;
+		}
+		
 		public String fullName() {
+			String name = name();
+			
 			if(parent == null) {
 				return name;
 			}
@@ -748,7 +1275,7 @@ public final class JSON {
 		
 		@Override
 		public int hashCode() {
-			return Objects.hash(type, name);
+			return Objects.hash(type, name());
 		}
 		
 		@Override
@@ -760,7 +1287,7 @@ public final class JSON {
 			if(getClass() != obj.getClass())
 				return false;
 			JSONNode other = (JSONNode) obj;
-			return type == other.type && Objects.equals(name, other.name);
+			return type == other.type && Objects.equals(name(), other.name());
 		}
 	}
 	
@@ -768,14 +1295,22 @@ public final class JSON {
 	public static final class JSONObject extends JSONNode {
 		
 		private Object value;
+		/** @since 00.02.09 */
+		private long primitive; // INTEGER value or DECIMAL bits, value is null for these
 		
 		private JSONObject(JSONType type, Object value) {
-			this(null, null, type, value);
+			this(null, null, type, value, 0L);
+		}
+		
+		/** @since 00.02.09 */
+		private JSONObject(JSONType type, long primitive) {
+			this(null, null, type, null, primitive);
 		}
 		
-		private JSONObject(JSONCollection parent, String name, JSONType type, Object value) {
+		private JSONObject(JSONCollection parent, String name, JSONType type, Object value, long primitive) {
 			super(parent, name, type);
 			this.value = value;
+			this.primitive = primitive;
 		}
 		
 		public static final JSONObject of(Object value) {
@@ -800,8 +1335,8 @@ public final class JSON {
 			switch(type) {
 				case NULL: return ofNull();
 				case BOOLEAN: return ofBoolean(Boolean.valueOf(value));
-				case INTEGER: return ofLong(Long.valueOf(value));
-				case DECIMAL: return ofDouble(Double.valueOf(value));
+				case INTEGER: return ofLong(Long.parseLong(value));
+				case DECIMAL: return ofDouble(Double.parseDouble(value));
 				case STRING: return ofString(value);
 				case STRING_UNQUOTED: return ofStringUnquoted(value);
 				default: throw new IllegalArgumentException("Invalid type");
@@ -810,12 +1345,12 @@ public final class JSON {
 		
 		public static final JSONObject ofNull() { return new JSONObject(JSONType.NULL, null); }
 		public static final JSONObject ofBoolean(boolean value) { return new JSONObject(JSONType.BOOLEAN, value); }
-		public static final JSONObject ofByte(byte value) { return new JSONObject(JSONType.INTEGER, (long) value); }
-		public static final JSONObject ofShort(short value) { return new JSONObject(JSONType.INTEGER, (long) value); }
-		public static final JSONObject ofInt(int value) { return new JSONObject(JSONType.INTEGER, (long) value); }
+		public static final JSONObject ofByte(byte value) { return ofLong(value); }
+		public static final JSONObject ofShort(short value) { return ofLong(value); }
+		public static final JSONObject ofInt(int value) { return ofLong(value); }
 		public static final JSONObject ofLong(long value) { return new JSONObject(JSONType.INTEGER, value); }
-		public static final JSONObject ofFloat(float value) { return new JSONObject(JSONType.DECIMAL, (double) value); }
-		public static final JSONObject ofDouble(double value) { return new JSONObject(JSONType.DECIMAL, value); }
+		public static final JSONObject ofFloat(float value) { return ofDouble(value); }
+		public static final JSONObject ofDouble(double value) { return new JSONObject(JSONType.DECIMAL, Double.doubleToLongBits(value)); }
 		
 		public static final JSONObject ofString(String value) {
 			if(value == null) {
@@ -839,9 +1374,10 @@ public final class JSON {
 		public void clear() {
 			super.clear();
 			value = null;
+			primitive = 0L;
 		}
 		
-		@Override public JSONObject copy() { return new JSONObject(parent, name, type, value); }
+		@Override public JSONObject copy() { return new JSONObject(parent, name, type, value, primitive); }
 		@Override public boolean isObject() { return true; }
 		@Override public boolean isCollection() { return false; }
 		
@@ -855,18 +1391,30 @@ public final class JSON {
 		public byte byteValue() { return (byte) longValue(); }
 		public short shortValue() { return (short) longValue(); }
 		public int intValue() { return (int) longValue(); }
-		public long longValue() { Long v; return (v = typedValue(Long.class)) != null ? v : 0L; }
+		public long longValue() { return type == JSONType.INTEGER ? primitive : 0L; }
 		public float floatValue() { return (float) doubleValue(); }
-		public double doubleValue() { Double v; return (v = typedValue(Double.class)) != null ? v : 0.0; }
-		public String stringValue() { return String.valueOf(value); }
-		public Object value() { return value; }
+		public double doubleValue() { return type == JSONType.DECIMAL ? Double.longBitsToDouble(primitive) : 0.0; }
+		public String stringValue() { return String.valueOf(value()); }
+		
+		public Object value() {
+			switch(type) {
+				case INTEGER: return longValue();
+				case DECIMAL: return doubleValue();
+				default:      return value;
+			}
+		}
+		
+		/** @since 00.02.09 */
+		private final boolean isPrimitive() {
+			return type == JSONType.INTEGER || type == JSONType.DECIMAL;
+		}
 		
 		@Override
 		public void toString(StringBuilder builder, int depth, boolean compress) {
 			switch(type) {
 				case BOOLEAN: { builder.append((boolean) value); break; }
-				case INTEGER: { builder.append((long) value); break; }
-				case DECIMAL: { builder.append((double) value); break; }
+				case INTEGER: { builder.append(longValue()); break; }
+				case DECIMAL: { builder.append(doubleValue()); break; }
 				case STRING: {
 					builder.append('"');
 					JSONString.escape(String.valueOf(value), builder);
@@ -882,7 +1430,8 @@ public final class JSON {
 		public int hashCode() {
 			final int prime = 31;
 			int result = super.hashCode();
-			result = prime * result + Objects.hash(value);
+			// Same as Objects.hash(value()), just without boxing
+			result = prime * result + prime + (isPrimitive() ? Long.hashCode(primitive) : Objects.hashCode(value));
 			return result;
 		}
 		
@@ -895,7 +1444,7 @@ public final class JSON {
 			if(getClass() != obj.getClass())
 				return false;
 			JSONObject other = (JSONObject) obj;
-			return Objects.equals(value, other.value);
+			return Objects.equals(value, other.value) && primitive == other.primitive;
 		}
 	}
 	
@@ -903,20 +1452,48 @@ public final class JSON {
 	public static final class JSONCollection extends JSONNode implements Iterable<JSONNode> {
 		
 		private Map<String, JSONNode> nodes;
+		/** @since 00.02.09 */
+		private List<JSONNode> items; // Used instead of nodes for arrays
 		
 		private JSONCollection(boolean isArray) {
-			this(null, null, isArray ? JSONType.ARRAY : JSONType.OBJECT, null);
+			this(null, null, isArray ? JSONType.ARRAY : JSONType.OBJECT, null, null);
 		}
 		
-		private JSONCollection(JSONCollection parent, String name, JSONType type, Map<String, JSONNode> nodes) {
+		private JSONCollection(JSONCollection parent, String name, JSONType type, Map<String, JSONNode> nodes,
+				List<JSONNode> items) {
 			super(parent, name, type);
 			this.nodes = nodes != null ? new LinkedHashMap<>(nodes) : null;
+			this.items = items != null ? new ArrayList<>(items) : null;
 		}
 		
 		private static final String indexName(int index) {
 			return String.valueOf(index);
 		}
 		
+		// Parses only canonical indices, i.e. the same strings that indexName produces
+		/** @since 00.02.09 */
+		private static final int indexOf(String name) {
+			int length = name.length();
+			
+			if(length == 0 || length > 10 || (length > 1 && name.charAt(0) == '0')) {
+				return -1;
+			}
+			
+			long index = 0L;
+			
+			for(int i = 0; i < length; ++i) {
+				char c = name.charAt(i);
+				
+				if(c < '0' || c > '9') {
+					return -1;
+				}
+				
+				index = index * 10L + (c - '0');
+			}
+			
+			return index <= Integer.MAX_VALUE ? (int) index : -1;
+		}
+		
 		private static final String tabString(int depth) {
 			return "\t".repeat(depth);
 		}
@@ -1036,16 +1613,15 @@ public final class JSON {
 			}
 			
 			JSONCollection collection = new JSONCollection(true);
-			Map<String, JSONNode> nodesMap = new LinkedHashMap<>();
+			List<JSONNode> items = new ArrayList<>(nodes.length);
 			
 			for(int i = 0, l = nodes.length; i < l; ++i) {
-				String name = indexName(i);
 				JSONNode node = (JSONNode) nodes[i];
-				node.assign(collection, name);
-				nodesMap.put(name, node);
+				node.assign(collection, i);
+				items.add(node);
 			}
 			
-			collection.setNodesMap(nodesMap);
+			collection.items = items;
 			return collection;
 		}
 		
@@ -1056,16 +1632,15 @@ public final class JSON {
 			}
 			
 			JSONCollection collection = new JSONCollection(true);
-			Map<String, JSONNode> nodesMap = new LinkedHashMap<>();
+			List<JSONNode> items = new ArrayList<>(values.length);
 			
 			for(int i = 0, l = values.length; i < l; ++i) {
-				String name = indexName(i);
 				JSONNode node = asNode(values[i]);
-				node.assign(collection, name);
-				nodesMap.put(name, node);
+				node.assign(collection, i);
+				items.add(node);
 			}
 			
-			collection.setNodesMap(nodesMap);
+			collection.items = items;
 			return collection;
 		}
 		
@@ -1074,75 +1649,102 @@ public final class JSON {
 		}
 		
 		private final int nextIndex() {
-			return nodes != null ? nodes.size() : 0;
+			return length();
 		}
 		
-		private final void reindex() {
-			List<JSONNode> nodesToAdd = new ArrayList<>(nodes.size());
-			boolean foundMismatch = false;
-			
-			int index = 0;
-			for(Iterator<Entry<String, JSONNode>> it = nodes.entrySet().iterator(); it.hasNext();) {
-				Entry<String, JSONNode> entry = it.next();
-				
-				if(foundMismatch
-						|| Integer.valueOf(entry.getKey()) != index++) {
-					nodesToAdd.add(entry.getValue());
-					it.remove();
-					foundMismatch = true;
-				}
-			}
-			
-			if(foundMismatch) {
-				index = nodes.size();
-				
-				for(JSONNode node : nodesToAdd) {
-					String name = indexName(index++);
-					node.assign(this, name);
-					nodes.put(name, node);
-				}
+		/** @since 00.02.09 */
+		private final boolean isArray() {
+			return type == JSONType.ARRAY;
+		}
+		
+		private final void reindex(int from) {
+			for(int i = from, l = items.size(); i < l; ++i) {
+				items.get(i).index = i;
 			}
 		}
 		
 		private final JSONNode directGet(String name) {
+			if(isArray()) {
+				return directGet(indexOf(name));
+			}
+			
 			return nodes != null ? nodes.get(name) : null;
 		}
 		
+		/** @since 00.02.09 */
+		private final JSONNode directGet(int index) {
+			if(!isArray()) {
+				return directGet(indexName(index));
+			}
+			
+			return items != null && index >= 0 && index < items.size() ? items.get(index) : null;
+		}
+		
 		private final void directSet(String name, JSONNode node) {
-			if(nodes == null) {
-				nodes = new LinkedHashMap<>();
+			if(isArray()) {
+				directSet(Integer.parseInt(name), node);
+				return;
 			}
 			
-			if(type == JSONType.ARRAY) {
-				int lastIndex = nodes.size();
-				
-				if(Integer.valueOf(name) > lastIndex) {
-					name = indexName(lastIndex);
-				}
+			if(nodes == null) {
+				nodes = new LinkedHashMap<>();
 			}
 			
 			node.assign(this, name);
 			nodes.put(name, node);
 		}
 		
+		/** @since 00.02.09 */
+		private final void directSet(int index, JSONNode node) {
+			if(!isArray()) {
+				directSet(indexName(index), node);
+				return;
+			}
+			
+			if(items == null) {
+				items = new ArrayList<>();
+			}
+			
+			int lastIndex = items.size();
+			
+			if(index < 0 || index >= lastIndex) {
+				node.assign(this, lastIndex);
+				items.add(node);
+			} else {
+				node.assign(this, index);
+				items.set(index, node);
+			}
+		}
+		
 		private final void directRemove(String name) {
+			if(isArray()) {
+				directRemove(indexOf(name));
+				return;
+			}
+			
 			if(nodes != null) {
 				JSONNode node = nodes.remove(name);
 				
 				if(node != null) {
-					if(type == JSONType.ARRAY) {
-						int index = Integer.valueOf(name);
-						
-						if(index < nodes.size() - 1) {
-							reindex();
-						}
-					}
-					
 					node.unassign();
 				}
 			}
 		}
 		
+		/** @since 00.02.09 */
+		private final void directRemove(int index) {
+			if(!isArray()) {
+				directRemove(indexName(index));
+				return;
+			}
+			
+			if(items != null && index >= 0 && index < items.size()) {
+				JSONNode node = items.remove(index);
+				reindex(index);
+				node.unassign();
+			}
+		}
+		
 		private final TraverseResult traverse(String name) {
 			return traverse(this, name);
 		}
@@ -1152,11 +1754,32 @@ public final class JSON {
 			return result.success && result.node.type() == type;
 		}
 		
+		/** @since 00.02.09 */
+		private final boolean has(int index, JSONType type) {
+			JSONNode node = directGet(index);
+			return node != null && node.type() == type;
+		}
+		
 		private final <T> T get(String name, JSONType type, Function<JSONObject, T> op, T defaultValue) {
 			TraverseResult result = traverse(name);
 			return result.success ? (result.node.type() == type ? op.apply((JSONObject) result.node) : defaultValue) : defaultValue;
 		}
 		
+		/** @since 00.02.09 */
+		private final <T> T get(int index, JSONType type, Function<JSONObject, T> op, T defaultValue) {
+			JSONNode node = directGet(index);
+			return node != null && node.type() == type ? op.apply((JSONObject) node) : defaultValue;
+		}
+		
+		/** @since 00.02.09 */
+		private final void remove(int index, JSONType type) {
+			JSONNode node = directGet(index);
+			
+			if(node != null && node.type() == type) {
+				directRemove(index);
+			}
+		}
+		
 		private final void remove(String name, JSONType type) {
 			TraverseResult result = traverse(name);
 			
@@ -1190,19 +1813,19 @@ public final class JSON {
 		public boolean hasDouble(String name) { return has(name, JSONType.DECIMAL); }
 		public boolean hasString(String name) { return has(name, JSONType.STRING); }
 		
-		public boolean has(int index) { return has(indexName(index)); }
-		public boolean hasObject(int index) { return hasObject(indexName(index)); }
-		public boolean hasCollection(int index) { return hasCollection(indexName(index)); }
+		public boolean has(int index) { return directGet(index) != null; }
+		public boolean hasObject(int index) { JSONNode node; return (node = directGet(index)) != null && node.isObject(); }
+		public boolean hasCollection(int index) { JSONNode node; return (node = directGet(index)) != null && node.isCollection(); }
 		
-		public boolean hasNull(int index) { return hasNull(indexName(index)); }
-		public boolean hasBoolean(int index) { return hasBoolean(indexName(index)); }
-		public boolean hasByte(int index) { return hasByte(indexName(index)); }
-		public boolean hasShort(int index) { return hasShort(indexName(index)); }
-		public boolean hasInt(int index) { return hasInt(indexName(index)); }
-		public boolean hasLong(int index) { return hasLong(indexName(index)); }
-		public boolean hasFloat(int index) { return hasFloat(indexName(index)); }
-		public boolean hasDouble(int index) { return hasDouble(indexName(index)); }
-		public boolean hasString(int index) { return hasString(indexName(index)); }
+		public boolean hasNull(int index) { return has(index, JSONType.NULL); }
+		public boolean hasBoolean(int index) { return has(index, JSONType.BOOLEAN); }
+		public boolean hasByte(int index) { return has(index, JSONType.INTEGER); }
+		public boolean hasShort(int index) { return has(index, JSONType.INTEGER); }
+		public boolean hasInt(int index) { return has(index, JSONType.INTEGER); }
+		public boolean hasLong(int index) { return has(index, JSONType.INTEGER); }
+		public boolean hasFloat(int index) { return has(index, JSONType.DECIMAL); }
+		public boolean hasDouble(int index) { return has(index, JSONType.DECIMAL); }
+		public boolean hasString(int index) { return has(index, JSONType.STRING); }
 		
 		public JSONNode get(String name, JSONNode defaultValue) {
 			TraverseResult result = traverse(name);
@@ -1243,33 +1866,33 @@ public final class JSON {
 		public double getDouble(String name) { return getDouble(name, 0.0); }
 		public String getString(String name) { return getString(name, null); }
 		
-		public JSONNode get(int index, JSONNode defaultValue) { return get(indexName(index), defaultValue); }
-		public JSONObject getObject(int index, JSONObject defaultValue) { return getObject(indexName(index), defaultValue); }
-		public JSONCollection getCollection(int index, JSONCollection defaultValue) { return getCollection(indexName(index), defaultValue); }
-		
-		public Object getNull(int index, Object defaultValue) { return getNull(indexName(index), defaultValue); }
-		public boolean getBoolean(int index, boolean defaultValue) { return getBoolean(indexName(index), defaultValue); }
-		public byte getByte(int index, byte defaultValue) { return getByte(indexName(index), defaultValue); }
-		public short getShort(int index, short defaultValue) { return getShort(indexName(index), defaultValue); }
-		public int getInt(int index, int defaultValue) { return getInt(indexName(index), defaultValue); }
-		public long getLong(int index, long defaultValue) { return getLong(indexName(index), defaultValue); }
-		public float getFloat(int index, float defaultValue) { return getFloat(indexName(index), defaultValue); }
-		public double getDouble(int index, double defaultValue) { return getDouble(indexName(index), defaultValue); }
-		public String getString(int index, String defaultValue) { return getString(indexName(index), defaultValue); }
-		
-		public JSONNode get(int index) { return get(indexName(index)); }
-		public JSONObject getObject(int index) { return getObject(indexName(index)); }
-		public JSONCollection getCollection(int index) { return getCollection(indexName(index)); }
-		
-		public Object getNull(int index) { return getNull(indexName(index)); }
-		public boolean getBoolean(int index) { return getBoolean(indexName(index)); }
-		public byte getByte(int index) { return getByte(indexName(index)); }
-		public short getShort(int index) { return getShort(indexName(index)); }
-		public int getInt(int index) { return getInt(indexName(index)); }
-		public long getLong(int index) { return getLong(indexName(index)); }
-		public float getFloat(int index) { return getFloat(indexName(index)); }
-		public double getDouble(int index) { return getDouble(indexName(index)); }
-		public String getString(int index) { return getString(indexName(index)); }
+		public JSONNode get(int index, JSONNode defaultValue) { JSONNode node; return (node = directGet(index)) != null ? node : defaultValue; }
+		public JSONObject getObject(int index, JSONObject defaultValue) { JSONNode node; return (node = directGet(index)) != null && node.isObject() ? (JSONObject) node : defaultValue; }
+		public JSONCollection getCollection(int index, JSONCollection defaultValue) { JSONNode node; return (node = directGet(index)) != null && node.isCollection() ? (JSONCollection) node : defaultValue; }
+		
+		public Object getNull(int index, Object defaultValue) { return get(index, JSONType.NULL, JSONObject::nullValue, defaultValue); }
+		public boolean getBoolean(int index, boolean defaultValue) { return get(index, JSONType.BOOLEAN, JSONObject::booleanValue, defaultValue); }
+		public byte getByte(int index, byte defaultValue) { return get(index, JSONType.INTEGER, JSONObject::byteValue, defaultValue); }
+		public short getShort(int index, short defaultValue) { return get(index, JSONType.INTEGER, JSONObject::shortValue, defaultValue); }
+		public int getInt(int index, int defaultValue) { return get(index, JSONType.INTEGER, JSONObject::intValue, defaultValue); }
+		public long getLong(int index, long defaultValue) { return get(index, JSONType.INTEGER, JSONObject::longValue, defaultValue); }
+		public float getFloat(int index, float defaultValue) { return get(index, JSONType.DECIMAL, JSONObject::floatValue, defaultValue); }
+		public double getDouble(int index, double defaultValue) { return get(index, JSONType.DECIMAL, JSONObject::doubleValue, defaultValue); }
+		public String getString(int index, String defaultValue) { return get(index, JSONType.STRING, JSONObject::stringValue, defaultValue); }
+		
+		public JSONNode get(int index) { return get(index, (JSONNode) null); }
+		public JSONObject getObject(int index) { return getObject(index, null); }
+		public JSONCollection getCollection(int index) { return getCollection(index, null); }
+		
+		public Object getNull(int index) { return getNull(index, null); }
+		public boolean getBoolean(int index) { return getBoolean(index, false); }
+		public byte getByte(int index) { return getByte(index, (byte) 0); }
+		public short getShort(int index) { return getShort(index, (short) 0); }
+		public int getInt(int index) { return getInt(index, 0); }
+		public long getLong(int index) { return getLong(index, 0L); }
+		public float getFloat(int index) { return getFloat(index, 0.0f); }
+		public double getDouble(int index) { return getDouble(index, 0.0); }
+		public String getString(int index) { return getString(index, null); }
 		
 		public void set(String name, JSONNode node) {
 			Objects.requireNonNull(node);
@@ -1311,7 +1934,7 @@ public final class JSON {
 			}
 		}
 		
-		public void set(int index, JSONNode node) { set(indexName(index), node); }
+		public void set(int index, JSONNode node) { directSet(index, Objects.requireNonNull(node)); }
 		
 		public void setNull(String name) { set(name, JSONObject.ofNull()); }
 		public void set(String name, boolean value) { set(name, JSONObject.ofBoolean(value)); }
@@ -1323,18 +1946,18 @@ public final class JSON {
 		public void set(String name, double value) { set(name, JSONObject.ofDouble(value)); }
 		public void set(String name, String value) { set(name, JSONObject.ofString(value)); }
 		
-		public void setNull(int index) { setNull(indexName(index)); }
-		public void set(int index, boolean value) { set(indexName(index), value); }
-		public void set(int index, byte value) { set(indexName(index), value); }
-		public void set(int index, short value) { set(indexName(index), value); }
-		public void set(int index, int value) { set(indexName(index), value); }
-		public void set(int index, long value) { set(indexName(index), value); }
-		public void set(int index, float value) { set(indexName(index), value); }
-		public void set(int index, double value) { set(indexName(index), value); }
-		public void set(int index, String value) { set(indexName(index), value); }
+		public void setNull(int index) { set(index, JSONObject.ofNull()); }
+		public void set(int index, boolean value) { set(index, JSONObject.ofBoolean(value)); }
+		public void set(int index, byte value) { set(index, JSONObject.ofByte(value)); }
+		public void set(int index, short value) { set(index, JSONObject.ofShort(value)); }
+		public void set(int index, int value) { set(index, JSONObject.ofInt(value)); }
+		public void set(int index, long value) { set(index, JSONObject.ofLong(value)); }
+		public void set(int index, float value) { set(index, JSONObject.ofFloat(value)); }
+		public void set(int index, double value) { set(index, JSONObject.ofDouble(value)); }
+		public void set(int index, String value) { set(index, JSONObject.ofString(value)); }
 		
 		public void add(JSONNode node) {
-			directSet(indexName(nextIndex()), Objects.requireNonNull(node));
+			directSet(nextIndex(), Objects.requireNonNull(node));
 		}
 		
 		public void addNull() { add(JSONObject.ofNull()); }
@@ -1381,19 +2004,19 @@ public final class JSON {
 		public void removeDouble(String name) { remove(name, JSONType.DECIMAL); }
 		public void removeString(String name) { remove(name, JSONType.STRING); }
 		
-		public void remove(int index) { remove(indexName(index)); }
-		public void removeObject(int index) { removeObject(indexName(index)); }
-		public void removeCollection(int index) { removeCollection(indexName(index)); }
+		public void remove(int index) { directRemove(index); }
+		public void removeObject(int index) { JSONNode node; if((node = directGet(index)) != null && node.isObject()) directRemove(index); }
+		public void removeCollection(int index) { JSONNode node; if((node = directGet(index)) != null && node.isCollection()) directRemove(index); }
 		
-		public void removeNull(int index) { remove(indexName(index), JSONType.NULL); }
-		public void removeBoolean(int index) { remove(indexName(index), JSONType.BOOLEAN); }
-		public void removeByte(int index) { remove(indexName(index), JSONType.INTEGER); }
-		public void removeShort(int index) { remove(indexName(index), JSONType.INTEGER); }
-		public void removeInt(int index) { remove(indexName(index), JSONType.INTEGER); }
-		public void removeLong(int index) { remove(indexName(index), JSONType.INTEGER); }
-		public void removeFloat(int index) { remove(indexName(index), JSONType.DECIMAL); }
-		public void removeDouble(int index) { remove(indexName(index), JSONType.DECIMAL); }
-		public void removeString(int index) { remove(indexName(index), JSONType.STRING); }
+		public void removeNull(int index) { remove(index, JSONType.NULL); }
+		public void removeBoolean(int index) { remove(index, JSONType.BOOLEAN); }
+		public void removeByte(int index) { remove(index, JSONType.INTEGER); }
+		public void removeShort(int index) { remove(index, JSONType.INTEGER); }
+		public void removeInt(int index) { remove(index, JSONType.INTEGER); }
+		public void removeLong(int index) { remove(index, JSONType.INTEGER); }
+		public void removeFloat(int index) { remove(index, JSONType.DECIMAL); }
+		public void removeDouble(int index) { remove(index, JSONType.DECIMAL); }
+		public void removeString(int index) { remove(index, JSONType.STRING); }
 		
 		/** @since 00.02.09 */
 		@Override
@@ -1404,15 +2027,20 @@ public final class JSON {
 				nodes.clear();
 				nodes = null;
 			}
+			
+			if(items != null) {
+				items.clear();
+				items = null;
+			}
 		}
 		
-		@Override public JSONCollection copy() { return new JSONCollection(parent, name, type, nodes); }
+		@Override public JSONCollection copy() { return new JSONCollection(parent, name, type, nodes, items); }
 		@Override public boolean isObject() { return false; }
 		@Override public boolean isCollection() { return true; }
 		
-		public int length() { return nodes == null ? 0 : nodes.size(); }
+		public int length() { return items != null ? items.size() : (nodes != null ? nodes.size() : 0); }
 		/** @since 00.02.09 */
-		public boolean isEmpty() { return nodes == null || nodes.isEmpty(); }
+		public boolean isEmpty() { return length() == 0; }
 		
 		@Override public Iterator<JSONNode> iterator() { return nodesIterator(); }
 		public Iterator<JSONNode> nodesIterator() { return new Iterators.Nodes(this); }
@@ -1427,7 +2055,7 @@ public final class JSON {
 		
 		@Override
 		public void toString(StringBuilder builder, int depth, boolean compress) {
-			if(nodes == null || nodes.isEmpty()) {
+			if(isEmpty()) {
 				builder.append(type == JSONType.ARRAY ? "[]" : "{}");
 				return;
 			}
@@ -1450,7 +2078,7 @@ public final class JSON {
 			}
 			
 			boolean first = true;
-			for(JSONNode node : nodes.values()) {
+			for(JSONNode node : this) {
 				if(first) {
 					first = false;
 				} else {
@@ -1489,7 +2117,7 @@ public final class JSON {
 		public int hashCode() {
 			final int prime = 31;
 			int result = super.hashCode();
-			result = prime * result + Objects.hash(nodes);
+			result = prime * result + Objects.hash(isArray() ? items : nodes);
 			return result;
 		}
 		
@@ -1502,7 +2130,7 @@ public final class JSON {
 			if(getClass() != obj.getClass())
 				return false;
 			JSONCollection other = (JSONCollection) obj;
-			return Objects.equals(nodes, other.nodes);
+			return Objects.equals(nodes, other.nodes) && Objects.equals(items, other.items);
 		}
 		
 		private static final class TraverseResult {
@@ -1523,6 +2151,10 @@ public final class JSON {
 		private static final class Iterators {
 			
 			private static final Iterator<JSONNode> maybeEmptyIterator(JSONCollection collection) {
+				if(collection.items != null) {
+					return collection.items.iterator();
+				}
+				
 				return collection.nodes != null ? collection.nodes.values().iterator() : Empty.instance();
 			}
 			
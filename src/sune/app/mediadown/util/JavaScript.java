@@ -24,6 +24,9 @@ import sune.app.mediadown.util.JSON.JSONCollection;
  * @author Sune*/
 public final class JavaScript {
 	
+	/** @since 00.02.09 */
+	private static final Regex REGEX_VARIABLE = Regex.of("(?:var\\s+)?([^\\s=]*)\\s*=");
+	
 	private static final class StringJoiner {
 		
 		static final StringBuilder JOINER;
@@ -227,8 +230,7 @@ public final class JavaScript {
 	public static final Map<String, String> varcontents(String script) {
 		Map<String, String> vars = new LinkedHashMap<>();
 		StringBuilder sb = new StringBuilder();
-		Regex pat = Regex.of("(?:var\\s+)?([^\\s=]*)\\s*=");
-		Matcher mat = pat.matcher(script);
+		Matcher mat = REGEX_VARIABLE.matcher(script);
 		
 		while(mat.find()) {
 			int    start = mat.end();
@@ -1,9 +1,12 @@
 package sune.app.mediadown.util;
 
 import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.regex.MatchResult;
@@ -21,18 +24,45 @@ public final class Regex {
 	
 	private final String pattern;
 	private final int flags;
-	private WeakReference<Pattern> ref;
+	/** @since 00.02.09 */
+	private Pattern compiled;
 	
 	private Regex(String pattern, int flags) {
 		this.pattern = pattern;
 		this.flags = flags;
-		this.ref = new WeakReference<>(null);
 	}
 	
 	private static final Pattern compile(String pattern, int flags) {
 		return Pattern.compile(pattern, flags);
 	}
 	
+	/**
+	 * Returns the number of times a compiled pattern was found in the shared cache.
+	 * @since 00.02.09
+	 */
+	public static final long cacheHits() {
+		return PatternCache.hits.sum();
+	}
+	
+	/**
+	 * Returns the number of times a pattern had to be compiled, since it was not present
+	 * in the shared cache.
+	 * @since 00.02.09
+	 */
+	public static final long cacheMisses() {
+		return PatternCache.misses.sum();
+	}
+	
+	/** @since 00.02.09 */
+	public static final int cacheSize() {
+		return PatternCache.size();
+	}
+	
+	/** @since 00.02.09 */
+	public static final void clearCache() {
+		PatternCache.clear();
+	}
+	
 	public static final String quote(String string) {
 		return Pattern.quote(string);
 	}
@@ -132,14 +162,109 @@ public final class Regex {
 	
 	public Pattern pattern() {
 		Pattern p;
-		if((p = ref.get()) == null) {
-			p = compile(pattern, flags);
-			ref = new WeakReference<>(p);
+		if((p = compiled) == null) {
+			// Racy, but harmless, the same pattern is obtained in the worst case
+			compiled = p = PatternCache.get(pattern, flags);
 		}
 		
 		return p;
 	}
 	
+	/**
+	 * Process-wide cache of compiled patterns, so that short-lived Regex instances of
+	 * the same pattern do not have to compile it again. The least recently used patterns
+	 * are evicted when the cache is full.
+	 * @since 00.02.09
+	 */
+	private static final class PatternCache {
+		
+		private static final int MAX_SIZE = 256;
+		
+		private static final Map<Key, Pattern> patterns = new LinkedHashMap<>(64, 0.75f, true) {
+			
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected boolean removeEldestEntry(Entry<Key, Pattern> eldest) {
+				return size() > MAX_SIZE;
+			}
+		};
+		
+		private static final LongAdder hits = new LongAdder();
+		private static final LongAdder misses = new LongAdder();
+		
+		// Forbid anyone to create an instance of this class
+		private PatternCache() {
+		}
+		
+		public static final Pattern get(String pattern, int flags) {
+			Key key = new Key(pattern, flags);
+			Pattern compiled;
+			
+			synchronized(patterns) {
+				compiled = patterns.get(key);
+			}
+			
+			if(compiled != null) {
+				hits.increment();
+				return compiled;
+			}
+			
+			// Compile outside of the lock, a concurrent compilation of the same pattern
+			// just replaces the other one.
+			misses.increment();
+			compiled = compile(pattern, flags);
+			
+			synchronized(patterns) {
+				patterns.put(key, compiled);
+			}
+			
+			return compiled;
+		}
+		
+		public static final int size() {
+			synchronized(patterns) {
+				return patterns.size();
+			}
+		}
+		
+		public static final void clear() {
+			synchronized(patterns) {
+				patterns.clear();
+			}
+		}
+		
+		private static final class Key {
+			
+			private final String pattern;
+			private final int flags;
+			private final int hashCode;
+			
+			public Key(String pattern, int flags) {
+				this.pattern = Objects.requireNonNull(pattern);
+				this.flags = flags;
+				this.hashCode = 31 * pattern.hashCode() + flags;
+			}
+			
+			@Override
+			public int hashCode() {
+				return hashCode;
+			}
+			
+			@Override
+			public boolean equals(Object obj) {
+				if(this == obj)
+					return true;
+				if(obj == null)
+					return false;
+				if(getClass() != obj.getClass())
+					return false;
+				Key other = (Key) obj;
+				return flags == other.flags && pattern.equals(other.pattern);
+			}
+		}
+	}
+	
 	public static final class Flags {
 		
 		public static final int NONE = 0;